@@ -5,7 +5,13 @@ import java.awt.datatransfer.DataFlavor;
 import java.awt.datatransfer.Transferable;
 import java.awt.event.InputEvent;
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.swing.JComponent;
 import javax.swing.TransferHandler;
@@ -13,6 +19,8 @@ import javax.swing.tree.DefaultTreeModel;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.xandercat.swing.file.FileMoveListener;
+import org.xandercat.swing.file.FileMover;
 import org.xandercat.swing.table.FileTable;
 import org.xandercat.swing.table.FileTableModel;
 import org.xandercat.swing.tree.FileTree;
@@ -25,7 +33,9 @@ import org.xandercat.swing.tree.FileTreeNode;
  * 
  * FileTransferHandler only handles creating the transferable and removing file nodes/rows from the
  * FileTree or FileTable if either are the source.  Actual moving of the files and adding of the files
- * to the destination FileTree or FileTable should be handled by a DropTargetListener.
+ * to the destination FileTree or FileTable should be handled by a DropTargetListener.  A file is only
+ * removed from the source once it is no longer at its original location; if a FileMover has yet to report 
+ * the file, it is removed when the mover reports it moved, and kept if the move fails or is cancelled.
  * 
  * @author Scott C Arnold
  */
@@ -88,26 +98,47 @@ public class FileTransferHandler extends TransferHandler {
 		try {
 			@SuppressWarnings("unchecked")
 			List<File> files = (List<File>) data.getTransferData(DataFlavor.javaFileListFlavor);
-			if (source instanceof FileTree) {
-				FileTree tree = (FileTree) source;
-				DefaultTreeModel model = (DefaultTreeModel) tree.getModel();
-				for (File file : files) {
-					FileTreeNode node = tree.findNodeForFile(file);
-					if (node != null) {
-						model.removeNodeFromParent(node);
-					}
-				}
-			} else if (source instanceof FileTable) {
-				FileTable table = (FileTable) source;
-				FileTableModel model = (FileTableModel) table.getModel();
-				for (File file : files) {
-					model.removeFile(file);
+			Map<FileMover, Set<File>> pendingFiles = new HashMap<FileMover, Set<File>>();
+			for (File file : files) {
+				FileMover mover = FileMover.getPendingMover(file);
+				if (mover != null) {
+					pendingFiles.computeIfAbsent(mover, key -> new HashSet<File>()).add(file.getAbsoluteFile());
+				} else if (!Files.exists(file.toPath(), LinkOption.NOFOLLOW_LINKS)) {
+					removeFile(source, file);
 				}
 			}
+			for (Map.Entry<FileMover, Set<File>> entry : pendingFiles.entrySet()) {
+				final Set<File> moverFiles = entry.getValue();
+				entry.getKey().addFileMoveListener(new FileMoveListener() {
+					public void fileMoved(File from, File to) {
+						if (moverFiles.contains(from.getAbsoluteFile()) && !from.getAbsoluteFile().equals(to.getAbsoluteFile())) {
+							removeFile(source, from);
+						}
+					}
+					public void fileMoveFailed(File from, File to, Throwable throwable) {
+						// the file is still at its original location, so it is kept
+					}
+					public void moveComplete(boolean cancelled) {
+						// nothing to do here
+					}
+				});
+			}
 		} catch (Exception e) {
 			log.error("Error completing file transfer.", e);
 		}
 	}
+	
+	private void removeFile(JComponent source, File file) {
+		if (source instanceof FileTree) {
+			FileTree tree = (FileTree) source;
+			FileTreeNode node = tree.findNodeForFile(file);
+			if (node != null) {
+				((DefaultTreeModel) tree.getModel()).removeNodeFromParent(node);
+			}
+		} else if (source instanceof FileTable) {
+			((FileTableModel) ((FileTable) source).getModel()).removeFile(file);
+		}
+	}
 
 	@Override
 	public void exportToClipboard(JComponent comp, Clipboard clip, int action)
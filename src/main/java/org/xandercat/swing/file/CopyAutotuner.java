@@ -0,0 +1,218 @@
+package org.xandercat.swing.file;
+
+import java.nio.file.FileStore;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * CopyAutotuner tunes the chunk size and the number of files copied in parallel by a FileCopier while
+ * it copies.  Throughput is measured over successive windows of time and fed to a hill climbing 
+ * controller that steps one parameter at a time: a step that raises throughput is followed by another
+ * step in the same direction, while a step that does not is undone and the other parameter is tried.
+ * 
+ * The values that gave the best throughput are remembered for the destination file store when the copy
+ * completes, and later copies to the same file store start from them.  Tunings are kept for the life of
+ * the application.
+ * 
+ * @author Scott C Arnold
+ */
+public class CopyAutotuner {
+
+	public static final long DEFAULT_WINDOW_MILLIS = 2000;
+	public static final long MIN_CHUNK_SIZE = 1024 * 256;			// 256KB
+	public static final long MAX_CHUNK_SIZE = 1024 * 1024 * 64;		// 64MB
+	
+	private static final double TOLERANCE = 0.05;	// throughput changes within 5% are treated as noise
+	private static final int CHUNK_SIZE = 0;
+	private static final int THREAD_COUNT = 1;
+	private static final Map<FileStore, Tuning> tunings = new ConcurrentHashMap<FileStore, Tuning>();
+	
+	/**
+	 * Parameters tuned for a file store.
+	 */
+	public static class Tuning {
+		
+		private final long chunkSize;
+		private final int threadCount;
+		private final double bytesPerSecond;
+		
+		private Tuning(long chunkSize, int threadCount, double bytesPerSecond) {
+			this.chunkSize = chunkSize;
+			this.threadCount = threadCount;
+			this.bytesPerSecond = bytesPerSecond;
+		}
+		
+		public long getChunkSize() {
+			return chunkSize;
+		}
+		
+		public int getThreadCount() {
+			return threadCount;
+		}
+		
+		/**
+		 * Get the throughput measured with these parameters.
+		 * 
+		 * @return				bytes per second
+		 */
+		public double getBytesPerSecond() {
+			return bytesPerSecond;
+		}
+	}
+	
+	private final FileStore fileStore;
+	private final int maxThreadCount;
+	private final long windowNanos;
+	private long chunkSize;
+	private int threadCount;
+	private long windowStart;
+	private long windowBytes;
+	private int parameter = CHUNK_SIZE;
+	private int direction = 1;
+	private boolean stepped;				// whether the current window is measuring a step
+	private double baseline;				// throughput before the current step
+	private double bestThroughput;
+	private long bestChunkSize;
+	private int bestThreadCount;
+	
+	/**
+	 * Get the parameters remembered for a file store.
+	 * 
+	 * @param fileStore			file store
+	 * 
+	 * @return					tuned parameters, or null if none have been remembered
+	 */
+	public static Tuning getTuning(FileStore fileStore) {
+		return tunings.get(fileStore);
+	}
+	
+	/**
+	 * Forget the parameters remembered for all file stores.
+	 */
+	public static void clearTunings() {
+		tunings.clear();
+	}
+	
+	/**
+	 * Construct a new autotuner, starting from any parameters remembered for the file store or otherwise
+	 * from the given parameters.
+	 * 
+	 * @param fileStore			destination file store, or null if not known
+	 * @param chunkSize			initial chunk size
+	 * @param threadCount		initial number of files to copy in parallel
+	 * @param maxThreadCount	maximum number of files to copy in parallel
+	 * @param windowMillis		length of each throughput measurement window
+	 */
+	CopyAutotuner(FileStore fileStore, long chunkSize, int threadCount, int maxThreadCount, long windowMillis) {
+		Tuning tuning = (fileStore == null)? null : tunings.get(fileStore);
+		if (tuning != null) {
+			chunkSize = tuning.chunkSize;
+			threadCount = tuning.threadCount;
+		}
+		this.fileStore = fileStore;
+		this.maxThreadCount = maxThreadCount;
+		this.windowNanos = windowMillis * 1000000L;
+		this.chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, chunkSize));
+		this.threadCount = Math.max(1, Math.min(maxThreadCount, threadCount));
+		this.bestChunkSize = this.chunkSize;
+		this.bestThreadCount = this.threadCount;
+	}
+	
+	public long getChunkSize() {
+		return chunkSize;
+	}
+	
+	public int getThreadCount() {
+		return threadCount;
+	}
+	
+	public FileStore getFileStore() {
+		return fileStore;
+	}
+	
+	/**
+	 * Record bytes copied, adjusting the parameters at the end of each measurement window.
+	 * 
+	 * @param bytes				bytes copied
+	 * 
+	 * @return					whether or not the parameters were changed
+	 */
+	synchronized boolean bytesCopied(long bytes) {
+		long now = System.nanoTime();
+		if (windowStart == 0) {
+			windowStart = now;
+		}
+		windowBytes += bytes;
+		long elapsed = now - windowStart;
+		if (elapsed < windowNanos) {
+			return false;
+		}
+		double throughput = windowBytes * 1000000000d / elapsed;
+		windowStart = now;
+		windowBytes = 0;
+		if (throughput > bestThroughput) {
+			bestThroughput = throughput;
+			bestChunkSize = chunkSize;
+			bestThreadCount = threadCount;
+		}
+		if (!stepped) {
+			baseline = throughput;
+			return climb();
+		}
+		if (throughput > baseline * (1 + TOLERANCE)) {
+			baseline = throughput;
+			return climb();
+		}
+		// the step did not help; undo it and try the other parameter from a fresh baseline
+		step(parameter, -direction);
+		direction = -direction;
+		if (maxThreadCount > 1) {
+			parameter = (parameter == CHUNK_SIZE)? THREAD_COUNT : CHUNK_SIZE;
+		}
+		stepped = false;
+		return true;
+	}
+	
+	/**
+	 * Step the current parameter in the current direction, reversing direction or switching to the
+	 * other parameter when a limit is reached.
+	 */
+	private boolean climb() {
+		for (int attempt = 0; attempt < 4; attempt++) {
+			if (step(parameter, direction)) {
+				stepped = true;
+				return true;
+			}
+			if (attempt % 2 == 0) {
+				direction = -direction;
+			} else if (maxThreadCount > 1) {
+				parameter = (parameter == CHUNK_SIZE)? THREAD_COUNT : CHUNK_SIZE;
+			}
+		}
+		stepped = false;
+		return false;
+	}
+	
+	private boolean step(int parameter, int direction) {
+		if (parameter == CHUNK_SIZE) {
+			long newChunkSize = (direction > 0)? Math.min(MAX_CHUNK_SIZE, chunkSize * 2) : Math.max(MIN_CHUNK_SIZE, chunkSize / 2);
+			boolean changed = newChunkSize != chunkSize;
+			chunkSize = newChunkSize;
+			return changed;
+		} else {
+			int newThreadCount = Math.max(1, Math.min(maxThreadCount, threadCount + direction));
+			boolean changed = newThreadCount != threadCount;
+			threadCount = newThreadCount;
+			return changed;
+		}
+	}
+	
+	/**
+	 * Remember the parameters that gave the best throughput for the file store.
+	 */
+	synchronized void remember() {
+		if (fileStore != null && bestThroughput > 0) {
+			tunings.put(fileStore, new Tuning(bestChunkSize, bestThreadCount, bestThroughput));
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package org.xandercat.swing.file;
+
+/**
+ * CopyJobListener can be implemented by any class wishing to be kept updated on the state of a copy
+ * job submitted to a CopyScheduler.  Events are fired on the event dispatch thread.
+ * 
+ * @author Scott C Arnold
+ */
+public interface CopyJobListener {
+
+	/**
+	 * Called when a copy job changes state, or when its place in the queue changes while it is queued.
+	 * 
+	 * @param state				new state of the copy job
+	 * @param queuePosition		position in the queue starting at 1 when queued, otherwise 0
+	 */
+	public void copyJobStateChanged(CopyScheduler.JobState state, int queuePosition);
+}
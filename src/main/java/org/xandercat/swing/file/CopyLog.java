@@ -0,0 +1,291 @@
+package org.xandercat.swing.file;
+
+import java.io.File;
+
+/**
+ * CopyLog keeps the most recent records of a copy process in a fixed size ring buffer.  Each record is
+ * stored as a few array elements rather than as text, so adding a record costs the same no matter how
+ * large the log has grown, and nothing is formatted until a record is displayed.  When the buffer is
+ * full, each new record replaces the oldest one.
+ *
+ * Records are numbered in the order they are added, starting from 0.  Only the last capacity records
+ * are retained; use getFirstSequence() and getCount() to find the range of retained records.
+ *
+ * The log can be sampled to limit how many routine records are kept under high event rates.  Errors,
+ * retries, directories, and messages are always recorded; files copied, linked, skipped, or already
+ * existing are dropped once the maximum records per second has been reached.
+ *
+ * CopyLog is thread safe.  It can be registered with a FileCopier as a FileCopyListener to record each
+ * file processed directly from the copy threads.
+ *
+ * @author Scott C Arnold
+ */
+public class CopyLog implements FileCopyListener {
+
+	public static final int DEFAULT_CAPACITY = 10000;
+
+	public static enum Filter {
+		ALL("All"), ERRORS("Errors only"), DIRECTORIES("Directories only");
+
+		private String description;
+
+		private Filter(String description) {
+			this.description = description;
+		}
+
+		@Override
+		public String toString() {
+			return description;
+		}
+	}
+
+	/**
+	 * A record of the log.  Records are created only when requested, and are not updated as the log changes.
+	 */
+	public static class Record {
+
+		private final long sequence;
+		private final long time;
+		private final Object subject;
+		private final File target;
+		private final FileCopier.CopyResult result;
+		private final boolean directory;
+
+		private Record(long sequence, long time, Object subject, File target, FileCopier.CopyResult result, boolean directory) {
+			this.sequence = sequence;
+			this.time = time;
+			this.subject = subject;
+			this.target = target;
+			this.result = result;
+			this.directory = directory;
+		}
+
+		public long getSequence() {
+			return sequence;
+		}
+
+		public long getTime() {
+			return time;
+		}
+
+		public boolean isMessage() {
+			return result == null;
+		}
+
+		/**
+		 * Get the message of the record, or null if the record is for a file.
+		 */
+		public String getMessage() {
+			return (result == null)? (String) subject : null;
+		}
+
+		/**
+		 * Get the file copied from, or null if the record is a message.
+		 */
+		public File getSource() {
+			return (result == null)? null : (File) subject;
+		}
+
+		/**
+		 * Get the file copied to, or null if the record is a message.
+		 */
+		public File getTarget() {
+			return target;
+		}
+
+		/**
+		 * Get the result of the copy, or null if the record is a message.
+		 */
+		public FileCopier.CopyResult getResult() {
+			return result;
+		}
+
+		public boolean isDirectory() {
+			return directory;
+		}
+	}
+
+	private static final FileCopier.CopyResult[] RESULTS = FileCopier.CopyResult.values();
+	private static final byte MESSAGE = -1;
+
+	private final int capacity;
+	private final long[] times;
+	private final Object[] subjects;		// file copied from, or message text
+	private final File[] targets;
+	private final byte[] results;			// copy result ordinals, or MESSAGE
+	private final boolean[] directories;
+	private long count;						// records ever added; record n is kept at index n % capacity
+	private long sampledOutCount;
+	private int maxRecordsPerSecond;		// 0 for no sampling
+	private long sampleWindowStart;
+	private int sampleWindowCount;
+
+	public CopyLog() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Construct a new copy log.
+	 *
+	 * @param capacity				maximum number of records to retain
+	 */
+	public CopyLog(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1.");
+		}
+		this.capacity = capacity;
+		this.times = new long[capacity];
+		this.subjects = new Object[capacity];
+		this.targets = new File[capacity];
+		this.results = new byte[capacity];
+		this.directories = new boolean[capacity];
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Set the maximum number of routine file records kept per second.  Records beyond the maximum are
+	 * dropped and counted in the sampled out count.
+	 *
+	 * @param maxRecordsPerSecond	maximum routine records per second, or 0 to keep every record
+	 */
+	public synchronized void setMaxRecordsPerSecond(int maxRecordsPerSecond) {
+		if (maxRecordsPerSecond < 0) {
+			throw new IllegalArgumentException("Max records per second cannot be negative.");
+		}
+		this.maxRecordsPerSecond = maxRecordsPerSecond;
+	}
+
+	public synchronized int getMaxRecordsPerSecond() {
+		return maxRecordsPerSecond;
+	}
+
+	/**
+	 * Get the number of records dropped by sampling.
+	 */
+	public synchronized long getSampledOutCount() {
+		return sampledOutCount;
+	}
+
+	/**
+	 * Add a record of a file that has been processed.
+	 *
+	 * @param from					file copied from
+	 * @param to					file copied to
+	 * @param isDirectory			whether or not the file is a directory
+	 * @param result				result of the copy
+	 */
+	public synchronized void addFileCopied(File from, File to, boolean isDirectory, FileCopier.CopyResult result) {
+		long time = System.currentTimeMillis();
+		if (maxRecordsPerSecond > 0 && !isDirectory && isRoutine(result)) {
+			if (time - sampleWindowStart >= 1000) {
+				sampleWindowStart = time;
+				sampleWindowCount = 0;
+			}
+			if (sampleWindowCount >= maxRecordsPerSecond) {
+				sampledOutCount++;
+				return;
+			}
+			sampleWindowCount++;
+		}
+		add(time, from, to, (byte) result.ordinal(), isDirectory);
+	}
+
+	public void fileCopying(File from, File to, boolean isDirectory) {
+		// files are recorded once processed
+	}
+
+	public void fileCopied(File from, File to, boolean isDirectory, FileCopier.CopyResult result) {
+		addFileCopied(from, to, isDirectory, result);
+	}
+
+	public void copyComplete(boolean resolutionRequired, boolean copyCancelled) {
+	}
+
+	/**
+	 * Add a record of a message.  Messages are never sampled out.
+	 *
+	 * @param message				message to add
+	 */
+	public synchronized void addMessage(String message) {
+		add(System.currentTimeMillis(), message, null, MESSAGE, false);
+	}
+
+	private void add(long time, Object subject, File target, byte result, boolean directory) {
+		int index = (int) (count % capacity);
+		times[index] = time;
+		subjects[index] = subject;
+		targets[index] = target;
+		results[index] = result;
+		directories[index] = directory;
+		count++;
+	}
+
+	private static boolean isRoutine(FileCopier.CopyResult result) {
+		switch (result) {
+		case ERROR:
+		case VERIFY_FAILED:
+		case RETRYING:
+			return false;
+		default:
+			return true;
+		}
+	}
+
+	/**
+	 * Get the number of records ever added to the log; this is also the sequence number of the next record.
+	 */
+	public synchronized long getCount() {
+		return count;
+	}
+
+	/**
+	 * Get the sequence number of the oldest record retained.
+	 */
+	public synchronized long getFirstSequence() {
+		return Math.max(0, count - capacity);
+	}
+
+	/**
+	 * Get the record with the given sequence number.
+	 *
+	 * @param sequence				sequence number of the record
+	 *
+	 * @return						the record, or null if the record is no longer retained or not yet added
+	 */
+	public synchronized Record getRecord(long sequence) {
+		if (sequence < getFirstSequence() || sequence >= count) {
+			return null;
+		}
+		int index = (int) (sequence % capacity);
+		byte result = results[index];
+		return new Record(sequence, times[index], subjects[index], targets[index],
+				(result == MESSAGE)? null : RESULTS[result], directories[index]);
+	}
+
+	/**
+	 * Determine whether or not the record with the given sequence number is shown by the given filter.
+	 * Messages are shown by every filter.
+	 *
+	 * @param sequence				sequence number of the record
+	 * @param filter				filter to test
+	 *
+	 * @return						whether or not the record is retained and shown by the filter
+	 */
+	public synchronized boolean matches(long sequence, Filter filter) {
+		if (sequence < getFirstSequence() || sequence >= count) {
+			return false;
+		}
+		int index = (int) (sequence % capacity);
+		byte result = results[index];
+		if (filter == Filter.ALL || result == MESSAGE) {
+			return true;
+		} else if (filter == Filter.ERRORS) {
+			return !isRoutine(RESULTS[result]);
+		} else {
+			return directories[index];
+		}
+	}
+}
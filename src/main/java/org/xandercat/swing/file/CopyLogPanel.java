@@ -0,0 +1,280 @@
+package org.xandercat.swing.file;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import javax.swing.AbstractListModel;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollBar;
+import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * CopyLogPanel displays the records of a CopyLog.  The records are shown in a list with fixed size rows,
+ * so only the rows scrolled into view are formatted and drawn.  The panel picks up new records on a
+ * timer rather than as they are added, so adding a record to the log does no work on the EDT.
+ *
+ * Like MessageScrollPane, the list remains scrolled to the bottom as records are added when already at
+ * the bottom, and remains at the current scroll position when not at the bottom.
+ *
+ * @author Scott C Arnold
+ */
+public class CopyLogPanel extends JPanel implements ActionListener {
+
+	private static final long serialVersionUID = 2024061501L;
+	private static final Color ERROR_COLOR = new Color(192, 0, 0);
+
+	private CopyLog copyLog;
+	private CopyLog.Filter filter = CopyLog.Filter.ALL;
+	private RecordListModel listModel;
+	private JList<CopyLog.Record> list;
+	private JScrollPane scrollPane;
+	private JComboBox<CopyLog.Filter> filterComboBox;
+	private JLabel sampledOutLabel = new JLabel(" ");
+	private long sampledOutCount;
+	private Timer refreshTimer;
+	private DateFormat dateFormat = new SimpleDateFormat("hh:mm:ss a");
+	private boolean showAbsolutePaths = true;
+
+	/**
+	 * List model of the records of the copy log shown by the current filter.  The sequence numbers of the
+	 * records shown are kept in a ring the size of the copy log, so the model never holds more than the log.
+	 */
+	private class RecordListModel extends AbstractListModel<CopyLog.Record> {
+
+		private static final long serialVersionUID = 2024061501L;
+
+		private long[] sequences = new long[copyLog.getCapacity()];
+		private int start;
+		private int size;
+		private long nextSequence;		// next sequence number to test against the filter
+
+		public int getSize() {
+			return size;
+		}
+
+		public CopyLog.Record getElementAt(int index) {
+			return copyLog.getRecord(sequences[(start + index) % sequences.length]);
+		}
+
+		private void refresh() {
+			long count = copyLog.getCount();
+			long firstSequence = Math.max(0, count - sequences.length);
+			int removed = 0;
+			while (size > 0 && sequences[start] < firstSequence) {
+				start = (start + 1) % sequences.length;
+				size--;
+				removed++;
+			}
+			if (removed > 0) {
+				fireIntervalRemoved(this, 0, removed - 1);
+			}
+			int added = 0;
+			for (long sequence = Math.max(nextSequence, firstSequence); sequence < count; sequence++) {
+				if (copyLog.matches(sequence, filter)) {
+					sequences[(start + size) % sequences.length] = sequence;
+					size++;
+					added++;
+				}
+			}
+			nextSequence = count;
+			if (added > 0) {
+				fireIntervalAdded(this, size - added, size - 1);
+			}
+		}
+
+		private void reset() {
+			int oldSize = size;
+			start = 0;
+			size = 0;
+			nextSequence = 0;
+			if (oldSize > 0) {
+				fireIntervalRemoved(this, 0, oldSize - 1);
+			}
+		}
+	}
+
+	private class RecordCellRenderer extends DefaultListCellRenderer {
+
+		private static final long serialVersionUID = 2024061501L;
+
+		@Override
+		public Component getListCellRendererComponent(JList<?> list, Object value,
+				int index, boolean isSelected, boolean cellHasFocus) {
+			CopyLog.Record record = (value instanceof CopyLog.Record)? (CopyLog.Record) value : null;
+			String text = (record != null)? format(record) : (value == null)? "" : value.toString();
+			JLabel label = (JLabel) super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+			if (!isSelected && record != null && isError(record.getResult())) {
+				label.setForeground(ERROR_COLOR);
+			}
+			final int width = label.getPreferredSize().width;
+			if (width > CopyLogPanel.this.list.getFixedCellWidth()) {
+				// rows are not measured until drawn, so the list is widened as wider rows come into view
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						if (width > CopyLogPanel.this.list.getFixedCellWidth()) {
+							CopyLogPanel.this.list.setFixedCellWidth(width);
+						}
+					}
+				});
+			}
+			return label;
+		}
+	}
+
+	public CopyLogPanel(CopyLog copyLog) {
+		super(new BorderLayout());
+		this.copyLog = copyLog;
+		this.listModel = new RecordListModel();
+		this.list = new JList<CopyLog.Record>(listModel);
+		RecordCellRenderer renderer = new RecordCellRenderer();
+		list.setCellRenderer(renderer);
+		list.setFixedCellHeight(renderer.getListCellRendererComponent(list, "X", 0, false, false).getPreferredSize().height);
+		list.setFixedCellWidth(1);
+		this.scrollPane = new JScrollPane(list);
+		scrollPane.getViewport().setBackground(list.getBackground());
+		JPanel headerPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+		headerPanel.add(new JLabel("Show:"));
+		this.filterComboBox = new JComboBox<CopyLog.Filter>(CopyLog.Filter.values());
+		filterComboBox.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent event) {
+				setFilter((CopyLog.Filter) filterComboBox.getSelectedItem());
+			}
+		});
+		headerPanel.add(filterComboBox);
+		headerPanel.add(sampledOutLabel);
+		add(headerPanel, BorderLayout.NORTH);
+		add(scrollPane, BorderLayout.CENTER);
+		this.refreshTimer = new Timer(250, this);
+	}
+
+	public CopyLog getCopyLog() {
+		return copyLog;
+	}
+
+	public CopyLog.Filter getFilter() {
+		return filter;
+	}
+
+	/**
+	 * Set the filter for the records shown.  This should only be called from the EDT.
+	 *
+	 * @param filter				the filter
+	 */
+	public void setFilter(CopyLog.Filter filter) {
+		if (filter == null) {
+			throw new IllegalArgumentException("Filter cannot be null.");
+		}
+		if (this.filter != filter) {
+			this.filter = filter;
+			if (filterComboBox.getSelectedItem() != filter) {
+				filterComboBox.setSelectedItem(filter);
+			}
+			listModel.reset();
+			refresh(true);
+		}
+	}
+
+	/**
+	 * Set whether files copied are shown with absolute paths or with names only.  Directories are always
+	 * shown with absolute paths.
+	 *
+	 * @param showAbsolutePaths		whether or not to show absolute paths of files copied
+	 */
+	public void setShowAbsolutePaths(boolean showAbsolutePaths) {
+		this.showAbsolutePaths = showAbsolutePaths;
+		list.repaint();
+	}
+
+	/**
+	 * Set the date/time format string to used for the date/time that is shown at the beginning of each
+	 * record.  Setting this to null will disable date/time display.
+	 *
+	 * @param dateFormatString		the date format string
+	 */
+	public void setShowMessageTime(String dateFormatString) {
+		if (dateFormatString == null) {
+			dateFormat = null;
+		} else {
+			dateFormat = new SimpleDateFormat(dateFormatString);
+		}
+		list.repaint();
+	}
+
+	private String format(CopyLog.Record record) {
+		StringBuilder text = new StringBuilder();
+		if (dateFormat != null) {
+			text.append('[').append(dateFormat.format(new Date(record.getTime()))).append("] ");
+		}
+		if (record.isMessage()) {
+			return text.append(record.getMessage()).toString();
+		}
+		String resultTag = record.getResult().toString();
+		if (record.isDirectory()) {
+			text.append("Creating directory ").append(record.getTarget().getAbsolutePath());
+			if (record.getResult() == FileCopier.CopyResult.COPIED) {
+				resultTag = "CREATED";
+			}
+		} else if (showAbsolutePaths) {
+			text.append("Copying file ").append(record.getSource().getAbsolutePath());
+		} else {
+			text.append("Copying file ").append(record.getSource().getName());
+		}
+		return text.append(" [").append(resultTag).append(']').toString();
+	}
+
+	private static boolean isError(FileCopier.CopyResult result) {
+		return result == FileCopier.CopyResult.ERROR || result == FileCopier.CopyResult.VERIFY_FAILED;
+	}
+
+	/**
+	 * Show any records added to the copy log since the last refresh.  This is done periodically while the
+	 * panel is displayed, but can be called to show records immediately.  This should only be called from the EDT.
+	 */
+	public void refresh() {
+		refresh(false);
+	}
+
+	private void refresh(boolean scrollToBottom) {
+		JScrollBar sb = scrollPane.getVerticalScrollBar();
+		boolean atBottom = scrollToBottom || sb.getVisibleAmount() + sb.getValue() >= sb.getMaximum();
+		listModel.refresh();
+		if (atBottom && listModel.getSize() > 0) {
+			list.ensureIndexIsVisible(listModel.getSize() - 1);
+		}
+		long count = copyLog.getSampledOutCount();
+		if (count != sampledOutCount) {
+			sampledOutCount = count;
+			sampledOutLabel.setText(count + " routine entries not shown due to high copy rate");
+		}
+	}
+
+	public void actionPerformed(ActionEvent event) {
+		refresh(false);
+	}
+
+	@Override
+	public void addNotify() {
+		super.addNotify();
+		refresh(true);
+		refreshTimer.start();
+	}
+
+	@Override
+	public void removeNotify() {
+		refreshTimer.stop();
+		super.removeNotify();
+	}
+}
@@ -0,0 +1,120 @@
+package org.xandercat.swing.file;
+
+import java.io.File;
+import java.nio.file.FileStore;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * CopyPlan is the result of the planning phase of a FileCopier.  It holds the files to copy in the 
+ * order they will be copied, the destination directories needed, and the space needed on each 
+ * destination file store compared with the space available there.
+ * 
+ * Space needed is estimated from the length of each source file less the length of any file already
+ * at its destination, so files that will be skipped or overwritten do not count against the space 
+ * available.
+ * 
+ * @author Scott C Arnold
+ */
+public class CopyPlan {
+
+	/**
+	 * Space needed and available on one destination file store.
+	 */
+	public static class StoreSpace {
+		
+		private final FileStore fileStore;
+		private long bytesNeeded;
+		private final long usableSpace;
+		
+		StoreSpace(FileStore fileStore, long usableSpace) {
+			this.fileStore = fileStore;
+			this.usableSpace = usableSpace;
+		}
+		
+		void addBytesNeeded(long bytes) {
+			this.bytesNeeded += bytes;
+		}
+		
+		public FileStore getFileStore() {
+			return fileStore;
+		}
+		
+		public long getBytesNeeded() {
+			return bytesNeeded;
+		}
+		
+		public long getUsableSpace() {
+			return usableSpace;
+		}
+		
+		public boolean isSufficient() {
+			return bytesNeeded <= usableSpace;
+		}
+	}
+	
+	private final FileCopier.CopyOrder copyOrder;
+	private final List<File> files;
+	private final List<File> directories;
+	private final List<StoreSpace> storeSpaces;
+	private final long totalBytes;
+	
+	CopyPlan(FileCopier.CopyOrder copyOrder, List<File> files, List<File> directories, List<StoreSpace> storeSpaces, long totalBytes) {
+		this.copyOrder = copyOrder;
+		this.files = Collections.unmodifiableList(files);
+		this.directories = Collections.unmodifiableList(directories);
+		this.storeSpaces = Collections.unmodifiableList(storeSpaces);
+		this.totalBytes = totalBytes;
+	}
+	
+	public FileCopier.CopyOrder getCopyOrder() {
+		return copyOrder;
+	}
+	
+	/**
+	 * Get the files and directories to copy, in the order they will be copied.
+	 * 
+	 * @return				files to copy
+	 */
+	public List<File> getFiles() {
+		return files;
+	}
+	
+	/**
+	 * Get the destination directories the files will be copied into.  These are created together
+	 * before copying starts.
+	 * 
+	 * @return				destination directories
+	 */
+	public List<File> getDirectories() {
+		return directories;
+	}
+	
+	public List<StoreSpace> getStoreSpaces() {
+		return storeSpaces;
+	}
+	
+	/**
+	 * Get the total length of the files to copy.
+	 * 
+	 * @return				total bytes of the files to copy
+	 */
+	public long getTotalBytes() {
+		return totalBytes;
+	}
+	
+	/**
+	 * Get whether or not every destination file store has enough usable space for the files to be
+	 * copied to it.
+	 * 
+	 * @return				whether or not there is sufficient space for the copy
+	 */
+	public boolean isSpaceSufficient() {
+		for (StoreSpace storeSpace : storeSpaces) {
+			if (!storeSpace.isSufficient()) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
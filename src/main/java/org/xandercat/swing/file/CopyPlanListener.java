@@ -0,0 +1,12 @@
+package org.xandercat.swing.file;
+
+/**
+ * CopyPlanListener can be implemented by any class wishing to be sent the CopyPlan of a FileCopier
+ * before any files are copied.
+ * 
+ * @author Scott C Arnold
+ */
+public interface CopyPlanListener {
+
+	public void copyPlanned(CopyPlan plan);
+}
@@ -0,0 +1,156 @@
+package org.xandercat.swing.file;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * CopyProgressChannel coalesces the events of a FileCopier into a set of counters that can be sampled
+ * at a fixed rate.  Copy threads only update the counters, so the cost of reporting progress does not 
+ * depend on how many files or chunks are copied between samples.  Each sample computes throughput in 
+ * bytes and files per second, smoothed with an exponentially weighted moving average, and an estimate
+ * of the time remaining.
+ * 
+ * The channel is registered with a FileCopier as a FileCopyListener, FileCopyProgressListener and
+ * FileScanListener.  Samples are meant to be taken from a single thread, such as by a Swing timer.
+ * 
+ * @author Scott C Arnold
+ */
+public class CopyProgressChannel implements FileCopyListener, FileCopyProgressListener, FileScanListener {
+
+	public static final double DEFAULT_SMOOTHING_SECONDS = 5;
+	
+	private static final double NANOS_PER_SECOND = 1000000000d;
+	
+	private final AtomicLong bytesCopied = new AtomicLong();
+	private final AtomicLong filesProcessed = new AtomicLong();
+	private final AtomicLong directoriesCreated = new AtomicLong();
+	private final AtomicLongArray resultCounts = new AtomicLongArray(FileCopier.CopyResult.values().length);
+	private final Map<File, Long> fileBytesCopied = new ConcurrentHashMap<File, Long>();	// bytes reported so far for files being copied
+	private final double smoothingSeconds;
+	private volatile File currentFile;
+	private volatile long totalBytes;
+	private volatile long totalFiles;
+	private volatile boolean complete;
+	private long lastSampleTime;
+	private boolean rated;
+	private long lastBytesCopied;
+	private long lastFilesProcessed;
+	private double bytesPerSecond;
+	private double filesPerSecond;
+	
+	/**
+	 * Construct a new progress channel using the default smoothing time.
+	 */
+	public CopyProgressChannel() {
+		this(DEFAULT_SMOOTHING_SECONDS);
+	}
+	
+	/**
+	 * Construct a new progress channel.  Throughput is smoothed so that a change in rate is mostly 
+	 * reflected after the given number of seconds.
+	 * 
+	 * @param smoothingSeconds		time constant of the throughput moving average in seconds
+	 */
+	public CopyProgressChannel(double smoothingSeconds) {
+		if (smoothingSeconds <= 0) {
+			throw new IllegalArgumentException("Smoothing seconds must be > 0");
+		}
+		this.smoothingSeconds = smoothingSeconds;
+	}
+	
+	/**
+	 * Set the total bytes to copy, used to estimate the time remaining.
+	 * 
+	 * @param totalBytes			total bytes, or 0 if not known
+	 */
+	public void setTotalBytes(long totalBytes) {
+		this.totalBytes = Math.max(0, totalBytes);
+	}
+	
+	/**
+	 * Set the total files and directories to process, used to estimate the time remaining when 
+	 * total bytes are not known.
+	 * 
+	 * @param totalFiles			total files, or 0 if not known
+	 */
+	public void setTotalFiles(long totalFiles) {
+		this.totalFiles = Math.max(0, totalFiles);
+	}
+	
+	/**
+	 * Take a sample of the progress of the copy.
+	 * 
+	 * @return						sampled copy statistics
+	 */
+	public synchronized CopyStatistics sample() {
+		long now = System.nanoTime();
+		long bytes = bytesCopied.get();
+		long files = filesProcessed.get();
+		if (lastSampleTime == 0) {
+			lastSampleTime = now;
+		} else if (now > lastSampleTime) {
+			double seconds = (now - lastSampleTime) / NANOS_PER_SECOND;
+			double weight = rated? 1 - Math.exp(-seconds / smoothingSeconds) : 1;	// first rate is taken as is
+			bytesPerSecond += weight * ((bytes - lastBytesCopied) / seconds - bytesPerSecond);
+			filesPerSecond += weight * ((files - lastFilesProcessed) / seconds - filesPerSecond);
+			lastSampleTime = now;
+			rated = true;
+		}
+		lastBytesCopied = bytes;
+		lastFilesProcessed = files;
+		long[] counts = new long[resultCounts.length()];
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = resultCounts.get(i);
+		}
+		long remainingMillis = -1;
+		if (complete) {
+			remainingMillis = 0;
+		} else if (totalBytes > 0 && bytesPerSecond > 0) {
+			remainingMillis = Math.round(Math.max(0, totalBytes - bytes) / bytesPerSecond * 1000);
+		} else if (totalFiles > 0 && filesPerSecond > 0) {
+			remainingMillis = Math.round(Math.max(0, totalFiles - files) / filesPerSecond * 1000);
+		}
+		return new CopyStatistics(bytes, files, counts, directoriesCreated.get(), currentFile, bytesPerSecond, filesPerSecond, 
+				totalBytes, totalFiles, remainingMillis, complete);
+	}
+	
+	public void fileCopying(File from, File to, boolean isDirectory) {
+		this.currentFile = from;
+	}
+
+	public void fileCopied(File from, File to, boolean isDirectory, FileCopier.CopyResult result) {
+		Long partialBytes = fileBytesCopied.remove(from);
+		if (result == FileCopier.CopyResult.RETRYING) {
+			// bytes of the failed attempt will be copied again
+			if (partialBytes != null) {
+				bytesCopied.addAndGet(-partialBytes.longValue());
+			}
+		} else {
+			filesProcessed.incrementAndGet();
+			if (isDirectory && result == FileCopier.CopyResult.COPIED) {
+				directoriesCreated.incrementAndGet();
+			}
+		}
+		resultCounts.incrementAndGet(result.ordinal());
+	}
+
+	public void copyComplete(boolean resolutionRequired, boolean copyCancelled) {
+		this.complete = true;
+	}
+
+	public void fileCopying(File from, File to, long bytesCopied, boolean copyComplete) {
+		// progress is reported as bytes copied so far for each file; only the increase is added to the total 
+		Long previous = copyComplete? fileBytesCopied.remove(from) : fileBytesCopied.put(from, Long.valueOf(bytesCopied));
+		long increase = bytesCopied - ((previous == null)? 0 : previous.longValue());
+		if (increase > 0) {
+			this.bytesCopied.addAndGet(increase);
+		}
+	}
+
+	public void filesScanned(int filesScanned, boolean scanComplete) {
+		this.totalFiles = filesScanned;
+	}
+}
@@ -0,0 +1,168 @@
+package org.xandercat.swing.file;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * CopyRetryPolicy decides which file copy errors a FileCopier retries on its own, how many times a file
+ * is attempted, and how long to wait between attempts.  The wait grows exponentially from an initial
+ * delay up to a maximum delay, and is reduced by a random fraction (the jitter) so that files failing
+ * together are not all retried at the same moment.
+ *
+ * An error is retryable if neither it nor any of its causes is an instance of a non-retryable class,
+ * and it or one of its causes is an instance of a retryable class.  By default, IOExceptions are
+ * retryable, except for missing files, denied access, files that already exist, paths that are not
+ * directories, and interruptions, which will not go away by waiting.
+ *
+ * @author Scott C Arnold
+ */
+public class CopyRetryPolicy {
+
+	public static final int DEFAULT_MAX_ATTEMPTS = 5;
+	public static final long DEFAULT_INITIAL_DELAY_MILLIS = 1000;
+	public static final long DEFAULT_MAX_DELAY_MILLIS = 60000;
+	public static final double DEFAULT_MULTIPLIER = 2;
+	public static final double DEFAULT_JITTER = 0.5;
+
+	private final int maxAttempts;
+	private final long initialDelayMillis;
+	private final long maxDelayMillis;
+	private final double multiplier;
+	private final double jitter;
+	private final List<Class<? extends Throwable>> retryableClasses = new CopyOnWriteArrayList<Class<? extends Throwable>>();
+	private final List<Class<? extends Throwable>> nonRetryableClasses = new CopyOnWriteArrayList<Class<? extends Throwable>>();
+
+	/**
+	 * Construct a new retry policy of 5 attempts, with delays starting at 1 second and doubling up
+	 * to 1 minute, reduced by up to half.
+	 */
+	public CopyRetryPolicy() {
+		this(DEFAULT_MAX_ATTEMPTS, DEFAULT_INITIAL_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS, DEFAULT_MULTIPLIER, DEFAULT_JITTER);
+	}
+
+	/**
+	 * Construct a new retry policy.
+	 *
+	 * @param maxAttempts			maximum number of times a file is attempted, including the first attempt
+	 * @param initialDelayMillis	delay before the first retry
+	 * @param maxDelayMillis		maximum delay before any retry
+	 * @param multiplier			factor each delay is multiplied by for the next retry
+	 * @param jitter				greatest fraction a delay is randomly reduced by, from 0 to 1
+	 */
+	public CopyRetryPolicy(int maxAttempts, long initialDelayMillis, long maxDelayMillis, double multiplier, double jitter) {
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("Max attempts must be at least 1.");
+		}
+		if (initialDelayMillis < 0 || maxDelayMillis < initialDelayMillis) {
+			throw new IllegalArgumentException("Delays must be >= 0, and the max delay cannot be less than the initial delay.");
+		}
+		if (multiplier < 1) {
+			throw new IllegalArgumentException("Multiplier must be at least 1.");
+		}
+		if (jitter < 0 || jitter > 1) {
+			throw new IllegalArgumentException("Jitter must be between 0 and 1.");
+		}
+		this.maxAttempts = maxAttempts;
+		this.initialDelayMillis = initialDelayMillis;
+		this.maxDelayMillis = maxDelayMillis;
+		this.multiplier = multiplier;
+		this.jitter = jitter;
+		retryableClasses.add(IOException.class);
+		nonRetryableClasses.add(NoSuchFileException.class);
+		nonRetryableClasses.add(AccessDeniedException.class);
+		nonRetryableClasses.add(FileAlreadyExistsException.class);
+		nonRetryableClasses.add(NotDirectoryException.class);
+		nonRetryableClasses.add(InterruptedIOException.class);
+		nonRetryableClasses.add(ClosedByInterruptException.class);
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public long getInitialDelayMillis() {
+		return initialDelayMillis;
+	}
+
+	public long getMaxDelayMillis() {
+		return maxDelayMillis;
+	}
+
+	public double getMultiplier() {
+		return multiplier;
+	}
+
+	public double getJitter() {
+		return jitter;
+	}
+
+	/**
+	 * Treat errors of the given class, and its subclasses, as retryable unless they are also of a
+	 * non-retryable class.
+	 *
+	 * @param throwableClass		class of errors to retry
+	 */
+	public void addRetryable(Class<? extends Throwable> throwableClass) {
+		retryableClasses.add(throwableClass);
+	}
+
+	/**
+	 * Never retry errors of the given class, or its subclasses.
+	 *
+	 * @param throwableClass		class of errors not to retry
+	 */
+	public void addNonRetryable(Class<? extends Throwable> throwableClass) {
+		nonRetryableClasses.add(throwableClass);
+	}
+
+	/**
+	 * Determine whether or not the given error is retryable.
+	 *
+	 * @param throwable				error that occurred while copying a file
+	 *
+	 * @return						whether or not the copy should be retried
+	 */
+	public boolean isRetryable(Throwable throwable) {
+		for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+			if (isInstance(nonRetryableClasses, cause)) {
+				return false;
+			}
+		}
+		for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+			if (isInstance(retryableClasses, cause)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isInstance(List<Class<? extends Throwable>> classes, Throwable throwable) {
+		for (Class<? extends Throwable> throwableClass : classes) {
+			if (throwableClass.isInstance(throwable)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the delay before the next attempt of a file that has failed the given number of times.
+	 *
+	 * @param failedAttempts		number of times the file has failed, at least 1
+	 *
+	 * @return						delay in milliseconds
+	 */
+	public long getDelayMillis(int failedAttempts) {
+		double delay = initialDelayMillis * Math.pow(multiplier, Math.max(0, failedAttempts - 1));
+		long cappedDelay = (long) Math.min(maxDelayMillis, delay);
+		return cappedDelay - (long) (cappedDelay * jitter * ThreadLocalRandom.current().nextDouble());
+	}
+}
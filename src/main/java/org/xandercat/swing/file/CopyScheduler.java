@@ -0,0 +1,384 @@
+package org.xandercat.swing.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.SwingUtilities;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * CopyScheduler runs copy jobs so that jobs using the same devices do not compete with each other.  
+ * Each job is keyed by the file stores of its sources and destinations; no more than a set number of 
+ * jobs run on any one file store at a time, while jobs on independent file stores run in parallel.
+ * 
+ * Jobs are queued by priority and then in the order submitted, and a queued job is never overtaken by 
+ * a lower priority or later job that needs one of the same file stores.  Interactive jobs also jump 
+ * ahead of running jobs: a running job of lower priority that shares a file store with an interactive
+ * job is paused until the interactive job is done.
+ * 
+ * Device file stores are looked up on a background thread, in the order jobs are submitted, so that 
+ * submitting a large job does not hold up the event dispatch thread; a job is queued once its devices are
+ * known.  A file store is looked up for each source or destination path that is not within another of 
+ * the job's paths, and paths that share a parent directory are looked up by that directory, so a large 
+ * file list needs one lookup per directory rather than one per file.  A mount point listed along with 
+ * other paths in the same directory is therefore taken to be on the file store of that directory.
+ * 
+ * @author Scott C Arnold
+ */
+public class CopyScheduler {
+
+	public static final int DEFAULT_MAX_JOBS_PER_DEVICE = 1;
+	
+	public static enum Priority {
+		INTERACTIVE, NORMAL, BULK;
+	}
+	
+	public static enum JobState {
+		QUEUED, RUNNING, PREEMPTED, COMPLETE;
+	}
+	
+	private static final Logger log = LogManager.getLogger(CopyScheduler.class);
+	private static CopyScheduler defaultScheduler;
+	
+	private class Job {
+		
+		private final SwingFileCopier copier;
+		private final Priority priority;
+		private Set<FileStore> devices = Collections.emptySet();	// set once looked up
+		private final CopyJobListener listener;
+		private int queuePosition;
+		private boolean preempted;
+		private boolean pausedByScheduler;
+		
+		private Job(SwingFileCopier copier, Priority priority, CopyJobListener listener) {
+			this.copier = copier;
+			this.priority = priority;
+			this.listener = listener;
+		}
+		
+		private boolean sharesDevice(Job job) {
+			for (FileStore device : job.devices) {
+				if (devices.contains(device)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+	
+	private final int maxJobsPerDevice;
+	private final List<Job> lookupJobs = new ArrayList<Job>();		// waiting for their devices to be looked up
+	private final List<Job> queuedJobs = new ArrayList<Job>();		// in priority order, then submission order
+	private final List<Job> runningJobs = new ArrayList<Job>();
+	private ExecutorService executor;
+	private ExecutorService lookupExecutor;
+	
+	/**
+	 * Get the scheduler shared by all copies that do not specify one.
+	 * 
+	 * @return					default copy scheduler
+	 */
+	public static synchronized CopyScheduler getDefault() {
+		if (defaultScheduler == null) {
+			defaultScheduler = new CopyScheduler(DEFAULT_MAX_JOBS_PER_DEVICE);
+		}
+		return defaultScheduler;
+	}
+	
+	/**
+	 * Construct a new copy scheduler.
+	 * 
+	 * @param maxJobsPerDevice	maximum number of jobs to run on any one file store at a time
+	 */
+	public CopyScheduler(int maxJobsPerDevice) {
+		if (maxJobsPerDevice < 1) {
+			throw new IllegalArgumentException("Max jobs per device must be > 0");
+		}
+		this.maxJobsPerDevice = maxJobsPerDevice;
+	}
+	
+	public int getMaxJobsPerDevice() {
+		return maxJobsPerDevice;
+	}
+	
+	/**
+	 * Submit a copy job to be run once the devices it uses are free.  The devices are looked up on a
+	 * background thread, so the given collections must not be changed after they are submitted.
+	 * 
+	 * @param copier			file copier to run
+	 * @param priority			priority of the job
+	 * @param sources			source files or directories of the job
+	 * @param destinations		destination files or directories of the job
+	 * @param listener			listener to notify of job state changes, or null
+	 */
+	public void submit(SwingFileCopier copier, Priority priority, final Collection<File> sources, final Collection<File> destinations, CopyJobListener listener) {
+		if (copier == null || priority == null) {
+			throw new IllegalArgumentException("Copier and priority cannot be null");
+		}
+		final Job job = new Job(copier, priority, listener);
+		synchronized(this) {
+			lookupJobs.add(job);
+			if (lookupExecutor == null) {
+				lookupExecutor = Executors.newSingleThreadExecutor(runnable -> {
+					Thread thread = new Thread(runnable, "CopyScheduler-lookup");
+					thread.setDaemon(true);
+					return thread;
+				});
+			}
+		}
+		lookupExecutor.execute(() -> {
+			Set<FileStore> devices = new HashSet<FileStore>();
+			try {
+				addDevices(devices, sources);
+				addDevices(devices, destinations);
+			} catch (Exception e) {
+				log.error("Error while looking up devices of copy job", e);
+			}
+			queue(job, devices);
+		});
+	}
+	
+	/**
+	 * Queue a job whose devices have been looked up, unless it was cancelled while they were looked up.
+	 */
+	private synchronized void queue(Job job, Set<FileStore> devices) {
+		if (!lookupJobs.remove(job)) {
+			return;
+		}
+		job.devices = devices;
+		int index = queuedJobs.size();
+		while (index > 0 && queuedJobs.get(index - 1).priority.compareTo(job.priority) > 0) {
+			index--;
+		}
+		queuedJobs.add(index, job);
+		schedule();
+	}
+	
+	/**
+	 * Cancel a copy job.  A queued job is started right away so that it can complete as cancelled.
+	 * 
+	 * @param copier			file copier of the job to cancel
+	 */
+	public synchronized void cancel(SwingFileCopier copier) {
+		copier.cancel();
+		for (Iterator<Job> iter = lookupJobs.iterator(); iter.hasNext();) {
+			Job job = iter.next();
+			if (job.copier == copier) {
+				iter.remove();
+				start(job);
+				return;
+			}
+		}
+		for (Iterator<Job> iter = queuedJobs.iterator(); iter.hasNext();) {
+			Job job = iter.next();
+			if (job.copier == copier) {
+				iter.remove();
+				start(job);
+				updateQueuePositions();
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Get the number of jobs waiting to run, including jobs whose devices are still being looked up.
+	 * 
+	 * @return					number of queued jobs
+	 */
+	public synchronized int getQueuedJobCount() {
+		return lookupJobs.size() + queuedJobs.size();
+	}
+	
+	public synchronized int getRunningJobCount() {
+		return runningJobs.size();
+	}
+	
+	/**
+	 * Start any queued jobs whose devices are free, preempting running jobs for interactive jobs.
+	 */
+	private void schedule() {
+		Set<FileStore> reserved = new HashSet<FileStore>();	// devices needed by queued jobs ahead of the current one
+		for (Iterator<Job> iter = queuedJobs.iterator(); iter.hasNext();) {
+			Job job = iter.next();
+			boolean startable = true;
+			for (FileStore device : job.devices) {
+				if (reserved.contains(device) || getActiveJobCount(device, job.priority) >= maxJobsPerDevice) {
+					startable = false;
+					break;
+				}
+			}
+			if (startable) {
+				iter.remove();
+				if (job.priority == Priority.INTERACTIVE) {
+					preempt(job);
+				}
+				start(job);
+			} else {
+				reserved.addAll(job.devices);
+			}
+		}
+		updateQueuePositions();
+	}
+	
+	/**
+	 * Get the number of running jobs using a device that a job of the given priority has to wait for.
+	 * Interactive jobs only wait for other interactive jobs.
+	 */
+	private int getActiveJobCount(FileStore device, Priority priority) {
+		int count = 0;
+		for (Job job : runningJobs) {
+			if (job.devices.contains(device) && (priority != Priority.INTERACTIVE || job.priority == Priority.INTERACTIVE)) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	private void preempt(Job interactiveJob) {
+		for (Job job : runningJobs) {
+			if (job.priority != Priority.INTERACTIVE && !job.preempted && job.sharesDevice(interactiveJob)) {
+				job.preempted = true;
+				if (!job.copier.isPaused()) {
+					job.copier.pause();
+					job.pausedByScheduler = true;
+				}
+				fireJobStateChanged(job, JobState.PREEMPTED, 0);
+			}
+		}
+	}
+	
+	private void start(final Job job) {
+		runningJobs.add(job);
+		fireJobStateChanged(job, JobState.RUNNING, 0);
+		if (executor == null) {
+			executor = Executors.newCachedThreadPool();
+		}
+		executor.execute(() -> {
+			try {
+				job.copier.run();
+			} catch (Exception e) {
+				log.error("Error while running copy job", e);
+			} finally {
+				finished(job);
+			}
+		});
+	}
+	
+	private synchronized void finished(Job job) {
+		runningJobs.remove(job);
+		fireJobStateChanged(job, JobState.COMPLETE, 0);
+		for (Job preemptedJob : runningJobs) {
+			if (preemptedJob.preempted && !isPreempted(preemptedJob)) {
+				preemptedJob.preempted = false;
+				if (preemptedJob.pausedByScheduler) {
+					preemptedJob.pausedByScheduler = false;
+					preemptedJob.copier.resume();
+				}
+				fireJobStateChanged(preemptedJob, JobState.RUNNING, 0);
+			}
+		}
+		schedule();
+	}
+	
+	private boolean isPreempted(Job job) {
+		for (Job runningJob : runningJobs) {
+			if (runningJob.priority == Priority.INTERACTIVE && runningJob.sharesDevice(job)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private void updateQueuePositions() {
+		int position = 1;
+		for (Job job : queuedJobs) {
+			if (job.queuePosition != position) {
+				job.queuePosition = position;
+				fireJobStateChanged(job, JobState.QUEUED, position);
+			}
+			position++;
+		}
+	}
+	
+	private void fireJobStateChanged(final Job job, final JobState state, final int queuePosition) {
+		if (job.listener != null) {
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					job.listener.copyJobStateChanged(state, queuePosition);
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Add the file stores of the given paths.  Paths within another of the given paths are taken to be on
+	 * the same file store, so a file store is only looked up for each top-level path, and top-level paths
+	 * that share a parent directory are looked up by that directory.  Paths that do not exist yet are looked
+	 * up by their nearest existing parent.
+	 */
+	private static void addDevices(Set<FileStore> devices, Collection<File> files) {
+		if (files == null) {
+			return;
+		}
+		Set<Path> paths = new LinkedHashSet<Path>();
+		for (File file : files) {
+			if (file != null) {
+				paths.add(file.getAbsoluteFile().toPath().normalize());
+			}
+		}
+		List<Path> topPaths = new ArrayList<Path>();
+		Map<Path, Integer> childCounts = new HashMap<Path, Integer>();
+		for (Path path : paths) {
+			if (!hasAncestor(paths, path)) {
+				topPaths.add(path);
+				if (path.getParent() != null) {
+					childCounts.merge(path.getParent(), 1, Integer::sum);
+				}
+			}
+		}
+		Set<Path> lookupPaths = new LinkedHashSet<Path>();
+		for (Path path : topPaths) {
+			Path parent = path.getParent();
+			lookupPaths.add((parent != null && childCounts.get(parent) > 1)? parent : path);
+		}
+		Set<Path> resolvedPaths = new HashSet<Path>();
+		for (Path path : lookupPaths) {
+			while (path != null && !Files.exists(path)) {
+				path = path.getParent();
+			}
+			if (path != null && resolvedPaths.add(path)) {
+				try {
+					devices.add(Files.getFileStore(path));
+				} catch (IOException ioe) {
+					log.warn("Unable to determine file store of " + path, ioe);
+				}
+			}
+		}
+	}
+	
+	private static boolean hasAncestor(Set<Path> paths, Path path) {
+		for (Path parent = path.getParent(); parent != null; parent = parent.getParent()) {
+			if (paths.contains(parent)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
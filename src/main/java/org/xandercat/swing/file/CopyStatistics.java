@@ -0,0 +1,132 @@
+package org.xandercat.swing.file;
+
+import java.io.File;
+
+/**
+ * CopyStatistics is a sample of the progress of a FileCopier taken by a CopyProgressChannel, including 
+ * smoothed throughput and the estimated time remaining.
+ * 
+ * @author Scott C Arnold
+ */
+public class CopyStatistics {
+
+	private final long bytesCopied;
+	private final long filesProcessed;
+	private final long[] resultCounts;
+	private final long directoriesCreated;
+	private final File currentFile;
+	private final double bytesPerSecond;
+	private final double filesPerSecond;
+	private final long totalBytes;
+	private final long totalFiles;
+	private final long remainingMillis;
+	private final boolean complete;
+	
+	CopyStatistics(long bytesCopied, long filesProcessed, long[] resultCounts, long directoriesCreated, File currentFile, 
+			double bytesPerSecond, double filesPerSecond, long totalBytes, long totalFiles, long remainingMillis, boolean complete) {
+		this.bytesCopied = bytesCopied;
+		this.filesProcessed = filesProcessed;
+		this.resultCounts = resultCounts;
+		this.directoriesCreated = directoriesCreated;
+		this.currentFile = currentFile;
+		this.bytesPerSecond = bytesPerSecond;
+		this.filesPerSecond = filesPerSecond;
+		this.totalBytes = totalBytes;
+		this.totalFiles = totalFiles;
+		this.remainingMillis = remainingMillis;
+		this.complete = complete;
+	}
+
+	public long getBytesCopied() {
+		return bytesCopied;
+	}
+
+	/**
+	 * Get the number of files and directories processed, regardless of result.
+	 * 
+	 * @return					files and directories processed
+	 */
+	public long getFilesProcessed() {
+		return filesProcessed;
+	}
+	
+	/**
+	 * Get the number of files and directories processed with the given result.
+	 * 
+	 * @param result			copy result
+	 * 
+	 * @return					files and directories processed with the result
+	 */
+	public long getResultCount(FileCopier.CopyResult result) {
+		return resultCounts[result.ordinal()];
+	}
+
+	/**
+	 * Get the number of directories created.  Directories created are also counted in the COPIED result count.
+	 * 
+	 * @return					directories created
+	 */
+	public long getDirectoriesCreated() {
+		return directoriesCreated;
+	}
+
+	/**
+	 * Get the file most recently started, which will be one of the files currently being copied.
+	 * 
+	 * @return					current file, or null if no file has been started
+	 */
+	public File getCurrentFile() {
+		return currentFile;
+	}
+
+	/**
+	 * Get the smoothed number of bytes copied per second.
+	 * 
+	 * @return					bytes per second
+	 */
+	public double getBytesPerSecond() {
+		return bytesPerSecond;
+	}
+
+	/**
+	 * Get the smoothed number of files and directories processed per second.
+	 * 
+	 * @return					files per second
+	 */
+	public double getFilesPerSecond() {
+		return filesPerSecond;
+	}
+
+	/**
+	 * Get the total bytes to copy.
+	 * 
+	 * @return					total bytes, or 0 if not known
+	 */
+	public long getTotalBytes() {
+		return totalBytes;
+	}
+
+	/**
+	 * Get the total files and directories to process.  When scanning while copying, the total 
+	 * grows as the scan proceeds.
+	 * 
+	 * @return					total files, or 0 if not known
+	 */
+	public long getTotalFiles() {
+		return totalFiles;
+	}
+
+	/**
+	 * Get the estimated time remaining.  The estimate is based on bytes when the total bytes are
+	 * known, and otherwise on files.
+	 * 
+	 * @return					estimated milliseconds remaining, or -1 if it cannot be estimated
+	 */
+	public long getRemainingMillis() {
+		return remainingMillis;
+	}
+
+	public boolean isComplete() {
+		return complete;
+	}
+}
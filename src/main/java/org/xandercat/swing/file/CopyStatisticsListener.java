@@ -0,0 +1,12 @@
+package org.xandercat.swing.file;
+
+/**
+ * CopyStatisticsListener can be implemented by classes wishing to receive periodic samples of 
+ * the progress of a copy, rather than an event for every file and chunk copied.
+ * 
+ * @author Scott C Arnold
+ */
+public interface CopyStatisticsListener {
+
+	public void copyStatisticsSampled(CopyStatistics statistics);
+}
@@ -0,0 +1,177 @@
+package org.xandercat.swing.file;
+
+/**
+ * CopyThrottle limits the throughput of a FileCopier using token buckets for bytes and files, and
+ * allows copying to be paused and resumed.  Copy threads call the acquire methods after each chunk
+ * or file they process; a call blocks for as long as needed to keep the average rate within the limit,
+ * and for as long as the throttle is paused.  Limits can be changed at any time and take effect for
+ * threads already waiting.
+ *
+ * Each bucket holds up to one second of its rate, so short bursts up to that size are allowed after
+ * idle periods.  A chunk larger than the bucket is allowed to overdraw it, with the caller waiting until
+ * the overdraw has been repaid.
+ *
+ * @author Scott C Arnold
+ */
+public class CopyThrottle {
+
+	private static final long NANOS_PER_SECOND = 1000000000L;
+	private static final long MIN_CHUNK_SIZE = 64 * 1024;
+
+	private volatile long bytesPerSecond;
+	private volatile double filesPerSecond;
+	private volatile boolean paused;
+	private volatile boolean cancelled;
+	private double byteTokens;
+	private double fileTokens;
+	private long lastRefill = System.nanoTime();
+
+	/**
+	 * Set the maximum average bytes per second.
+	 *
+	 * @param bytesPerSecond		maximum bytes per second, or 0 for no limit
+	 */
+	public synchronized void setBytesPerSecond(long bytesPerSecond) {
+		refill();
+		this.bytesPerSecond = Math.max(0, bytesPerSecond);
+		this.byteTokens = Math.min(byteTokens, bytesPerSecond);
+		notifyAll();
+	}
+
+	public long getBytesPerSecond() {
+		return bytesPerSecond;
+	}
+
+	/**
+	 * Set the maximum average files per second.
+	 *
+	 * @param filesPerSecond		maximum files per second, or 0 for no limit
+	 */
+	public synchronized void setFilesPerSecond(double filesPerSecond) {
+		refill();
+		this.filesPerSecond = Math.max(0, filesPerSecond);
+		this.fileTokens = Math.min(fileTokens, Math.max(1, filesPerSecond));
+		notifyAll();
+	}
+
+	public double getFilesPerSecond() {
+		return filesPerSecond;
+	}
+
+	/**
+	 * Pause copying.  Copy threads block at their next chunk or file until resumed.
+	 */
+	public synchronized void pause() {
+		this.paused = true;
+	}
+
+	/**
+	 * Resume copying after a pause.
+	 */
+	public synchronized void resume() {
+		this.paused = false;
+		notifyAll();
+	}
+
+	public boolean isPaused() {
+		return paused;
+	}
+
+	/**
+	 * Release all waiting threads and stop throttling; used when the copy is cancelled.
+	 */
+	public synchronized void cancel() {
+		this.cancelled = true;
+		notifyAll();
+	}
+
+	/**
+	 * Get the size of chunk to copy at a time.  When a byte limit is set, chunks are kept small
+	 * enough that waits between them stay short and throughput stays smooth.
+	 *
+	 * @param maxChunkSize			largest chunk size wanted
+	 * @return						chunk size to use
+	 */
+	public long getChunkSize(long maxChunkSize) {
+		long bytesPerSecond = this.bytesPerSecond;
+		if (bytesPerSecond <= 0) {
+			return maxChunkSize;
+		}
+		return Math.min(maxChunkSize, Math.max(MIN_CHUNK_SIZE, bytesPerSecond / 8));
+	}
+
+	/**
+	 * Account for the given number of bytes copied, blocking while paused or until the byte rate
+	 * is within the limit.
+	 *
+	 * @param bytes					bytes copied
+	 * @throws InterruptedException
+	 */
+	public void acquireBytes(long bytes) throws InterruptedException {
+		if (cancelled || (!paused && bytesPerSecond <= 0)) {
+			return;
+		}
+		synchronized(this) {
+			awaitResumed();
+			if (bytesPerSecond <= 0) {
+				return;
+			}
+			refill();
+			byteTokens -= bytes;
+			while (byteTokens < 0 && bytesPerSecond > 0 && !cancelled) {
+				wait(Math.max(1, (long) (-byteTokens * 1000 / bytesPerSecond)));
+				refill();
+				awaitResumed();
+			}
+		}
+	}
+
+	/**
+	 * Account for a file about to be processed, blocking while paused or until the file rate is
+	 * within the limit.
+	 *
+	 * @throws InterruptedException
+	 */
+	public void acquireFile() throws InterruptedException {
+		if (cancelled || (!paused && filesPerSecond <= 0)) {
+			return;
+		}
+		synchronized(this) {
+			awaitResumed();
+			if (filesPerSecond <= 0) {
+				return;
+			}
+			refill();
+			fileTokens -= 1;
+			while (fileTokens < 0 && filesPerSecond > 0 && !cancelled) {
+				wait(Math.max(1, (long) (-fileTokens * 1000 / filesPerSecond)));
+				refill();
+				awaitResumed();
+			}
+		}
+	}
+
+	private void awaitResumed() throws InterruptedException {
+		if (paused && !cancelled) {
+			while (paused && !cancelled) {
+				wait();
+			}
+			// time spent paused does not earn a burst allowance
+			refill();
+			byteTokens = Math.min(byteTokens, 0);
+			fileTokens = Math.min(fileTokens, 0);
+		}
+	}
+
+	private void refill() {
+		long now = System.nanoTime();
+		double elapsedSeconds = (double) (now - lastRefill) / NANOS_PER_SECOND;
+		lastRefill = now;
+		if (bytesPerSecond > 0) {
+			byteTokens = Math.min(bytesPerSecond, byteTokens + elapsedSeconds * bytesPerSecond);
+		}
+		if (filesPerSecond > 0) {
+			fileTokens = Math.min(Math.max(1, filesPerSecond), fileTokens + elapsedSeconds * filesPerSecond);
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package org.xandercat.swing.file;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * DirectIo provides access to direct I/O, which reads and writes files without going through the
+ * operating system page cache.  Direct I/O requires Java 10 or later and a file system that supports 
+ * it; the classes and methods it needs are looked up reflectively so that this class can be used on
+ * earlier versions of Java, where direct I/O is reported as unavailable.
+ * 
+ * @author Scott C Arnold
+ */
+class DirectIo {
+
+	private static final Logger log = LogManager.getLogger(DirectIo.class);
+	private static final int DEFAULT_BLOCK_SIZE = 4096;
+	
+	private static final OpenOption DIRECT = lookupDirect();
+	private static final Method ALIGNED_SLICE = lookupMethod(ByteBuffer.class, "alignedSlice", int.class);
+	private static final Method GET_BLOCK_SIZE = lookupMethod(FileStore.class, "getBlockSize");
+	
+	private DirectIo() {
+	}
+	
+	private static OpenOption lookupDirect() {
+		try {
+			Class<?> optionClass = Class.forName("com.sun.nio.file.ExtendedOpenOption");
+			return (OpenOption) optionClass.getField("DIRECT").get(null);
+		} catch (ReflectiveOperationException roe) {
+			log.debug("Direct I/O is not available");
+			return null;
+		}
+	}
+	
+	private static Method lookupMethod(Class<?> type, String name, Class<?>... parameterTypes) {
+		try {
+			return type.getMethod(name, parameterTypes);
+		} catch (NoSuchMethodException nsme) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Get the open option for direct I/O.
+	 * 
+	 * @return					direct I/O open option, or null if direct I/O is not available
+	 */
+	static OpenOption getOpenOption() {
+		return (ALIGNED_SLICE == null)? null : DIRECT;
+	}
+	
+	/**
+	 * Get the block size that reads and writes of the given file must be aligned to.
+	 * 
+	 * @param path				file
+	 * 
+	 * @return					block size in bytes
+	 */
+	static int getBlockSize(Path path) {
+		if (GET_BLOCK_SIZE != null) {
+			try {
+				FileStore fileStore = Files.getFileStore(path);
+				return ((Long) GET_BLOCK_SIZE.invoke(fileStore)).intValue();
+			} catch (IOException | ReflectiveOperationException | RuntimeException e) {
+				log.debug("Unable to determine block size of " + path + "; using default", e);
+			}
+		}
+		return DEFAULT_BLOCK_SIZE;
+	}
+	
+	/**
+	 * Allocate a direct buffer whose address is aligned to the given alignment.
+	 * 
+	 * @param capacity			buffer capacity
+	 * @param alignment			alignment in bytes, a power of two
+	 * 
+	 * @return					aligned buffer
+	 */
+	static ByteBuffer allocateAligned(int capacity, int alignment) {
+		try {
+			ByteBuffer buffer = (ByteBuffer) ALIGNED_SLICE.invoke(ByteBuffer.allocateDirect(capacity + alignment), alignment);
+			buffer.limit(capacity);
+			return buffer.slice();
+		} catch (ReflectiveOperationException roe) {
+			throw new IllegalStateException("Aligned buffers are not available", roe);
+		}
+	}
+}
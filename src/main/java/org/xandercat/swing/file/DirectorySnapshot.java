@@ -0,0 +1,123 @@
+package org.xandercat.swing.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * DirectorySnapshot is an in-memory listing of the entries of a single directory along with their
+ * type, size, and last modified time.  The directory is listed once, the first time the snapshot is
+ * used; on platforms where the directory listing itself supplies file attributes, no further file
+ * system calls are needed to answer questions about the entries.
+ *
+ * Entries are removed from the snapshot as they are claimed, so once all expected entries have been
+ * claimed, the entries remaining are those that were not expected.  A snapshot is not updated if the
+ * directory changes after it has been listed.
+ *
+ * @author Scott C Arnold
+ */
+public class DirectorySnapshot {
+
+	private static final Logger log = LogManager.getLogger(DirectorySnapshot.class);
+
+	public static class Entry {
+		private boolean directory;
+		private long size;
+		private long lastModified;
+		private Entry(BasicFileAttributes attributes) {
+			this.directory = attributes.isDirectory();
+			this.size = attributes.size();
+			this.lastModified = attributes.lastModifiedTime().toMillis();
+		}
+		public boolean isDirectory() {
+			return directory;
+		}
+		public long getSize() {
+			return size;
+		}
+		public long getLastModified() {
+			return lastModified;
+		}
+	}
+
+	private File directory;
+	private Map<String, Entry> entries;
+
+	/**
+	 * Construct a new snapshot of the given directory.  The directory is not listed until the snapshot
+	 * is first used.
+	 *
+	 * @param directory			directory to take snapshot of
+	 */
+	public DirectorySnapshot(File directory) {
+		this.directory = directory;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	private void load() {
+		final Map<String, Entry> entries = new HashMap<String, Entry>();
+		try {
+			Files.walkFileTree(directory.toPath(), EnumSet.of(FileVisitOption.FOLLOW_LINKS), 1, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+					entries.put(file.getFileName().toString(), new Entry(attributes));
+					return FileVisitResult.CONTINUE;
+				}
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException ioe) {
+					// an entry that cannot be read is left out; it will be examined directly if needed
+					if (!(ioe instanceof NoSuchFileException)) {
+						log.warn("Unable to read attributes of " + file + ": " + ioe.getMessage());
+					}
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException ioe) {
+			log.warn("Unable to list directory " + directory.getAbsolutePath() + ": " + ioe.getMessage());
+		}
+		this.entries = entries;
+	}
+
+	/**
+	 * Remove the entry of the given name from the snapshot and return it.
+	 *
+	 * @param name				file name of the entry
+	 *
+	 * @return					the entry, or null if the directory had no such entry or it was already removed
+	 */
+	public synchronized Entry remove(String name) {
+		if (entries == null) {
+			load();
+		}
+		return entries.remove(name);
+	}
+
+	/**
+	 * Get the names of the entries that have not been removed from the snapshot.
+	 *
+	 * @return					names of the remaining entries
+	 */
+	public synchronized List<String> getRemainingNames() {
+		if (entries == null) {
+			load();
+		}
+		return new ArrayList<String>(entries.keySet());
+	}
+}
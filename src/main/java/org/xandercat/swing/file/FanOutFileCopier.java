@@ -0,0 +1,220 @@
+package org.xandercat.swing.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * FanOutFileCopier copies a list of files to several destinations at once, reading each source file 
+ * only once and writing each chunk read to every destination that needs the file.  
+ * 
+ * Each destination has its own FileCopier, which keeps the skip, overwrite, and error results for that
+ * destination and fires events to its own listeners.  Listeners should be added to, and files in the 
+ * overwrite and error queues resolved through, the file copier for each destination.  Directories are 
+ * created by each file copier as usual.  Copy modes that change how individual files are written, such
+ * as range copy, delta copy, verification, or the small file fast path, are not applied to files written
+ * by the fan-out copy, and the throttle of each file copier is not applied.
+ * 
+ * The single read is only shared by file copiers using NioFileCopyBackend outside of test mode.  Any
+ * other file copier, such as one with a SimulatedFileCopyBackend, copies each file on its own through
+ * its backend, and the source files are not examined on disk unless a file copier uses native I/O.
+ * 
+ * @author Scott C Arnold
+ */
+public class FanOutFileCopier {
+
+	private static final Logger log = LogManager.getLogger(FanOutFileCopier.class);
+	
+	private List<File> files;
+	private List<FileCopier> fileCopiers = new ArrayList<FileCopier>();
+	private int bufferSize = (int) FileCopier.DEFAULT_CHANNEL_BUFFER_SIZE;
+	private volatile boolean cancelled;
+	
+	/**
+	 * Construct a new fan-out copier to copy the given files from the given source directory
+	 * to each of the given destination directories.
+	 * 
+	 * @param files				files to copy
+	 * @param destinations		directories to copy files to
+	 * @param source			directory to copy files from
+	 */
+	public FanOutFileCopier(List<File> files, List<File> destinations, File source) {
+		if (destinations.isEmpty()) {
+			throw new IllegalArgumentException("At least one destination must be specified.");
+		}
+		this.files = files;
+		for (File destination : destinations) {
+			fileCopiers.add(new FileCopier(files, destination, source));
+		}
+	}
+	
+	/**
+	 * Construct a new fan-out copier to copy the given files to the destinations produced by each 
+	 * of the given path generators.
+	 * 
+	 * @param files				files to copy
+	 * @param pathGenerators	path generator for each destination
+	 */
+	public FanOutFileCopier(List<File> files, List<FileCopierPathGenerator> pathGenerators) {
+		if (pathGenerators.isEmpty()) {
+			throw new IllegalArgumentException("At least one path generator must be specified.");
+		}
+		this.files = files;
+		for (FileCopierPathGenerator pathGenerator : pathGenerators) {
+			fileCopiers.add(new FileCopier(files, pathGenerator));
+		}
+	}
+	
+	/**
+	 * Get the file copiers for each destination, in the order the destinations were given.
+	 * 
+	 * @return					file copiers
+	 */
+	public List<FileCopier> getFileCopiers() {
+		return Collections.unmodifiableList(fileCopiers);
+	}
+	
+	public FileCopier getFileCopier(int destinationIndex) {
+		return fileCopiers.get(destinationIndex);
+	}
+	
+	/**
+	 * Set the size of the buffer each chunk is read into.
+	 * 
+	 * @param bufferSize		buffer size in bytes
+	 */
+	public void setBufferSize(int bufferSize) {
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("Buffer size must be > 0");
+		}
+		this.bufferSize = bufferSize;
+	}
+	
+	/**
+	 * Cancel the current copy operation for all destinations.
+	 */
+	public void cancel() {
+		this.cancelled = true;
+		for (FileCopier fileCopier : fileCopiers) {
+			fileCopier.cancel();
+		}
+	}
+	
+	/**
+	 * Copy the files to every destination.
+	 */
+	public void copy() {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+		boolean nativeIo = false;
+		for (FileCopier fileCopier : fileCopiers) {
+			nativeIo |= fileCopier.isNativeIo();
+		}
+		for (File file : files) {
+			if (cancelled) {
+				break;
+			}
+			if (!nativeIo || file.isDirectory()) {
+				for (FileCopier fileCopier : fileCopiers) {
+					fileCopier.copyFanOutFile(file);
+				}
+			} else {
+				copyFile(file, buffer);
+			}
+		}
+		for (FileCopier fileCopier : fileCopiers) {
+			fileCopier.completeFanOut(cancelled);
+		}
+	}
+	
+	/**
+	 * Copy a regular file to every destination that needs it from a single read of the source.  A write
+	 * failure for one destination places the file in the error queue for that destination only; a read 
+	 * failure places it in the error queue for every destination being written.
+	 */
+	private void copyFile(File file, ByteBuffer buffer) {
+		List<FileCopier> targets = new ArrayList<FileCopier>();
+		List<File> destFiles = new ArrayList<File>();
+		for (FileCopier fileCopier : fileCopiers) {
+			if (!fileCopier.isNativeIo()) {
+				fileCopier.copyFanOutFile(file);
+				continue;
+			}
+			File destFile = fileCopier.startFanOutFile(file);
+			if (destFile != null) {
+				targets.add(fileCopier);
+				destFiles.add(destFile);
+			}
+		}
+		if (targets.isEmpty()) {
+			return;
+		}
+		int count = targets.size();
+		FileChannel[] outs = new FileChannel[count];
+		Exception[] failures = new Exception[count];
+		try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			int active = 0;
+			for (int i = 0; i < count; i++) {
+				try {
+					outs[i] = FileChannel.open(destFiles.get(i).toPath(), 
+							StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+					active++;
+				} catch (IOException ioe) {
+					failures[i] = ioe;
+				}
+			}
+			long size = in.size();
+			long pos = 0;
+			while (pos < size && active > 0 && !cancelled) {
+				buffer.clear();
+				int read = in.read(buffer, pos);
+				if (read < 0) {
+					throw new IOException("Source file ended unexpectedly at position " + pos);
+				}
+				buffer.flip();
+				pos += read;
+				for (int i = 0; i < count; i++) {
+					if (failures[i] != null) {
+						continue;
+					}
+					ByteBuffer out = buffer.duplicate();
+					try {
+						while (out.hasRemaining()) {
+							outs[i].write(out);
+						}
+					} catch (IOException ioe) {
+						failures[i] = ioe;
+						active--;
+						continue;
+					}
+					targets.get(i).fanOutProgress(file, destFiles.get(i), pos, pos >= size);
+				}
+			}
+		} catch (IOException ioe) {
+			log.info("Unable to read file " + file.getAbsolutePath() + " for fan-out copy", ioe);
+			for (int i = 0; i < count; i++) {
+				if (failures[i] == null) {
+					failures[i] = ioe;
+				}
+			}
+		} finally {
+			for (FileChannel out : outs) {
+				FileCopier.close(out);
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			if (cancelled) {
+				destFiles.get(i).delete();
+			} else {
+				targets.get(i).completeFanOutFile(file, destFiles.get(i), failures[i]);
+			}
+		}
+	}
+}
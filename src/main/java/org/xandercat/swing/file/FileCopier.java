@@ -5,10 +5,47 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileStore;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -21,16 +58,133 @@ import org.apache.logging.log4j.Logger;
  * exist as separate files in the file copy list.  Also, directories cannot be copied unless a source directory or
  * path generator is specified.
  * 
+ * By default files are copied one at a time on the thread that calls copy().  When parallel mode is
+ * enabled, independent files are copied concurrently by a pool of worker threads.  Directories are 
+ * still created on the calling thread in list order, so a directory always exists before any of its 
+ * children are handed to a worker.  Listener events are never fired concurrently, and all events for 
+ * any one file are fired in order from the thread copying that file.
+ * 
+ * When streaming scan is enabled, any directories in the file copy list are fully recursed by a 
+ * FileTreeScanner as the copy proceeds, so only the root files and directories to copy need to 
+ * be listed.  Copying begins as soon as the first entries are scanned.
+ * 
+ * When a FileCopyJournal is set, completed files and the durable offsets of large files being 
+ * copied are recorded in the journal.  Restarting a copy with the same journal skips completed files 
+ * and resumes partially copied files, and a cancelled copy keeps its partial destination file so 
+ * that it can be resumed.
+ * 
+ * When verification is enabled, a digest of each file is computed from the bytes as they are copied.  
+ * The digest is compared with any expected digest for the file and, if rereading of the destination 
+ * is requested, with a digest of the destination file read back after the copy.  A mismatch deletes 
+ * the destination and places the file in the copy error queue with a result of VERIFY_FAILED.  
+ * Verified copies are not split into ranges.
+ * 
+ * When range copy is enabled, files at or above the range copy threshold are split into ranges 
+ * of the channel buffer size that are copied concurrently using positional reads and writes.
+ * 
+ * When the small file fast path is enabled, regular files no larger than the small file threshold
+ * are copied by reading them whole into a pooled buffer and writing them in one call, using file 
+ * attributes read once per file and destination directories already known to exist rather than 
+ * checking them again.  Listener events for these files are fired together once the file is done.
+ * The fast path is not used when verifying.
+ * 
+ * Throughput can be limited in bytes and files per second, and copying can be paused and resumed,
+ * while a copy is running.  Limits and pauses are applied between chunks of each file, so a large
+ * file does not have to finish before they take effect.
+ * 
+ * Files copied between different file stores are copied through a pipeline by default: the copying
+ * thread reads chunks into a small ring of pooled direct buffers while a writer thread writes them, so
+ * that the source and destination devices are kept busy at the same time.  Files copied within a single
+ * file store are transferred directly between channels.
+ * 
+ * When cache bypass is enabled, files are copied with direct I/O where the JDK and file system support
+ * it, so that bulk copies do not evict other data from the operating system page cache.  Where direct
+ * I/O is not available, files are copied in large chunks with each chunk forced to disk as it is written,
+ * which keeps a bulk copy from filling the page cache with dirty pages.
+ * 
+ * When sparse copy is enabled, blocks of a file that are entirely zero are not written, leaving holes in
+ * the destination so that sparse files such as disk images stay sparse.  When preallocation is enabled,
+ * the space needed for each file is checked before it is copied and the destination is set to its final
+ * length up front, so that a copy that will not fit fails at the start rather than partway through.
+ * 
+ * When planning is enabled, all files are examined once before any are copied.  The space needed on each
+ * destination file store is checked against the space available, and a copy that would not fit is not 
+ * started.  The destination directories are created together, and the files are ordered by directory, by
+ * size, or left in list order.  The CopyPlan is sent to any CopyPlanListener before copying starts.
+ * 
+ * When autotuning is enabled, the channel buffer size and the number of files copied at once in parallel
+ * mode are adjusted by a CopyAutotuner while copying, and the values found are remembered for the 
+ * destination file store for later copies.
+ * 
+ * By default copied files are left for the operating system to write to disk, so files reported as 
+ * copied may be lost or truncated by a crash or power loss.  A durability mode can be set to force
+ * copied files and their directories to disk when the copy completes, in batches as the copy proceeds,
+ * or after each file.  Forcing in batches keeps most of the throughput of not forcing at all, while
+ * still guaranteeing that every file recorded as completed in the journal is on disk.
+ * 
+ * When delta copy is enabled, large files being overwritten are updated in place by writing only the 
+ * blocks that differ from the existing destination file.  This greatly reduces the amount written when 
+ * large files such as disk images and databases change only slightly between copies.
+ * 
+ * When sync mode is enabled, each destination directory is listed once into a DirectorySnapshot and 
+ * the decision to skip a file or place it in the overwrite queue is made from the snapshot rather than by 
+ * examining the destination file.  Files not found in the snapshot are handled as usual.  Sync mode can 
+ * also delete destination entries that no longer exist in the source once the copy completes, making 
+ * each directory copied a mirror of its source; this requires a source directory to be specified.
+ * 
+ * When link mode is enabled, each file is compared with the same file in a previous backup, and files
+ * whose size and last modified time (and optionally digest) are unchanged are hard linked to the file in
+ * the previous backup instead of being copied.  Linked files are reported with a result of LINKED.  If
+ * a link cannot be created, such as when the previous backup is on a different file system, the file 
+ * is copied as usual.
+ * 
+ * Files copied, skipped, and linked are recorded to a FileCopyResultSink, which by default keeps them in
+ * memory; a FileCopyResultLog can be used instead to keep memory use bounded for very large copies.  Files
+ * needing resolution are kept in queues indexed by file, so each file can be resolved in constant time.
+ * 
  * @author Scott C Arnold
  */
 public class FileCopier {
 
 	public static final long DEFAULT_CHANNEL_BUFFER_SIZE = 1024 * 1024 * 4;		// 4MB
+	public static final int DEFAULT_PARALLEL_THREADS = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+	public static final long DEFAULT_RANGE_COPY_THRESHOLD = 1024L * 1024 * 1024;	// 1GB
+	public static final int DEFAULT_SCAN_QUEUE_CAPACITY = 10000;
+	public static final long DEFAULT_JOURNAL_CHECKPOINT_INTERVAL = 1024L * 1024 * 256;	// 256MB
+	public static final int DEFAULT_SMALL_FILE_THRESHOLD = 1024 * 64;	// 64KB
+	public static final int MAX_SMALL_FILE_THRESHOLD = 1024 * 1024 * 16;	// 16MB
+	public static final long DEFAULT_DELTA_COPY_THRESHOLD = 1024L * 1024 * 64;	// 64MB
+	public static final int DEFAULT_DELTA_BLOCK_SIZE = 1024 * 64;	// 64KB
+	public static final int DEFAULT_PIPELINE_RING_SIZE = 4;
+	public static final int DEFAULT_CACHE_BYPASS_CHUNK_SIZE = 1024 * 1024 * 16;	// 16MB
+	public static final int DEFAULT_SPARSE_BLOCK_SIZE = 1024 * 4;	// 4KB
+	public static final int DEFAULT_SYNC_BATCH_FILES = 1000;
+	public static final long DEFAULT_SYNC_BATCH_BYTES = 1024 * 1024 * 256;	// 256MB
+	
+	private static final int RANGE_COPY_BUFFER_SIZE = 1024 * 1024;		// 1MB
+	private static final int MAX_VERIFY_BUFFER_SIZE = 1024 * 1024 * 16;	// 16MB
+	private static final ByteBuffer PIPELINE_END = ByteBuffer.allocate(0);	// marks the end of the chunks of a pipelined copy
 	
 	private static final Logger log = LogManager.getLogger(FileCopier.class);
 			
 	public static enum CopyResult {
-		COPIED, SKIPPED, ALREADY_EXISTS, ERROR;
+		COPIED, SKIPPED, ALREADY_EXISTS, ERROR, VERIFY_FAILED, LINKED, RETRYING;
+	}
+	
+	public static enum VerifyMode {
+		NONE, DIGEST, REREAD_DESTINATION;
+	}
+	
+	public static enum PipelineMode {
+		NEVER, CROSS_DEVICE, ALWAYS;
+	}
+	
+	public static enum DurabilityMode {
+		NONE, JOB_BARRIER, GROUP_COMMIT, PER_FILE;
+	}
+	
+	public static enum CopyOrder {
+		LIST, DIRECTORY, LARGEST_FIRST, SMALLEST_FIRST;
 	}
 	
 	public static class FileCopyError {
@@ -49,19 +203,76 @@ public class FileCopier {
 	}
 	
 	private List<File> files;
-	private List<File> overwriteFiles;		// files that exist at destination already (prompt for overwrite needed)
-	private List<FileCopyError> errorFiles;	// files that could not be copied due to some error
-	private List<File> skippedFiles;		// skipped files (file with same name, length, and mod time exists at dest)
-	private List<File> copiedFiles;
+	private Set<File> overwriteFiles;		// files that exist at destination already (prompt for overwrite needed)
+	private Map<File, FileCopyError> errorFiles;	// files that could not be copied due to some error
+	private FileCopyResultSink resultSink;	// sink set by the user, or null for the default in-memory sink
+	private FileCopyBackend backend = new NioFileCopyBackend();
+	private CopyRetryPolicy retryPolicy;
+	private volatile boolean retriesDeferred;	// whether or not failed files are currently queued for retry
+	private DelayQueue<RetryEntry> retryQueue = new DelayQueue<RetryEntry>();
+	private Map<File, Integer> failedAttempts = new ConcurrentHashMap<File, Integer>();
+	private AtomicInteger pendingRetries = new AtomicInteger();	// retries queued or in progress
+	private FileCopyResultSink results;		// copied, skipped (file with same name, length, and mod time exists at dest), and linked files
+	private AtomicLongArray resultCounts;	// number of files recorded to the result sink for each result
 	private String sourcePath;
 	private String destinationPath;
 	private FileCopierPathGenerator pathGenerator;
 	private List<FileCopyListener> listeners;
 	private List<FileCopyProgressListener> progressListeners;
+	private List<FileScanListener> scanListeners;
+	private List<FileVerifyListener> verifyListeners;
+	private List<CopyPlanListener> planListeners;
+	private List<FileDurabilityListener> durabilityListeners;
 	private boolean testMode = false;
 	private long testModeSpeedFactor = 10000;
 	private volatile boolean cancelled = false;
-	private long channelBufferSize = DEFAULT_CHANNEL_BUFFER_SIZE;
+	private volatile long channelBufferSize = DEFAULT_CHANNEL_BUFFER_SIZE;
+	private volatile long tunedChunkSize;	// chunk size chosen by the autotuner while autotuning, otherwise 0
+	private int threadCount = 1;
+	private long rangeCopyThreshold = Long.MAX_VALUE;
+	private int rangeCopyThreadCount = 1;
+	private boolean streamingScan;
+	private int scanQueueCapacity = DEFAULT_SCAN_QUEUE_CAPACITY;
+	private FileCopyJournal journal;
+	private long journalCheckpointInterval = DEFAULT_JOURNAL_CHECKPOINT_INTERVAL;
+	private VerifyMode verifyMode = VerifyMode.NONE;
+	private FileDigest.Algorithm digestAlgorithm = FileDigest.Algorithm.CRC32C;
+	private Map<File, String> expectedDigests;
+	private int smallFileThreshold;			// 0 when small file fast path is disabled
+	private ThreadLocal<ByteBuffer> smallFileBuffers;
+	private Set<String> knownDirectories = ConcurrentHashMap.newKeySet();	// destination directories known to exist
+	private boolean syncMode;
+	private boolean deleteExtraneous;
+	private Map<String, DirectorySnapshot> destinationSnapshots = new ConcurrentHashMap<String, DirectorySnapshot>();
+	private Set<String> mirroredDirectories = ConcurrentHashMap.newKeySet();	// destination directories of source directories copied in sync mode
+	private List<File> deletedFiles;
+	private int deltaBlockSize;				// 0 when delta copy is disabled
+	private long deltaCopyThreshold;
+	private final AtomicLong deltaBytesWritten = new AtomicLong();
+	private final AtomicLong deltaBytesUnchanged = new AtomicLong();
+	private String linkBackupPath;			// previous backup to link unchanged files to; null when link mode is disabled
+	private String linkDestinationPath;		// destination path corresponding to the previous backup path
+	private boolean linkCompareDigests;
+	private PipelineMode pipelineMode = PipelineMode.CROSS_DEVICE;
+	private int pipelineRingSize = DEFAULT_PIPELINE_RING_SIZE;
+	private final Queue<ByteBuffer[]> pipelineRings = new ConcurrentLinkedQueue<ByteBuffer[]>();	// idle buffer rings for reuse
+	private final Map<String, FileStore> fileStores = new ConcurrentHashMap<String, FileStore>();	// directory path -> file store
+	private ExecutorService pipelineExecutor;
+	private int cacheBypassChunkSize;		// 0 when cache bypass is disabled
+	private volatile boolean directIoUnsupported;	// set once direct I/O has failed to open a file
+	private int sparseBlockSize;			// 0 when sparse copy is disabled
+	private boolean preallocate;
+	private CopyOrder copyOrder;			// null when planning is disabled
+	private DurabilityMode durabilityMode = DurabilityMode.NONE;
+	private FileSyncQueue syncQueue;		// null when durability mode is NONE
+	private long autotuneWindowMillis;		// 0 when autotuning is disabled
+	private CopyAutotuner autotuner;		// autotuner of the copy in progress
+	private ParallelLimit parallelLimit;	// limit on files copied at once when autotuning a parallel copy
+	private CopyPlan copyPlan;
+	private Map<File, PlannedFile> plannedAttributes = Collections.emptyMap();	// attributes of files examined by the copy plan of the copy running
+	private Set<String> plannedDirectories = ConcurrentHashMap.newKeySet();	// destination directories created by the copy plan and not yet reported
+	private final CopyThrottle throttle = new CopyThrottle();
+	private final Object listenerLock = new Object();
 	
 	/**
 	 * Close the given input stream.
@@ -212,44 +423,82 @@ public class FileCopier {
 	 * 
 	 * @param inFile		file to copy
 	 * @param outFile		where to copy file to
+	 * @param isDirectory	whether or not inFile is a directory
+	 * @param planned		whether or not inFile was examined by the copy plan, so it need not be checked for existence
 	 * @param overwrite		whether or not to overwrite if outFile already exists
 	 * @param makeDirectory	whether or not to make the parent directories if they do not already exist
-	 * @param progressListeners	any listeners wishing to be notifed of copy status
+	 * @param resumeOffset	offset to resume a partial copy from, or 0 to copy the whole file
+	 * @param throttled		whether or not the copy is subject to the throttle
 	 * @return whether or not copy was completed (copy will not be completed if cancelled)
 	 * @throws IOException
 	 */
-	private boolean copyFileInternal(File inFile, File outFile, boolean overwrite, boolean makeDirectory) throws IOException {
-		if (!inFile.exists()) {
-			throw new IOException("Source file does not exist.");
+	private boolean copyFileInternal(File inFile, File outFile, boolean isDirectory, boolean planned, boolean overwrite, boolean makeDirectory, long resumeOffset, boolean throttled) throws IOException {
+		if (!planned && !backend.exists(inFile)) {
+			throw new NoSuchFileException(inFile.getAbsolutePath(), null, "Source file does not exist.");
 		}
-		if (!overwrite && outFile.exists()) {
-			throw new IOException("Destination file already exists.");
+		if (!overwrite && backend.exists(outFile)) {
+			// not retryable; the destination was created by someone else after it was checked
+			throw new FileAlreadyExistsException(outFile.getAbsolutePath(), null, "Destination file already exists.");
 		}
 		if (makeDirectory) {
 			File outDir = outFile;
-			if (!inFile.isDirectory()) {
+			if (!isDirectory) {
 				int endIndex = outFile.getAbsolutePath().length() - outFile.getName().length();
 				outDir = new File(outFile.getAbsolutePath().substring(0, endIndex));
 			}
-			if (!outDir.exists()) {
-				if (!outDir.mkdirs()) {
+			if (!knownDirectories.contains(outDir.getPath()) && !backend.exists(outDir)) {
+				// another worker may create the same directory concurrently, so only fail if it still does not exist
+				if (!backend.mkdirs(outDir) && !backend.isDirectory(outDir)) {
 					throw new IOException("Unable to make directories for destination file.");
 				} 
 			}
 		}
-		if (outFile.isDirectory()) {
+		if (backend.isDirectory(outFile)) {
 			return true;
 		}
+		if (resumeOffset > 0 && backend.length(outFile) < resumeOffset) {
+			log.warn("Partial destination file is shorter than journal offset; copy will restart: " + outFile.getAbsolutePath());
+			resumeOffset = 0;
+		}
+		boolean nativeIo = isNativeIo();
+		if (nativeIo && overwrite && resumeOffset == 0) {
+			unlinkShared(outFile);
+		}
 		FileChannel in = null;
 		FileChannel out = null;
-		try(FileInputStream fin = new FileInputStream(inFile); FileOutputStream fout = new FileOutputStream(outFile)) {
-			in = fin.getChannel();
-			out = fout.getChannel();
+		boolean inPlace = false;
+		try {
+			in = backend.openInput(inFile);
 			long size = in.size();
-			long pos = 0;
-			while (pos < size && !cancelled) {
-				pos += in.transferTo(pos, channelBufferSize, out);
-				fireCopyProgress(inFile, outFile, pos, pos >= size);
+			if (nativeIo && deltaBlockSize > 0 && overwrite && resumeOffset == 0 && size >= deltaCopyThreshold && outFile.isFile()) {
+				inPlace = true;
+				out = new RandomAccessFile(outFile, "rw").getChannel();
+				FileDigest digest = isVerified(inFile)? new FileDigest(digestAlgorithm) : null;
+				copyDelta(inFile, outFile, in, out, size, digest, throttled);
+				if (digest != null && !cancelled) {
+					verify(inFile, outFile, digest);
+				}
+				return true;
+			}
+			if (nativeIo && cacheBypassChunkSize > 0 && !isVerified(inFile) && resumeOffset == 0 && copyDirect(inFile, outFile, size, throttled)) {
+				return true;
+			}
+			out = backend.openOutput(outFile, resumeOffset);
+			if (nativeIo && preallocate && size > 0) {
+				preallocate(outFile, out, size);
+			}
+			if (isVerified(inFile)) {
+				FileDigest digest = new FileDigest(digestAlgorithm);
+				copySequential(inFile, outFile, in, out, resumeOffset, size, digest, throttled);
+				if (!cancelled) {
+					verify(inFile, outFile, digest);
+				}
+			} else if (rangeCopyThreadCount > 1 && size - resumeOffset >= rangeCopyThreshold) {
+				copyRanges(inFile, outFile, in, out, resumeOffset, size, throttled);
+			} else if (sparseBlockSize == 0 && isPipelined(inFile, outFile, size - resumeOffset)) {
+				copyPipelined(inFile, outFile, in, out, resumeOffset, size, throttled);
+			} else {
+				copySequential(inFile, outFile, in, out, resumeOffset, size, null, throttled);
 			}
 		} catch (IOException ioe) {
 			throw ioe;
@@ -257,7 +506,10 @@ public class FileCopier {
 			close(in);
 			close(out);
 			if (cancelled) { // don't care if it completed copy or not; cancel happened before finish so delete it regardless
-				outFile.delete();
+				// a file updated in place still holds the previous contents it was not yet compared against, so keep it
+				if (journal == null && !inPlace) {
+					backend.delete(outFile);
+				}
 				return false;
 			}
 		}
@@ -265,295 +517,2642 @@ public class FileCopier {
 	}
 	
 	/**
-	 * Construct a new file copier to copy the given files from the given source directory
-	 * to the given destination directory.  If source is null paths will not be preserved
-	 * and directories cannot be specified.  Destination cannot be null.
-	 * 
-	 * @param files				files to copy
-	 * @param destination		directory to copy files to
-	 * @param source			directory to copy files from
-	 */
-	public FileCopier(List<File> files, File destination, File source) {
-		initialize(files, destination, source);
-	}
-	
-	/**
-	 * Construct a new file copier to copy the given files using the given path generator.
+	 * Copy a single file sequentially.  Without a digest, bytes are transferred directly between the
+	 * channels; with a digest, bytes are read into a buffer and added to the digest before being written.
+	 * When resuming with a digest, the bytes before the resume offset are read to bring the digest up to date.
 	 * 
-	 * @param files				files to copy
-	 * @param pathGenerator		path generator
+	 * @param inFile		file being copied
+	 * @param outFile		where file is being copied to
+	 * @param in			channel to read from
+	 * @param out			channel to write to, positioned at the resume offset
+	 * @param resumeOffset	offset to start copying from
+	 * @param size			size of the file being copied
+	 * @param digest		digest to compute while copying, or null to not compute a digest
+	 * @param throttled		whether or not the copy is subject to the throttle
+	 * @throws IOException
 	 */
-	public FileCopier(List<File> files, FileCopierPathGenerator pathGenerator) {
-		this.pathGenerator = pathGenerator;
-		initialize(files, null, null);
-	}
-	
-	private void initialize(List<File> files, File destination, File source) {
-		if (pathGenerator == null) {
-			if (destination == null || (destination.exists() && !destination.isDirectory())) {
-				String destPath = (destination == null)? "null" : destination.getAbsolutePath();
-				throw new IllegalArgumentException("Destination is not a valid directory: " + destPath);
+	private void copySequential(File inFile, File outFile, FileChannel in, FileChannel out, long resumeOffset, long size, FileDigest digest, boolean throttled) throws IOException {
+		boolean sparse = sparseBlockSize > 0;
+		ByteBuffer buffer = null;
+		if (digest != null || sparse) {
+			buffer = ByteBuffer.allocate((int) Math.min(getChunkSize(), MAX_VERIFY_BUFFER_SIZE));
+			for (long pos = 0; digest != null && pos < resumeOffset; ) {
+				pos += read(in, buffer, pos, resumeOffset, digest);
 			}
-			if (source != null && (!source.exists() || !source.isDirectory())) {
-				throw new IllegalArgumentException("Source is not a valid directory.");
+		}
+		long pos = resumeOffset;
+		long checkpoint = pos;
+		while (pos < size && !cancelled) {
+			// chunk size is read for each chunk, as autotuning may change it while a file is copied
+			long bufferSize = getChunkSize();
+			if (cacheBypassChunkSize > 0 && buffer == null) {
+				bufferSize = Math.max(bufferSize, cacheBypassChunkSize);
 			}
-			if (source != null) {
-				sourcePath = source.getAbsolutePath();
+			long chunkSize = throttled? throttle.getChunkSize(bufferSize) : bufferSize;
+			long transferred;
+			if (buffer == null) {
+				transferred = backend.transfer(in, pos, chunkSize, out);
+			} else {
+				transferred = read(in, buffer, pos, Math.min(size, pos + chunkSize), digest);
+				if (sparse) {
+					writeSparse(out, buffer, (int) transferred, pos);
+				} else {
+					buffer.flip();
+					while (buffer.hasRemaining()) {
+						out.write(buffer);
+					}
+				}
 			}
-			for (File file : files) {
-				if (source != null && !file.getAbsolutePath().startsWith(sourcePath)) {
-					throw new IllegalArgumentException("If a source directory is specified, all files must be contained within the source directory.");
-				} 
-				if (source == null && file.isDirectory()) {
-					throw new IllegalArgumentException("Directories cannot be copied unless a source directory is specified.");
+			pos += transferred;
+			if (cacheBypassChunkSize > 0) {
+				out.force(false);	// write back each chunk so that dirty pages do not accumulate in the page cache
+			}
+			if (throttled) {
+				throttleBytes(transferred);
+			}
+			fireCopyProgress(inFile, outFile, pos, pos >= size);
+			if (journal != null && pos - checkpoint >= journalCheckpointInterval && pos < size) {
+				if (sparse) {
+					extend(out, pos);
 				}
+				checkpoint(inFile, out, pos);
+				checkpoint = pos;
 			}
-			this.destinationPath = destination.getAbsolutePath();
 		}
-		this.files = files;
-		this.overwriteFiles = new ArrayList<File>();
-		this.skippedFiles = new ArrayList<File>();
-		this.errorFiles = new ArrayList<FileCopyError>();
-		this.copiedFiles = new ArrayList<File>();
+		if (sparse) {
+			extend(out, pos);	// a hole at the end of the file is not written
+		}
+		if (cancelled && journal != null && pos > checkpoint && pos < size) {
+			checkpoint(inFile, out, pos);
+		}
 	}
 	
 	/**
-	 * Enable test mode, which causes file copier to simulate copying files without actually 
-	 * copying them.  Primarily used for testing.
+	 * Write the given number of bytes from the start of a buffer to the destination at the given position,
+	 * skipping sparse blocks that are entirely zero so that they are left as holes in the destination.
+	 * 
+	 * @param out			channel to write to
+	 * @param buffer		buffer of bytes read
+	 * @param length		number of bytes in the buffer
+	 * @param position		position in the destination of the first byte in the buffer
+	 * @throws IOException
 	 */
-	public void enableTestMode() {
-		this.testMode = true;
+	private void writeSparse(FileChannel out, ByteBuffer buffer, int length, long position) throws IOException {
+		int runStart = -1;
+		for (int block = 0; block < length; block += sparseBlockSize) {
+			int blockEnd = Math.min(length, block + sparseBlockSize);
+			buffer.limit(blockEnd);
+			boolean zero = isZero(buffer, block, blockEnd);
+			if (!zero && runStart < 0) {
+				runStart = block;
+			} else if (zero && runStart >= 0) {
+				writeRun(out, buffer, runStart, block, position);
+				runStart = -1;
+			}
+		}
+		if (runStart >= 0) {
+			writeRun(out, buffer, runStart, length, position);
+		}
 	}
 	
-	public void enableTestMode(long speedFactor) {
-		if (speedFactor < 1) {
-			throw new IllegalArgumentException("Speed factor must be > 0");
+	private static boolean isZero(ByteBuffer buffer, int start, int end) {
+		int i = start;
+		for (; i + 8 <= end; i += 8) {
+			if (buffer.getLong(i) != 0) {
+				return false;
+			}
 		}
-		this.testMode = true;
-		this.testModeSpeedFactor = speedFactor;
+		for (; i < end; i++) {
+			if (buffer.get(i) != 0) {
+				return false;
+			}
+		}
+		return true;
 	}
 	
 	/**
-	 * Add a FileCopyListener to be notified of files being copied.
-	 * 
-	 * @param listener				listener to add
+	 * Extend the destination to the given length if it is shorter, leaving a hole.
 	 */
-	public void addFileCopyListener(FileCopyListener listener) {
-		if (listeners == null) {
-			listeners = new ArrayList<FileCopyListener>();
+	private static void extend(FileChannel out, long length) throws IOException {
+		if (length > 0 && out.size() < length) {
+			out.write(ByteBuffer.allocate(1), length - 1);
 		}
-		listeners.add(listener);
 	}
 	
-	public void removeFileCopyListener(FileCopyListener listener) {
-		if (listeners != null) {
-			listeners.remove(listener);
+	/**
+	 * Prepare a destination file to be written to its full size.  This is only an up-front check of the 
+	 * usable space on the file store, so that a copy that cannot fit fails before it starts, followed by 
+	 * setting the file to its final length.  The length is set by writing the last byte, which leaves a hole;
+	 * no blocks are reserved, so this does not reduce fragmentation or guarantee the space remains free.
+	 * 
+	 * @param outFile		destination file
+	 * @param out			channel to write to
+	 * @param size			final size of the destination
+	 * @throws IOException if there is not enough usable space for the file
+	 */
+	private void preallocate(File outFile, FileChannel out, long size) throws IOException {
+		long usableSpace = getFileStore(outFile).getUsableSpace();
+		if (usableSpace < size - out.size()) {
+			throw new IOException("Insufficient space to copy file: " + size + " bytes needed, " + usableSpace + " bytes available.");
 		}
+		extend(out, size);
 	}
 	
 	/**
-	 * Add a FileCopyProgressListener to be notified periodically of file copy progress.
-	 * This type of listener goes beyond the FileCopyListener by potentially firing multiple
-	 * events for each file copied, providing continual progress updates regardless of file sizes.
+	 * Copy a single file using direct I/O, bypassing the page cache.  Reads and writes are made in chunks
+	 * aligned to the block size of the destination; the final chunk is written in whole blocks and the
+	 * destination is then truncated to the size of the source.  If direct I/O is not available for either
+	 * file, nothing is copied and direct I/O is not attempted again.
 	 * 
-	 * @param listener				listener to add
+	 * @param inFile		file being copied
+	 * @param outFile		where file is being copied to
+	 * @param size			size of the file being copied
+	 * @param throttled		whether or not the copy is subject to the throttle
+	 * 
+	 * @return				whether or not the file was copied using direct I/O
+	 * @throws IOException
 	 */
-	public void addFileCopyProgressListener(FileCopyProgressListener listener) {
-		if (progressListeners == null) {
-			progressListeners = new ArrayList<FileCopyProgressListener>();
+	private boolean copyDirect(File inFile, File outFile, long size, boolean throttled) throws IOException {
+		OpenOption direct = DirectIo.getOpenOption();
+		if (direct == null || directIoUnsupported) {
+			return false;
 		}
-		progressListeners.add(listener);
+		FileChannel in = null;
+		FileChannel out = null;
+		try {
+			try {
+				in = FileChannel.open(inFile.toPath(), StandardOpenOption.READ, direct);
+				out = FileChannel.open(outFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, direct);
+			} catch (IOException | UnsupportedOperationException e) {
+				log.info("Direct I/O is not supported for " + outFile.getAbsolutePath() + "; files will be copied through the page cache");
+				directIoUnsupported = true;
+				return false;
+			}
+			int blockSize = Math.max(DirectIo.getBlockSize(inFile.toPath()), DirectIo.getBlockSize(outFile.toPath()));
+			int chunkSize = Math.max(blockSize, cacheBypassChunkSize / blockSize * blockSize);
+			ByteBuffer buffer = DirectIo.allocateAligned(chunkSize, blockSize);
+			long pos = 0;
+			boolean shortRead = false;
+			while (pos < size && !cancelled && !shortRead) {
+				long limit = throttled? throttle.getChunkSize(chunkSize) : chunkSize;
+				buffer.clear();
+				buffer.limit((int) Math.max(blockSize, Math.min(chunkSize, limit / blockSize * blockSize)));
+				int read = 0;
+				while (buffer.hasRemaining() && pos + read < size && read % blockSize == 0) {
+					int n = in.read(buffer, pos + read);
+					if (n < 0) {
+						break;
+					}
+					read += n;
+				}
+				if (read == 0) {
+					throw new IOException("Source file ended unexpectedly at position " + pos);
+				}
+				int length = read;
+				if (read % blockSize != 0 && pos + read < size) {
+					// a short read before the end of the file leaves the next offset unaligned for direct I/O
+					shortRead = true;
+					length = read / blockSize * blockSize;
+				}
+				if (length > 0) {
+					buffer.limit((length + blockSize - 1) / blockSize * blockSize);	// whole blocks; bytes past the end are truncated below
+					buffer.position(0);
+					while (buffer.hasRemaining()) {
+						out.write(buffer, pos + buffer.position());
+					}
+					pos += length;
+					if (throttled) {
+						throttleBytes(length);
+					}
+					fireCopyProgress(inFile, outFile, pos, pos >= size);
+				}
+			}
+			if (out.size() > size) {
+				out.truncate(size);
+			}
+			if (shortRead) {
+				close(in);
+				close(out);
+				in = FileChannel.open(inFile.toPath(), StandardOpenOption.READ);
+				out = FileChannel.open(outFile.toPath(), StandardOpenOption.WRITE);
+				copyBuffered(inFile, outFile, in, out, pos, size, throttled);
+			}
+		} finally {
+			close(in);
+			close(out);
+		}
+		return true;
 	}
 	
-	private File getDestinationFile(File file) {
-		String filePath = null;
-		if (pathGenerator != null) {
-			filePath = pathGenerator.generateDestinationPath(file);
-		} else if (sourcePath == null) {
-			//Note:  a filename collision can result in this case, but this should be handled by the normal skip/overwrite behavior			
-			filePath = destinationPath + File.separator + file.getName();
-		} else {
-			filePath = destinationPath + file.getAbsolutePath().substring(sourcePath.length());
+	/**
+	 * Copy the rest of a file through the page cache, after direct I/O can no longer continue.
+	 * 
+	 * @param inFile		file being copied
+	 * @param outFile		where file is being copied to
+	 * @param in			channel to read from
+	 * @param out			channel to write to
+	 * @param pos			position to continue copying from
+	 * @param size			size of the file being copied
+	 * @param throttled		whether or not the copy is subject to the throttle
+	 * @throws IOException
+	 */
+	private void copyBuffered(File inFile, File outFile, FileChannel in, FileChannel out, long pos, long size, boolean throttled) throws IOException {
+		out.position(pos);
+		while (pos < size && !cancelled) {
+			long chunkSize = throttled? throttle.getChunkSize(getChunkSize()) : getChunkSize();
+			long transferred = in.transferTo(pos, Math.min(chunkSize, size - pos), out);
+			if (transferred <= 0) {
+				throw new IOException("Source file ended unexpectedly at position " + pos);
+			}
+			pos += transferred;
+			if (throttled) {
+				throttleBytes(transferred);
+			}
+			fireCopyProgress(inFile, outFile, pos, pos >= size);
 		}
-		return (filePath == null)? null : new File(filePath);
 	}
 	
 	/**
-	 * Get the exception that occurred when attempting to copy the given file from the copy error queue.
+	 * Determine whether or not a file should be copied through a pipeline.  Files no larger than a single
+	 * chunk gain nothing from a pipeline and are never pipelined.
 	 * 
-	 * @param file			a file in the copy error queue
+	 * @param inFile		file being copied
+	 * @param outFile		where file is being copied to
+	 * @param length		number of bytes to copy
 	 * 
-	 * @return				exception that occurred when trying to copy the file
+	 * @return				whether or not to copy the file through a pipeline
 	 */
-	public Throwable getFileCopyException(File file) {
-		for (FileCopyError fce : errorFiles) {
-			if (fce.getFile().equals(file)) {
-				return fce.getThrowable();
-			}
+	private boolean isPipelined(File inFile, File outFile, long length) {
+		if (pipelineMode == PipelineMode.NEVER || length <= getPipelineChunkSize()) {
+			return false;
+		}
+		if (pipelineMode == PipelineMode.ALWAYS) {
+			return true;
+		}
+		try {
+			return !getFileStore(inFile).equals(getFileStore(outFile));
+		} catch (IOException ioe) {
+			log.debug("Unable to determine file store; file will not be pipelined", ioe);
+			return false;
 		}
-		return null;
 	}
 	
-	private void fireFileCopying(File from, File to, boolean isDirectory) {
-		if (listeners != null) {
-			for (FileCopyListener listener : listeners) {
-				listener.fileCopying(from, to, isDirectory);
-			}
+	/**
+	 * Get the file store of the given file, caching file stores by directory.
+	 */
+	private FileStore getFileStore(File file) throws IOException {
+		File directory = file.getAbsoluteFile().getParentFile();
+		FileStore fileStore = fileStores.get(directory.getPath());
+		if (fileStore == null) {
+			fileStore = Files.getFileStore(directory.toPath());
+			fileStores.put(directory.getPath(), fileStore);
 		}
+		return fileStore;
 	}
 	
-	private void fireFileCopied(File from, File to, boolean isDirectory, CopyResult result) {
-		if (listeners != null) {
-			for (FileCopyListener listener : listeners) {
-				listener.fileCopied(from, to, isDirectory, result);
-			}
-		}
+	private int getPipelineChunkSize() {
+		return (int) Math.min(getChunkSize(), MAX_VERIFY_BUFFER_SIZE);
 	}
 	
-	private void fireCopyComplete(boolean cancelled) {
-		if (listeners != null) {
-			int filesToResolve = overwriteFiles.size() + errorFiles.size();
-			for (FileCopyListener listener : listeners) {
-				listener.copyComplete(filesToResolve > 0, cancelled);
-			}
+	private synchronized ExecutorService getPipelineExecutor() {
+		if (pipelineExecutor == null) {
+			final AtomicInteger threadNumber = new AtomicInteger();
+			pipelineExecutor = Executors.newCachedThreadPool(runnable -> {
+				Thread thread = new Thread(runnable, "FileCopier-writer-" + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
 		}
+		return pipelineExecutor;
 	}
 	
-	private void fireCopyProgress(File from, File to, long bytesCopied, boolean copyComplete) {
-		if (progressListeners != null) {
-			for (FileCopyProgressListener listener : progressListeners) {
-				listener.fileCopying(from, to, bytesCopied, copyComplete);
+	/**
+	 * Copy a single file through a pipeline.  The calling thread reads chunks of the file into a ring of
+	 * direct buffers and hands them to a writer thread, which writes them in order, fires progress events,
+	 * and records journal checkpoints.  Reading stops if the writer fails; the writer's exception is then
+	 * thrown.  Buffer rings are pooled and reused for later files.
+	 * 
+	 * @param inFile		file being copied
+	 * @param outFile		where file is being copied to
+	 * @param in			channel to read from
+	 * @param out			channel to write to, positioned at the resume offset
+	 * @param resumeOffset	offset to start copying from
+	 * @param size			size of the file being copied
+	 * @param throttled		whether or not the copy is subject to the throttle
+	 * @throws IOException
+	 */
+	private void copyPipelined(final File inFile, final File outFile, FileChannel in, final FileChannel out, final long resumeOffset, final long size, boolean throttled) throws IOException {
+		int chunkSize = getPipelineChunkSize();
+		ByteBuffer[] ring = pipelineRings.poll();
+		if (ring == null || ring.length != pipelineRingSize || ring[0].capacity() != chunkSize) {
+			ring = new ByteBuffer[pipelineRingSize];
+			for (int i = 0; i < ring.length; i++) {
+				ring[i] = ByteBuffer.allocateDirect(chunkSize);
 			}
 		}
+		final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<ByteBuffer>(ring.length);
+		final BlockingQueue<ByteBuffer> filled = new ArrayBlockingQueue<ByteBuffer>(ring.length + 1);
+		Collections.addAll(free, ring);
+		Future<Void> writer = getPipelineExecutor().submit(() -> {
+			long pos = resumeOffset;
+			long checkpoint = pos;
+			ByteBuffer buffer;
+			while ((buffer = filled.take()) != PIPELINE_END) {
+				while (buffer.hasRemaining()) {
+					pos += out.write(buffer);
+				}
+				free.put(buffer);
+				fireCopyProgress(inFile, outFile, pos, pos >= size);
+				if (journal != null && pos - checkpoint >= journalCheckpointInterval && pos < size) {
+					checkpoint(inFile, out, pos);
+					checkpoint = pos;
+				}
+			}
+			if (cancelled && journal != null && pos > checkpoint && pos < size) {
+				checkpoint(inFile, out, pos);
+			}
+			return null;
+		});
+		boolean readComplete = false;
+		try {
+			long pos = resumeOffset;
+			while (pos < size && !cancelled) {
+				ByteBuffer buffer = null;
+				while (buffer == null && !writer.isDone()) {
+					buffer = free.poll(100, TimeUnit.MILLISECONDS);
+				}
+				if (buffer == null) {
+					break;	// writer failed
+				}
+				buffer.clear();
+				buffer.limit((int) Math.min(chunkSize, throttled? throttle.getChunkSize(chunkSize) : chunkSize));
+				int read = in.read(buffer, pos);
+				if (read < 0) {
+					throw new IOException("Source file ended unexpectedly at position " + pos);
+				}
+				buffer.flip();
+				filled.put(buffer);
+				pos += read;
+				if (throttled) {
+					throttleBytes(read);
+				}
+			}
+			readComplete = true;
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while reading file for pipelined copy");
+		} finally {
+			if (!readComplete) {
+				filled.clear();		// chunks not yet written are discarded when reading fails
+			}
+			filled.offer(PIPELINE_END);	// the queue always has room for the end marker
+			awaitWriter(writer);
+		}
+		pipelineRings.offer(ring);
 	}
 	
 	/**
-	 * Cancel the current copy operation; since the copy method is blocking, this call must be 
-	 * made by a thread that did not initiate the copy.
+	 * Wait for the writer of a pipelined copy to finish, throwing any exception it failed with.
 	 */
-	public void cancel() {
-		this.cancelled = true;
+	private void awaitWriter(Future<Void> writer) throws IOException {
+		try {
+			writer.get();
+		} catch (ExecutionException ee) {
+			if (ee.getCause() instanceof IOException) {
+				throw (IOException) ee.getCause();
+			}
+			throw new IOException("Unable to write pipelined copy", ee.getCause());
+		} catch (InterruptedException ie) {
+			writer.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for pipelined copy to be written");
+		}
 	}
 	
 	/**
-	 * Copy the files stored within the file copier.
+	 * Overwrite an existing destination file in place, writing only the blocks that differ from the source.
+	 * Source and destination are read a chunk at a time and compared block by block at the same offsets; runs
+	 * of differing blocks are written with a single write.  The destination is then truncated to the size of
+	 * the source.  If the copy is interrupted or cancelled, the destination is kept partly updated rather than 
+	 * deleted, and its last modified time will not match the source, so it is updated again on the next copy.
+	 * 
+	 * @param inFile		file being copied
+	 * @param outFile		existing destination file being overwritten
+	 * @param in			channel to read from
+	 * @param out			channel to read and write the destination with
+	 * @param size			size of the file being copied
+	 * @param digest		digest to compute while copying, or null to not compute a digest
+	 * @param throttled		whether or not the copy is subject to the throttle
+	 * @throws IOException
 	 */
-	public void copy() {
-		boolean cancelled = false;
-		for (File file : files) {
-			if (this.cancelled) {
-				cancelled = true;
-				break;
+	private void copyDelta(File inFile, File outFile, FileChannel in, FileChannel out, long size, FileDigest digest, boolean throttled) throws IOException {
+		int chunkSize = (int) Math.max(deltaBlockSize, Math.min(getChunkSize(), MAX_VERIFY_BUFFER_SIZE) / deltaBlockSize * deltaBlockSize);
+		ByteBuffer sourceBuffer = ByteBuffer.allocate(chunkSize);
+		ByteBuffer destBuffer = ByteBuffer.allocate(chunkSize);
+		long bytesWritten = 0;
+		long pos = 0;
+		while (pos < size && !cancelled) {
+			long end = Math.min(size, pos + (throttled? throttle.getChunkSize(chunkSize) : chunkSize));
+			int read = read(in, sourceBuffer, pos, end, digest);
+			destBuffer.clear();
+			destBuffer.limit(read);
+			while (destBuffer.hasRemaining() && out.read(destBuffer, pos + destBuffer.position()) >= 0) {
+				// destination may be shorter than the source; the missing part counts as changed
+			}
+			int destRead = destBuffer.position();
+			int runStart = -1;
+			for (int block = 0; block < read; block += deltaBlockSize) {
+				int blockEnd = Math.min(read, block + deltaBlockSize);
+				boolean changed = blockEnd > destRead;
+				if (!changed) {
+					sourceBuffer.limit(blockEnd).position(block);
+					destBuffer.limit(blockEnd).position(block);
+					changed = !sourceBuffer.equals(destBuffer);
+				}
+				if (changed && runStart < 0) {
+					runStart = block;
+				} else if (!changed && runStart >= 0) {
+					bytesWritten += writeRun(out, sourceBuffer, runStart, block, pos);
+					runStart = -1;
+				}
+			}
+			if (runStart >= 0) {
+				bytesWritten += writeRun(out, sourceBuffer, runStart, read, pos);
 			}
-			copyFile(file, false);
+			pos += read;
+			if (throttled) {
+				throttleBytes(read);
+			}
+			fireCopyProgress(inFile, outFile, pos, pos >= size);
+		}
+		if (!cancelled) {
+			if (out.size() > size) {
+				out.truncate(size);
+			}
+			deltaBytesWritten.addAndGet(bytesWritten);
+			deltaBytesUnchanged.addAndGet(size - bytesWritten);
+			log.debug("Delta copy of " + inFile.getAbsolutePath() + " wrote " + bytesWritten + " of " + size + " bytes");
 		}
-		fireCopyComplete(cancelled);
 	}
 	
 	/**
-	 * Copy a new list of files from the given source directory to the given destination directory.
-	 * Use this method when you wish to perform multiple copies using the same file copier.
+	 * Write the given run of a source buffer to the destination at the corresponding position.
 	 * 
-	 * @param files				files to copy
-	 * @param destination		destination directory
-	 * @param source			source directory
+	 * @return				number of bytes written
 	 */
-	public void copy(List<File> files, File destination, File source) {
-		initialize(files, destination, source);
-		copy();
+	private static int writeRun(FileChannel out, ByteBuffer buffer, int start, int end, long bufferPosition) throws IOException {
+		buffer.limit(end).position(start);
+		while (buffer.hasRemaining()) {
+			out.write(buffer, bufferPosition + buffer.position());
+		}
+		return end - start;
 	}
 	
 	/**
-	 * Inform the file copier whether or not to overwrite a file that is in the overwrite queue.
+	 * Read the next buffer of bytes from the given position and add them to the digest, if any.
 	 * 
-	 * @param file			a file (with source path) in the overwrite queue
-	 * @param overwrite		whether or not to overwrite the file of same name at the destination path
+	 * @return				number of bytes read
+	 */
+	private static int read(FileChannel in, ByteBuffer buffer, long pos, long end, FileDigest digest) throws IOException {
+		buffer.clear();
+		buffer.limit((int) Math.min(buffer.capacity(), end - pos));
+		int read = in.read(buffer, pos);
+		if (read < 0) {
+			throw new IOException("Source file ended unexpectedly at position " + pos);
+		}
+		if (digest != null) {
+			digest.update(buffer.array(), 0, read);
+		}
+		return read;
+	}
+	
+	/**
+	 * Determine whether or not the given file is verified when copied.  Rereading the destination verifies
+	 * every file; a digest alone can only be checked against an expected digest, so files without one are
+	 * copied unverified.
+	 * 
+	 * @param inFile		file being copied
+	 * 
+	 * @return				whether or not the file is verified
+	 */
+	private boolean isVerified(File inFile) {
+		return verifyMode == VerifyMode.REREAD_DESTINATION
+				|| (verifyMode == VerifyMode.DIGEST && expectedDigests != null && expectedDigests.containsKey(inFile));
+	}
+	
+	/**
+	 * Verify a copied file by comparing the digest computed while copying against the expected digest
+	 * for the file, if any, and against a digest of the destination when rereading is enabled.
+	 * 
+	 * @param inFile		file copied
+	 * @param outFile		where file was copied to
+	 * @param digest		digest computed while copying
+	 * @throws FileVerificationException if the digests do not match
+	 * @throws IOException if the destination cannot be reread
+	 */
+	private void verify(File inFile, File outFile, FileDigest digest) throws IOException {
+		String expected = (expectedDigests == null)? null : expectedDigests.get(inFile);
+		String actual = digest.getValue();
+		if (expected == null || expected.equalsIgnoreCase(actual)) {
+			expected = actual;
+			if (verifyMode == VerifyMode.REREAD_DESTINATION) {
+				actual = digestFile(outFile).getValue();
+			}
+		}
+		boolean verified = expected.equalsIgnoreCase(actual);
+		fireFileVerified(inFile, outFile, digest, verified);
+		if (!verified) {
+			throw new FileVerificationException(inFile, expected, actual);
+		}
+	}
+	
+	/**
+	 * Compute a digest of the given file by reading it in full.
+	 * 
+	 * @param file			file to digest
+	 * 
+	 * @return				digest of the file
+	 * @throws IOException
+	 */
+	private FileDigest digestFile(File file) throws IOException {
+		FileDigest digest = new FileDigest(digestAlgorithm);
+		try (FileChannel in = backend.openInput(file)) {
+			ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(getChunkSize(), MAX_VERIFY_BUFFER_SIZE));
+			long size = in.size();
+			for (long pos = 0; pos < size; ) {
+				pos += read(in, buffer, pos, size, digest);
+			}
+		}
+		return digest;
+	}
+	
+	/**
+	 * Apply the throttle for the given number of bytes copied, waiting if paused or over the byte rate limit.
+	 */
+	private void throttleBytes(long bytes) throws IOException {
+		try {
+			throttle.acquireBytes(bytes);
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while copy was throttled or paused");
+		}
+		CopyAutotuner autotuner = this.autotuner;
+		if (autotuner != null && autotuner.bytesCopied(bytes)) {
+			applyTuning(autotuner);
+		}
+	}
+	
+	private void applyTuning(CopyAutotuner autotuner) {
+		tunedChunkSize = autotuner.getChunkSize();
+		ParallelLimit parallelLimit = this.parallelLimit;
+		if (parallelLimit != null) {
+			parallelLimit.setLimit(autotuner.getThreadCount());
+		}
+	}
+	
+	/**
+	 * Create the autotuner for a copy, starting from the parameters remembered for the destination file store.
+	 */
+	private CopyAutotuner createAutotuner() {
+		FileStore fileStore = null;
+		File destination = null;
+		if (destinationPath != null) {
+			destination = new File(destinationPath);
+		} else if (!files.isEmpty()) {
+			File destFile = getDestinationFile(files.get(0));
+			destination = (destFile == null)? null : destFile.getParentFile();
+		}
+		if (destination != null && isNativeIo()) {
+			try {
+				fileStore = getDirectoryFileStore(destination);
+			} catch (IOException ioe) {
+				log.warn("Unable to determine file store of " + destination.getAbsolutePath() + "; autotuning will not be remembered", ioe);
+			}
+		}
+		CopyAutotuner autotuner = new CopyAutotuner(fileStore, channelBufferSize, threadCount, threadCount, autotuneWindowMillis);
+		applyTuning(autotuner);
+		return autotuner;
+	}
+	
+	/**
+	 * Semaphore limiting how many files are copied at once, with a limit that can be changed while copying.
+	 */
+	private static class ParallelLimit extends Semaphore {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private int limit;
+		
+		private ParallelLimit(int limit) {
+			super(limit);
+			this.limit = limit;
+		}
+		
+		private synchronized void setLimit(int limit) {
+			if (limit > this.limit) {
+				release(limit - this.limit);
+			} else if (limit < this.limit) {
+				reducePermits(this.limit - limit);
+			}
+			this.limit = limit;
+		}
+	}
+	
+	/**
+	 * Force the destination to disk and record the offset it is durable to in the journal.
+	 */
+	private void checkpoint(File inFile, FileChannel out, long offset) throws IOException {
+		out.force(false);
+		journal.recordProgress(inFile, offset);
+	}
+	
+	/**
+	 * Copy a single file as a set of ranges using concurrent positional reads and writes.  Ranges are
+	 * claimed in order by the range copy threads until all are copied or the copy is cancelled.  A 
+	 * progress event is fired as each range completes; the bytes copied reported are the running total
+	 * of completed ranges and are always increasing.  When journaling, checkpoints record the offset 
+	 * below which all ranges have completed.
+	 * 
+	 * @param inFile		file being copied
+	 * @param outFile		where file is being copied to
+	 * @param in			channel to read from
+	 * @param out			channel to write to
+	 * @param startOffset	offset to start copying from
+	 * @param size			size of the file being copied
+	 * @param throttled		whether or not the copy is subject to the throttle
+	 * @throws IOException
+	 */
+	private void copyRanges(final File inFile, final File outFile, final FileChannel in, final FileChannel out, final long startOffset, final long size, final boolean throttled) throws IOException {
+		final long rangeSize = Math.max(RANGE_COPY_BUFFER_SIZE, getChunkSize());
+		final long rangeCount = (size - startOffset + rangeSize - 1) / rangeSize;
+		final AtomicLong nextRange = new AtomicLong();
+		final AtomicLong bytesCopied = new AtomicLong(startOffset);
+		final BitSet completedRanges = new BitSet();
+		final long[] checkpoint = new long[] { startOffset, startOffset };	// { contiguous offset completed, offset last recorded }
+		final AtomicInteger threadNumber = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(rangeCopyThreadCount, runnable -> {
+			Thread thread = new Thread(runnable, "FileCopier-range-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int i = 0; i < rangeCopyThreadCount; i++) {
+				futures.add(executor.submit(() -> {
+					ByteBuffer buffer = ByteBuffer.allocateDirect(RANGE_COPY_BUFFER_SIZE);
+					long range;
+					while ((range = nextRange.getAndIncrement()) < rangeCount && !cancelled) {
+						long start = startOffset + range * rangeSize;
+						long end = Math.min(size, start + rangeSize);
+						long pos = start;
+						while (pos < end) {
+							buffer.clear();
+							buffer.limit((int) Math.min(buffer.capacity(), end - pos));
+							if (in.read(buffer, pos) < 0) {
+								throw new IOException("Source file ended unexpectedly at position " + pos);
+							}
+							buffer.flip();
+							int transferred = buffer.remaining();
+							while (buffer.hasRemaining()) {
+								pos += out.write(buffer, pos);
+							}
+							if (throttled) {
+								throttleBytes(transferred);
+							}
+						}
+						synchronized(listenerLock) {
+							long total = bytesCopied.addAndGet(end - start);
+							fireCopyProgress(inFile, outFile, total, total >= size);
+						}
+						if (journal != null) {
+							synchronized(completedRanges) {
+								completedRanges.set((int) range);
+								int contiguous = completedRanges.nextClearBit(0);
+								checkpoint[0] = Math.min(size, startOffset + contiguous * rangeSize);
+								if (checkpoint[0] - checkpoint[1] >= journalCheckpointInterval && checkpoint[0] < size) {
+									checkpoint(inFile, out, checkpoint[0]);
+									checkpoint[1] = checkpoint[0];
+								}
+							}
+						}
+					}
+					return null;
+				}));
+			}
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+			if (cancelled && journal != null && checkpoint[0] > checkpoint[1] && checkpoint[0] < size) {
+				checkpoint(inFile, out, checkpoint[0]);
+			}
+		} catch (ExecutionException ee) {
+			cancelRanges(executor);
+			if (ee.getCause() instanceof IOException) {
+				throw (IOException) ee.getCause();
+			}
+			throw new IOException("Unable to copy file ranges", ee.getCause());
+		} catch (InterruptedException ie) {
+			cancelRanges(executor);
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while copying file ranges", ie);
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	private void cancelRanges(ExecutorService executor) {
+		executor.shutdownNow();
+		try {
+			executor.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Construct a new file copier to copy the given files from the given source directory
+	 * to the given destination directory.  If source is null paths will not be preserved
+	 * and directories cannot be specified.  Destination cannot be null.
+	 * 
+	 * @param files				files to copy
+	 * @param destination		directory to copy files to
+	 * @param source			directory to copy files from
+	 */
+	public FileCopier(List<File> files, File destination, File source) {
+		initialize(files, destination, source);
+	}
+	
+	/**
+	 * Construct a new file copier to copy the given files from the given source directory
+	 * to the given destination directory using the given backend for file operations.
+	 * 
+	 * @param files				files to copy
+	 * @param destination		directory to copy files to
+	 * @param source			directory to copy files from
+	 * @param backend			backend to perform file operations with
+	 */
+	public FileCopier(List<File> files, File destination, File source, FileCopyBackend backend) {
+		this.backend = backend;
+		initialize(files, destination, source);
+	}
+	
+	/**
+	 * Construct a new file copier to copy the given files using the given path generator.
+	 * 
+	 * @param files				files to copy
+	 * @param pathGenerator		path generator
+	 */
+	public FileCopier(List<File> files, FileCopierPathGenerator pathGenerator) {
+		this.pathGenerator = pathGenerator;
+		initialize(files, null, null);
+	}
+	
+	private void initialize(List<File> files, File destination, File source) {
+		if (pathGenerator == null) {
+			if (destination == null || (backend.exists(destination) && !backend.isDirectory(destination))) {
+				String destPath = (destination == null)? "null" : destination.getAbsolutePath();
+				throw new IllegalArgumentException("Destination is not a valid directory: " + destPath);
+			}
+			if (source != null && !backend.isDirectory(source)) {
+				throw new IllegalArgumentException("Source is not a valid directory.");
+			}
+			if (source != null) {
+				sourcePath = source.getAbsolutePath();
+			}
+			for (File file : files) {
+				if (source != null && !file.getAbsolutePath().startsWith(sourcePath)) {
+					throw new IllegalArgumentException("If a source directory is specified, all files must be contained within the source directory.");
+				} 
+				if (source == null && backend.isDirectory(file)) {
+					throw new IllegalArgumentException("Directories cannot be copied unless a source directory is specified.");
+				}
+			}
+			this.destinationPath = destination.getAbsolutePath();
+		}
+		this.files = files;
+		this.knownDirectories.clear();
+		this.plannedDirectories.clear();
+		this.copyPlan = null;
+		this.fileStores.clear();
+		this.destinationSnapshots.clear();
+		this.mirroredDirectories.clear();
+		this.deletedFiles = Collections.synchronizedList(new ArrayList<File>());
+		this.overwriteFiles = Collections.synchronizedSet(new LinkedHashSet<File>());
+		this.errorFiles = Collections.synchronizedMap(new LinkedHashMap<File, FileCopyError>());
+		this.results = (resultSink == null)? new FileCopyResultList() : resultSink;
+		this.resultCounts = new AtomicLongArray(CopyResult.values().length);
+	}
+	
+	/**
+	 * Enable test mode, which causes file copier to simulate copying files without actually 
+	 * copying them.  Primarily used for testing.  To see how copies behave with device latency,
+	 * bandwidth, and errors, use a SimulatedFileCopyBackend instead.
+	 */
+	public void enableTestMode() {
+		this.testMode = true;
+	}
+	
+	public void enableTestMode(long speedFactor) {
+		if (speedFactor < 1) {
+			throw new IllegalArgumentException("Speed factor must be > 0");
+		}
+		this.testMode = true;
+		this.testModeSpeedFactor = speedFactor;
+	}
+	
+	/**
+	 * Enable parallel mode using the default number of worker threads.
+	 */
+	public void enableParallelMode() {
+		enableParallelMode(DEFAULT_PARALLEL_THREADS);
+	}
+	
+	/**
+	 * Enable parallel mode, which copies independent files concurrently using the given number 
+	 * of worker threads.  A thread count of 1 restores the default sequential behavior.
+	 * 
+	 * @param threadCount		number of worker threads to copy files with
+	 */
+	public void enableParallelMode(int threadCount) {
+		if (threadCount < 1) {
+			throw new IllegalArgumentException("Thread count must be > 0");
+		}
+		this.threadCount = threadCount;
+	}
+	
+	/**
+	 * Enable range copy for files of at least the default range copy threshold using the default
+	 * number of threads.
+	 */
+	public void enableRangeCopy() {
+		enableRangeCopy(DEFAULT_RANGE_COPY_THRESHOLD, DEFAULT_PARALLEL_THREADS);
+	}
+	
+	/**
+	 * Enable range copy, which splits files of at least the given size into ranges that are 
+	 * copied concurrently.  This is primarily of benefit for very large files on striped RAID or 
+	 * NVMe storage.  A thread count of 1 disables range copy.
+	 * 
+	 * @param threshold			minimum size in bytes of files to copy as ranges
+	 * @param threadCount		number of threads to copy the ranges of each file with
+	 */
+	public void enableRangeCopy(long threshold, int threadCount) {
+		if (threshold < 0) {
+			throw new IllegalArgumentException("Range copy threshold must be >= 0");
+		}
+		if (threadCount < 1) {
+			throw new IllegalArgumentException("Thread count must be > 0");
+		}
+		this.rangeCopyThreshold = threshold;
+		this.rangeCopyThreadCount = threadCount;
+	}
+	
+	/**
+	 * Get the minimum file size in bytes for files to be copied as concurrent ranges.
+	 * 
+	 * @return					range copy threshold in bytes
+	 */
+	public long getRangeCopyThreshold() {
+		return rangeCopyThreshold;
+	}
+	
+	/**
+	 * Enable streaming scan using the default scan queue capacity.
+	 */
+	public void enableStreamingScan() {
+		enableStreamingScan(DEFAULT_SCAN_QUEUE_CAPACITY);
+	}
+	
+	/**
+	 * Enable streaming scan, which fully recurses any directories in the file copy list while
+	 * copying.  When enabled, the file copy list should contain only the root files and directories
+	 * to copy; descendants of listed directories that are also listed themselves will be processed twice.
+	 * 
+	 * @param queueCapacity		maximum number of scanned entries waiting to be copied
+	 */
+	public void enableStreamingScan(int queueCapacity) {
+		if (queueCapacity < 1) {
+			throw new IllegalArgumentException("Queue capacity must be > 0");
+		}
+		this.streamingScan = true;
+		this.scanQueueCapacity = queueCapacity;
+	}
+	
+	public boolean isStreamingScan() {
+		return streamingScan;
+	}
+	
+	/**
+	 * Get the number of worker threads used to copy files.
+	 * 
+	 * @return					number of worker threads (1 if parallel mode is not enabled)
+	 */
+	public int getThreadCount() {
+		return threadCount;
+	}
+	
+	/**
+	 * Add a FileCopyListener to be notified of files being copied.
+	 * 
+	 * @param listener				listener to add
+	 */
+	public void addFileCopyListener(FileCopyListener listener) {
+		if (listeners == null) {
+			listeners = new ArrayList<FileCopyListener>();
+		}
+		listeners.add(listener);
+	}
+	
+	public void removeFileCopyListener(FileCopyListener listener) {
+		if (listeners != null) {
+			listeners.remove(listener);
+		}
+	}
+	
+	/**
+	 * Add a FileCopyProgressListener to be notified periodically of file copy progress.
+	 * This type of listener goes beyond the FileCopyListener by potentially firing multiple
+	 * events for each file copied, providing continual progress updates regardless of file sizes.
+	 * 
+	 * @param listener				listener to add
+	 */
+	public void addFileCopyProgressListener(FileCopyProgressListener listener) {
+		if (progressListeners == null) {
+			progressListeners = new ArrayList<FileCopyProgressListener>();
+		}
+		progressListeners.add(listener);
+	}
+	
+	/**
+	 * Add a FileScanListener to be notified of scan progress when streaming scan is enabled.
+	 * 
+	 * @param listener				listener to add
+	 */
+	public void addFileScanListener(FileScanListener listener) {
+		if (scanListeners == null) {
+			scanListeners = new ArrayList<FileScanListener>();
+		}
+		scanListeners.add(listener);
+	}
+	
+	/**
+	 * Add a FileDurabilityListener to be notified as copied files are forced to disk when a durability
+	 * mode is set.
+	 * 
+	 * @param listener				listener to add
+	 */
+	public void addFileDurabilityListener(FileDurabilityListener listener) {
+		if (durabilityListeners == null) {
+			durabilityListeners = new ArrayList<FileDurabilityListener>();
+		}
+		durabilityListeners.add(listener);
+	}
+	
+	/**
+	 * Add a CopyPlanListener to be sent the copy plan before copying starts when planning is enabled.
+	 * 
+	 * @param listener				listener to add
+	 */
+	public void addCopyPlanListener(CopyPlanListener listener) {
+		if (planListeners == null) {
+			planListeners = new ArrayList<CopyPlanListener>();
+		}
+		planListeners.add(listener);
+	}
+	
+	/**
+	 * Add a FileVerifyListener to be notified of the digest of each file copied when verification
+	 * is enabled.
+	 * 
+	 * @param listener				listener to add
+	 */
+	public void addFileVerifyListener(FileVerifyListener listener) {
+		if (verifyListeners == null) {
+			verifyListeners = new ArrayList<FileVerifyListener>();
+		}
+		verifyListeners.add(listener);
+	}
+	
+	private File getDestinationFile(File file) {
+		String filePath = null;
+		if (pathGenerator != null) {
+			filePath = pathGenerator.generateDestinationPath(file);
+		} else if (sourcePath == null) {
+			//Note:  a filename collision can result in this case, but this should be handled by the normal skip/overwrite behavior			
+			filePath = destinationPath + File.separator + file.getName();
+		} else {
+			filePath = destinationPath + file.getAbsolutePath().substring(sourcePath.length());
+		}
+		return (filePath == null)? null : new File(filePath);
+	}
+	
+	/**
+	 * Get the exception that occurred when attempting to copy the given file from the copy error queue.
+	 * 
+	 * @param file			a file in the copy error queue
+	 * 
+	 * @return				exception that occurred when trying to copy the file
+	 */
+	public Throwable getFileCopyException(File file) {
+		FileCopyError fileCopyError = errorFiles.get(file);
+		return (fileCopyError == null)? null : fileCopyError.getThrowable();
+	}
+	
+	private void fireFileCopying(File from, File to, boolean isDirectory) {
+		if (listeners != null) {
+			synchronized(listenerLock) {
+				for (FileCopyListener listener : listeners) {
+					listener.fileCopying(from, to, isDirectory);
+				}
+			}
+		}
+	}
+	
+	private void fireFileCopied(File from, File to, boolean isDirectory, CopyResult result) {
+		if (listeners != null) {
+			synchronized(listenerLock) {
+				for (FileCopyListener listener : listeners) {
+					listener.fileCopied(from, to, isDirectory, result);
+				}
+			}
+		}
+	}
+	
+	private void fireCopyComplete(boolean cancelled) {
+		if (listeners != null) {
+			int filesToResolve = overwriteFiles.size() + errorFiles.size();
+			synchronized(listenerLock) {
+				for (FileCopyListener listener : listeners) {
+					listener.copyComplete(filesToResolve > 0, cancelled);
+				}
+			}
+		}
+	}
+	
+	private void fireFilesDurable(List<File> files) {
+		if (durabilityListeners != null) {
+			synchronized(listenerLock) {
+				for (FileDurabilityListener listener : durabilityListeners) {
+					listener.filesDurable(files);
+				}
+			}
+		}
+	}
+	
+	private void fireCopyPlanned(CopyPlan plan) {
+		if (planListeners != null) {
+			synchronized(listenerLock) {
+				for (CopyPlanListener listener : planListeners) {
+					listener.copyPlanned(plan);
+				}
+			}
+		}
+	}
+	
+	private void fireFilesScanned(int filesScanned, boolean scanComplete) {
+		if (scanListeners != null) {
+			synchronized(listenerLock) {
+				for (FileScanListener listener : scanListeners) {
+					listener.filesScanned(filesScanned, scanComplete);
+				}
+			}
+		}
+	}
+	
+	private void fireFileVerified(File from, File to, FileDigest digest, boolean verified) {
+		if (verifyListeners != null) {
+			synchronized(listenerLock) {
+				for (FileVerifyListener listener : verifyListeners) {
+					listener.fileVerified(from, to, digest, verified);
+				}
+			}
+		}
+	}
+	
+	private void fireCopyProgress(File from, File to, long bytesCopied, boolean copyComplete) {
+		if (progressListeners != null) {
+			synchronized(listenerLock) {
+				for (FileCopyProgressListener listener : progressListeners) {
+					listener.fileCopying(from, to, bytesCopied, copyComplete);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Cancel the current copy operation; since the copy method is blocking, this call must be 
+	 * made by a thread that did not initiate the copy.
+	 */
+	public void cancel() {
+		this.cancelled = true;
+		throttle.cancel();
+	}
+	
+	/**
+	 * Pause the current copy operation.  Copy threads block at their next chunk or file, keeping their
+	 * place, until resume is called.  Cancelling a paused copy ends it without resuming.
+	 */
+	public void pause() {
+		throttle.pause();
+	}
+	
+	/**
+	 * Resume a paused copy operation.
+	 */
+	public void resume() {
+		throttle.resume();
+	}
+	
+	public boolean isPaused() {
+		return throttle.isPaused();
+	}
+	
+	/**
+	 * Set the maximum average copy rate in bytes per second.  May be changed while a copy is running.
+	 * 
+	 * @param bytesPerSecond		maximum bytes per second, or 0 for no limit
+	 */
+	public void setMaxBytesPerSecond(long bytesPerSecond) {
+		throttle.setBytesPerSecond(bytesPerSecond);
+	}
+	
+	public long getMaxBytesPerSecond() {
+		return throttle.getBytesPerSecond();
+	}
+	
+	/**
+	 * Set the maximum average rate of files processed per second.  May be changed while a copy is running.
+	 * 
+	 * @param filesPerSecond		maximum files per second, or 0 for no limit
+	 */
+	public void setMaxFilesPerSecond(double filesPerSecond) {
+		throttle.setFilesPerSecond(filesPerSecond);
+	}
+	
+	public double getMaxFilesPerSecond() {
+		return throttle.getFilesPerSecond();
+	}
+	
+	/**
+	 * Copy the files stored within the file copier.
+	 */
+	public void copy() {
+		boolean cancelled = false;
+		Iterable<File> copyFiles = files;
+		if (autotuneWindowMillis > 0 && !testMode) {
+			autotuner = createAutotuner();
+		}
+		if (copyOrder != null && !streamingScan) {
+			Map<File, PlannedFile> attributes = new ConcurrentHashMap<File, PlannedFile>();
+			copyPlan = plan(attributes);
+			plannedAttributes = attributes;
+			fireCopyPlanned(copyPlan);
+			if (!copyPlan.isSpaceSufficient()) {
+				log.error("Insufficient space at destination; copy not started");
+				completeCopy(true);
+				return;
+			}
+			createPlannedDirectories(copyPlan);
+			copyFiles = copyPlan.getFiles();
+		}
+		FileTreeScanner scanner = null;
+		if (streamingScan) {
+			scanner = new FileTreeScanner(files, scanQueueCapacity, this::fireFilesScanned);
+			copyFiles = scanner;
+		}
+		this.retriesDeferred = retryPolicy != null;
+		try {
+			if (threadCount > 1) {
+				cancelled = copyParallel(copyFiles);
+			} else {
+				for (File file : copyFiles) {
+					if (this.cancelled) {
+						cancelled = true;
+						break;
+					}
+					copyFile(file, false, true);
+					for (RetryEntry entry = retryQueue.poll(); entry != null && !this.cancelled; entry = retryQueue.poll()) {
+						retry(entry);
+					}
+				}
+				while (pendingRetries.get() > 0 && !this.cancelled) {
+					RetryEntry entry = retryQueue.poll(100, TimeUnit.MILLISECONDS);
+					if (entry != null) {
+						retry(entry);
+					}
+				}
+				cancelled = this.cancelled;
+			}
+		} catch (InterruptedException ie) {
+			log.warn("Interrupted while waiting to retry files; cancelling copy");
+			this.cancelled = true;
+			cancelled = true;
+		} finally {
+			this.retriesDeferred = false;
+			if (scanner != null) {
+				scanner.stop();
+			}
+		}
+		abandonRetries();
+		completeCopy(cancelled);
+	}
+	
+	/**
+	 * Plan a copy of the files without copying them.  Each file is examined once to find its type and 
+	 * length, and the files are ordered using the copy order set when planning was enabled, or in list 
+	 * order if planning is not enabled.
+	 * 
+	 * @return				plan for copying the files
+	 */
+	public CopyPlan plan() {
+		return plan(null);
+	}
+	
+	/**
+	 * Plan a copy of the files, keeping the attributes of each file examined in the given map.
+	 */
+	private CopyPlan plan(Map<File, PlannedFile> examinedFiles) {
+		List<PlannedFile> plannedFiles = new ArrayList<PlannedFile>(files.size());
+		Set<String> directories = new LinkedHashSet<String>();
+		Map<FileStore, CopyPlan.StoreSpace> storeSpaces = new LinkedHashMap<FileStore, CopyPlan.StoreSpace>();
+		long totalBytes = 0;
+		for (File file : files) {
+			PlannedFile plannedFile = new PlannedFile(file);
+			plannedFiles.add(plannedFile);
+			if (isNativeIo()) {
+				try {
+					BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+					plannedFile.directory = attributes.isDirectory();
+					plannedFile.length = plannedFile.directory? 0 : attributes.size();
+				} catch (IOException ioe) {
+					continue;	// left for the copy to report as an error
+				}
+			} else if (backend.exists(file)) {
+				plannedFile.directory = backend.isDirectory(file);
+				plannedFile.length = plannedFile.directory? 0 : backend.length(file);
+			} else {
+				continue;
+			}
+			if (examinedFiles != null) {
+				examinedFiles.put(file, plannedFile);
+			}
+			File destFile = getDestinationFile(file);
+			if (destFile == null) {
+				continue;
+			}
+			File destDirectory = plannedFile.directory? destFile : destFile.getParentFile();
+			if (destDirectory != null) {
+				directories.add(destDirectory.getPath());
+			}
+			totalBytes += plannedFile.length;
+			long bytesNeeded = plannedFile.length - backend.length(destFile);
+			if (bytesNeeded > 0 && destDirectory != null && isNativeIo()) {
+				try {
+					FileStore fileStore = getDirectoryFileStore(destDirectory);
+					CopyPlan.StoreSpace storeSpace = storeSpaces.get(fileStore);
+					if (storeSpace == null) {
+						storeSpace = new CopyPlan.StoreSpace(fileStore, fileStore.getUsableSpace());
+						storeSpaces.put(fileStore, storeSpace);
+					}
+					storeSpace.addBytesNeeded(bytesNeeded);
+				} catch (IOException ioe) {
+					log.warn("Unable to determine space available for " + destDirectory.getAbsolutePath(), ioe);
+				}
+			}
+		}
+		Comparator<PlannedFile> comparator = null;
+		switch (copyOrder == null? CopyOrder.LIST : copyOrder) {
+		case DIRECTORY:
+			comparator = Comparator.comparing((PlannedFile plannedFile) -> plannedFile.file.getParent(), Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+					.thenComparing(plannedFile -> plannedFile.file.getName());
+			break;
+		case LARGEST_FIRST:
+			comparator = (a, b) -> (a.directory || b.directory)? Boolean.compare(b.directory, a.directory) : Long.compare(b.length, a.length);
+			break;
+		case SMALLEST_FIRST:
+			comparator = (a, b) -> (a.directory || b.directory)? Boolean.compare(b.directory, a.directory) : Long.compare(a.length, b.length);
+			break;
+		default:
+			break;
+		}
+		if (comparator != null) {
+			Collections.sort(plannedFiles, comparator);	// stable, so directories keep their list order
+		}
+		List<File> planFiles = new ArrayList<File>(plannedFiles.size());
+		for (PlannedFile plannedFile : plannedFiles) {
+			planFiles.add(plannedFile.file);
+		}
+		List<File> planDirectories = new ArrayList<File>(directories.size());
+		for (String directory : directories) {
+			planDirectories.add(new File(directory));
+		}
+		return new CopyPlan(copyOrder == null? CopyOrder.LIST : copyOrder, planFiles, planDirectories, 
+				new ArrayList<CopyPlan.StoreSpace>(storeSpaces.values()), totalBytes);
+	}
+	
+	/**
+	 * Get the file store a destination directory is or will be on, from the nearest directory that exists.
+	 */
+	private FileStore getDirectoryFileStore(File directory) throws IOException {
+		FileStore fileStore = fileStores.get(directory.getPath());
+		if (fileStore == null) {
+			File existing = directory.getAbsoluteFile();
+			while (existing != null && !existing.exists()) {
+				existing = existing.getParentFile();
+			}
+			if (existing == null) {
+				throw new IOException("No existing directory for destination " + directory.getAbsolutePath());
+			}
+			fileStore = Files.getFileStore(existing.toPath());
+			fileStores.put(directory.getPath(), fileStore);
+		}
+		return fileStore;
+	}
+	
+	/**
+	 * Create the destination directories of a copy plan.  Directories that cannot be created are left
+	 * for the copy of each file to report.
+	 */
+	private void createPlannedDirectories(CopyPlan plan) {
+		if (testMode) {
+			return;
+		}
+		for (File directory : plan.getDirectories()) {
+			if (backend.isDirectory(directory)) {
+				knownDirectories.add(directory.getPath());
+			} else if (backend.mkdirs(directory) || backend.isDirectory(directory)) {
+				knownDirectories.add(directory.getPath());
+				plannedDirectories.add(directory.getPath());
+			}
+		}
+	}
+	
+	private static class PlannedFile {
+		
+		private final File file;
+		private boolean directory;
+		private long length;
+		
+		private PlannedFile(File file) {
+			this.file = file;
+		}
+	}
+	
+	private void completeCopy(boolean cancelled) {
+		if (syncQueue != null) {
+			syncQueue.sync();
+		}
+		if (autotuner != null) {
+			autotuner.remember();
+			autotuner = null;
+			parallelLimit = null;
+			tunedChunkSize = 0;
+		}
+		plannedAttributes = Collections.emptyMap();	// files resolved later are examined again
+		if (journal != null) {
+			try {
+				journal.sync();
+			} catch (IOException ioe) {
+				log.error("Unable to sync copy journal", ioe);
+			}
+		}
+		if (deleteExtraneous && !cancelled && !this.cancelled) {
+			deleteExtraneousFiles();
+		}
+		destinationSnapshots.clear();
+		mirroredDirectories.clear();
+		fireCopyComplete(cancelled);
+	}
+	
+	/**
+	 * Copy the files using a pool of worker threads.  Directories are created on the calling thread
+	 * before any later entries are dispatched; files are handed to the workers, with the number of
+	 * files waiting on the pool bounded so that large file lists are not queued up all at once.
+	 * 
+	 * @param copyFiles	files to copy
+	 * 
+	 * @return		whether or not the copy was cancelled
+	 */
+	private boolean copyParallel(Iterable<File> copyFiles) {
+		final AtomicInteger threadNumber = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+			Thread thread = new Thread(runnable, "FileCopier-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		final int dispatchLimit = threadCount * 2;
+		final Semaphore dispatchPermits = new Semaphore(dispatchLimit);
+		final ParallelLimit parallelLimit = (autotuner == null)? null : new ParallelLimit(autotuner.getThreadCount());
+		this.parallelLimit = parallelLimit;
+		try {
+			for (final File file : copyFiles) {
+				if (this.cancelled) {
+					break;
+				}
+				if (backend.isDirectory(file)) {
+					copyFile(file, false, true);
+					continue;
+				}
+				dispatch(executor, dispatchPermits, parallelLimit, () -> {
+					if (!this.cancelled) {
+						copyFile(file, false, true);
+					}
+				});
+				for (RetryEntry entry = retryQueue.poll(); entry != null && !this.cancelled; entry = retryQueue.poll()) {
+					final RetryEntry retryEntry = entry;
+					dispatch(executor, dispatchPermits, parallelLimit, () -> retry(retryEntry));
+				}
+			}
+			// files still on the workers may yet fail and be deferred, so wait for them as well as for retries
+			while ((pendingRetries.get() > 0 || dispatchPermits.availablePermits() < dispatchLimit) && !this.cancelled) {
+				final RetryEntry retryEntry = retryQueue.poll(100, TimeUnit.MILLISECONDS);
+				if (retryEntry != null) {
+					dispatch(executor, dispatchPermits, parallelLimit, () -> retry(retryEntry));
+				}
+			}
+		} catch (InterruptedException ie) {
+			log.warn("Interrupted while dispatching files to copy; cancelling copy");
+			this.cancelled = true;
+		} finally {
+			executor.shutdown();
+			try {
+				while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+					// keep waiting; workers stop promptly once cancelled
+				}
+			} catch (InterruptedException ie) {
+				log.warn("Interrupted while waiting for file copy workers to finish");
+				this.cancelled = true;
+				Thread.currentThread().interrupt();
+			}
+		}
+		return this.cancelled;
+	}
+	
+	/**
+	 * Hand a task to the copy worker pool, waiting for a dispatch permit first.  The permit is released
+	 * once the task has finished, including placing its file in the retry queue if the attempt failed.
+	 */
+	private void dispatch(ExecutorService executor, Semaphore dispatchPermits, ParallelLimit parallelLimit, Runnable task) throws InterruptedException {
+		dispatchPermits.acquire();
+		executor.execute(() -> {
+			try {
+				if (parallelLimit == null) {
+					task.run();
+				} else {
+					parallelLimit.acquireUninterruptibly();
+					try {
+						task.run();
+					} finally {
+						parallelLimit.release();
+					}
+				}
+			} finally {
+				dispatchPermits.release();
+			}
+		});
+	}
+	
+	/**
+	 * File waiting in the retry queue for its next attempt.
+	 */
+	private static class RetryEntry implements Delayed {
+		
+		private final File file;
+		private final boolean overwrite;	// overwrite flag of the first attempt
+		private final Exception exception;	// error of the last attempt
+		private final long dueNanos;
+		
+		private RetryEntry(File file, boolean overwrite, Exception exception, long delayMillis) {
+			this.file = file;
+			this.overwrite = overwrite;
+			this.exception = exception;
+			this.dueNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+		}
+
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		public int compareTo(Delayed other) {
+			return Long.compare(dueNanos, ((RetryEntry) other).dueNanos);
+		}
+	}
+	
+	/**
+	 * Place a file that failed to copy in the retry queue, if a retry policy is set, the copy is still 
+	 * running, the error is retryable, and the file has attempts left.  When the destination was not
+	 * being overwritten, it did not exist before the failed attempt, so a partial file left by the attempt 
+	 * is deleted for the retry to start over; a partial file that can be resumed from the journal is kept.
+	 * 
+	 * @return				whether or not the file was placed in the retry queue
+	 */
+	private boolean deferRetry(File file, File destFile, boolean isDirectory, boolean overwrite, Exception e) {
+		CopyRetryPolicy retryPolicy = this.retryPolicy;
+		if (!retriesDeferred || retryPolicy == null || cancelled || !retryPolicy.isRetryable(e)) {
+			failedAttempts.remove(file);
+			return false;
+		}
+		int attempts = failedAttempts.merge(file, 1, Integer::sum);
+		if (attempts >= retryPolicy.getMaxAttempts()) {
+			failedAttempts.remove(file);
+			return false;
+		}
+		long delay = retryPolicy.getDelayMillis(attempts);
+		log.info("Attempt " + attempts + " of " + retryPolicy.getMaxAttempts() + " to copy " + file.getAbsolutePath() 
+				+ " failed; retrying in " + delay + " ms: " + e.getMessage());
+		if (!overwrite && !isDirectory && !testMode && destFile != null 
+				&& (journal == null || journal.getResumeOffset(file) == 0)) {
+			backend.delete(destFile);
+		}
+		pendingRetries.incrementAndGet();
+		retryQueue.add(new RetryEntry(file, overwrite, e, delay));
+		return true;
+	}
+	
+	/**
+	 * Attempt a file from the retry queue again, overwriting the destination only if the first attempt did.
+	 */
+	private void retry(RetryEntry entry) {
+		try {
+			if (!cancelled) {
+				copyFile(entry.file, entry.overwrite, true);
+			}
+		} finally {
+			pendingRetries.decrementAndGet();
+		}
+	}
+	
+	/**
+	 * Move files still waiting in the retry queue, which happens when a copy is cancelled, to the copy error queue.
+	 */
+	private void abandonRetries() {
+		List<RetryEntry> remaining = new ArrayList<RetryEntry>(retryQueue);
+		retryQueue.clear();
+		for (RetryEntry entry : remaining) {
+			errorFiles.put(entry.file, new FileCopyError(entry.file, entry.exception));
+			fireFileCopied(entry.file, getDestinationFile(entry.file), backend.isDirectory(entry.file), CopyResult.ERROR);
+		}
+		pendingRetries.set(0);
+		failedAttempts.clear();
+	}
+	
+	/**
+	 * Copy a new list of files from the given source directory to the given destination directory.
+	 * Use this method when you wish to perform multiple copies using the same file copier.
+	 * 
+	 * @param files				files to copy
+	 * @param destination		destination directory
+	 * @param source			source directory
+	 */
+	public void copy(List<File> files, File destination, File source) {
+		initialize(files, destination, source);
+		copy();
+	}
+	
+	/**
+	 * Inform the file copier whether or not to overwrite a file that is in the overwrite queue.
+	 * 
+	 * @param file			a file (with source path) in the overwrite queue
+	 * @param overwrite		whether or not to overwrite the file of same name at the destination path
 	 *  
 	 * @return				whether or not the request completed successfully.
 	 */
-	public boolean resolveOverwrite(File file, boolean overwrite) {
-		if (!overwriteFiles.contains(file)) {
-			return false;
+	public boolean resolveOverwrite(File file, boolean overwrite) {
+		if (!overwriteFiles.remove(file)) {
+			return false;
+		}
+		if (overwrite) {
+			boolean copied = copyFile(file, true, false);
+			flushResolved();
+			return copied;
+		}
+		return true;
+	}
+	
+	/**
+	 * Inform the file copier whether or not to retry copying a file that is in the copy error queue.
+	 * 
+	 * @param file			a file (with source path) in the copy error queue
+	 * @param retry			whether or not to retry copying the file
+	 * 
+	 * @return				whether or not the request completed successfully.
+	 */
+	public boolean resolveError(File file, boolean retry) {
+		if (errorFiles.remove(file) == null) {
+			return false;
+		}
+		if (retry) {
+			boolean copied = copyFile(file, false, false);
+			flushResolved();
+			return copied;
+		}
+		return true;
+	}
+	
+	/**
+	 * Force files copied when resolving the overwrite and error queues to disk without blocking the caller.
+	 */
+	private void flushResolved() {
+		if (syncQueue != null) {
+			syncQueue.flushLater();
+		}
+	}
+
+	/**
+	 * Copy a single file, placing it in the appropriate queue.  Files copied as part of a copy 
+	 * operation are throttled; files copied when resolving the overwrite and error queues are not,
+	 * as resolution is typically requested from the event dispatch thread.
+	 */
+	private boolean copyFile(File file, boolean overwrite, boolean throttled) {
+		if (throttled) {
+			try {
+				throttle.acquireFile();
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (journal != null && journal.isCompleted(file)) {
+			// completed on a previous run; report as skipped without examining the file again
+			boolean isDirectory = journal.isCompletedDirectory(file);
+			File destFile = getDestinationFile(file);
+			fireFileCopying(file, destFile, isDirectory);
+			recordResult(CopyResult.SKIPPED, file);
+			fireFileCopied(file, destFile, isDirectory, CopyResult.SKIPPED);
+			return false;
+		}
+		if (!overwrite && !plannedDirectories.isEmpty() && copyPlannedDirectory(file)) {
+			return true;
+		}
+		if (syncMode && !overwrite && isNativeIo() && syncFile(file)) {
+			return false;
+		}
+		if (linkBackupPath != null && !overwrite && isNativeIo() && linkFile(file)) {
+			return true;
+		}
+		if (smallFileThreshold > 0 && isNativeIo() && !isVerified(file)) {
+			Boolean copied = copySmallFile(file, overwrite, throttled);
+			if (copied != null) {
+				return copied.booleanValue();
+			}
+		}
+		File destFile = getDestinationFile(file);
+		if (testMode) {
+			log.info("Simulating copy of file " + file.getAbsolutePath() + " to " + destFile.getAbsolutePath());
+		}
+		PlannedFile plannedFile = plannedAttributes.remove(file);	// used once, so retries examine the file again
+		boolean isDirectory = (plannedFile == null)? backend.isDirectory(file) : plannedFile.directory;
+		fireFileCopying(file, destFile, isDirectory);
+		boolean copied = false;
+		long resumeOffset = (journal == null || testMode || isDirectory)? 0 : journal.getResumeOffset(file);
+		//note: overwrite flag is only true after the first pass; for that reason, it is not necessary
+		//      to check for a skipped file when overwrite is true as it would have been caught in the first pass.
+		if (!overwrite && resumeOffset == 0 && backend.exists(destFile)) {
+			resolveExistingFile(file, destFile, isDirectory);
+		} else {
+			try {
+				if (testMode) {
+					copied = simulateCopyFileInternal(file, destFile);
+				} else {
+					copied = copyFileInternal(file, destFile, isDirectory, plannedFile != null, overwrite || resumeOffset > 0, true, resumeOffset, throttled);
+				}
+				if (copied) {
+					recordCopied(file, destFile, isDirectory);
+				}
+			} catch (Exception e) {
+				recordCopyError(file, destFile, isDirectory, overwrite, e);
+			}
+		}		
+		return copied;
+	}
+	
+	/**
+	 * Report a directory created with the other destination directories of the copy plan as copied.
+	 * 
+	 * @return				whether or not the file was a directory created by the copy plan
+	 */
+	private boolean copyPlannedDirectory(File file) {
+		File destFile = getDestinationFile(file);
+		if (destFile == null || !plannedDirectories.remove(destFile.getPath())) {
+			return false;
+		}
+		if (syncMode) {
+			// the directory did not exist before the copy, so it must not be seen as extraneous
+			File destDirectory = destFile.getParentFile();
+			if (destDirectory != null) {
+				getDestinationSnapshot(destDirectory).remove(destFile.getName());
+			}
+			if (deleteExtraneous) {
+				mirroredDirectories.add(destFile.getPath());
+			}
+		}
+		fireFileCopying(file, destFile, true);
+		recordCopied(file, destFile, true);
+		return true;
+	}
+	
+	/**
+	 * Skip a file whose destination already exists if the destination appears identical, or otherwise
+	 * place it in the overwrite queue.
+	 */
+	private void resolveExistingFile(File file, File destFile, boolean isDirectory) {
+		if (backend.isDirectory(destFile) ||
+				(backend.length(destFile) == backend.length(file) && backend.lastModified(destFile) == backend.lastModified(file))) {
+			if (isDirectory) {
+				knownDirectories.add(destFile.getPath());
+			}
+			recordResult(CopyResult.SKIPPED, file);
+			recordCompleted(file, isDirectory);
+			fireFileCopied(file, destFile, isDirectory, CopyResult.SKIPPED);
+		} else {
+			overwriteFiles.add(file);
+			fireFileCopied(file, destFile, isDirectory, CopyResult.ALREADY_EXISTS);
+		}
+	}
+	
+	private void recordCopied(File file, File destFile, boolean isDirectory) {
+		if (isDirectory) {
+			knownDirectories.add(destFile.getPath());
+		}
+		recordResult(CopyResult.COPIED, destFile);
+		fireFileCopied(file, destFile, isDirectory, CopyResult.COPIED);
+		try {
+			if (!testMode) {
+				backend.setLastModified(destFile, backend.lastModified(file));
+			}
+		} catch (Exception e) {
+			log.error("Unable to set last modified time on copied file " + destFile.getAbsolutePath());
+		}
+		recordWritten(file, destFile, isDirectory, true, -1);
+	}
+	
+	private void recordCopyError(File file, File destFile, boolean isDirectory, boolean overwrite, Exception e) {
+		if (e instanceof FileVerificationException) {
+			log.warn(e.getMessage());
+			backend.delete(destFile);
+		}
+		if (deferRetry(file, destFile, isDirectory, overwrite, e)) {
+			fireFileCopied(file, destFile, isDirectory, CopyResult.RETRYING);
+			return;
+		}
+		if (e instanceof FileVerificationException) {
+			errorFiles.put(file, new FileCopyError(file, e));
+			fireFileCopied(file, destFile, isDirectory, CopyResult.VERIFY_FAILED);
+		} else {
+			log.info("File copy error", e);
+			errorFiles.put(file, new FileCopyError(file, e));
+			fireFileCopied(file, destFile, isDirectory, CopyResult.ERROR);
+		}
+	}
+	
+	/**
+	 * Copy a single file as part of a copy driven by a FanOutFileCopier.
+	 * 
+	 * @param file			file to copy
+	 */
+	void copyFanOutFile(File file) {
+		copyFile(file, false, true);
+	}
+	
+	/**
+	 * Prepare to copy a regular file as part of a copy driven by a FanOutFileCopier, which writes the
+	 * file to the destination of each of its file copiers from a single read.  If the destination already 
+	 * exists, the file is skipped or placed in the overwrite queue.
+	 * 
+	 * @param file			regular file to copy
+	 * 
+	 * @return				destination file to write, or null if the file has already been handled
+	 */
+	File startFanOutFile(File file) {
+		if (journal != null && journal.isCompleted(file)) {
+			copyFile(file, false, false);	// reports the file as skipped
+			return null;
+		}
+		File destFile = getDestinationFile(file);
+		fireFileCopying(file, destFile, false);
+		if (backend.exists(destFile)) {
+			resolveExistingFile(file, destFile, false);
+			return null;
+		}
+		File destDirectory = destFile.getParentFile();
+		if (destDirectory != null && !knownDirectories.contains(destDirectory.getPath())) {
+			if (!backend.mkdirs(destDirectory) && !backend.isDirectory(destDirectory)) {
+				recordCopyError(file, destFile, false, false, new IOException("Unable to make directories for destination file."));
+				return null;
+			}
+			knownDirectories.add(destDirectory.getPath());
+		}
+		return destFile;
+	}
+	
+	/**
+	 * Report progress of a file being copied by a FanOutFileCopier.
+	 */
+	void fanOutProgress(File file, File destFile, long bytesCopied, boolean copyComplete) {
+		fireCopyProgress(file, destFile, bytesCopied, copyComplete);
+	}
+	
+	/**
+	 * Complete a file copied by a FanOutFileCopier.  If an exception is given, the partial destination
+	 * is deleted and the file placed in the copy error queue.
+	 * 
+	 * @param file			file copied
+	 * @param destFile		destination file written
+	 * @param exception		exception that stopped the copy, or null if the file was copied
+	 */
+	void completeFanOutFile(File file, File destFile, Exception exception) {
+		if (exception == null) {
+			recordCopied(file, destFile, false);
+		} else {
+			backend.delete(destFile);
+			recordCopyError(file, destFile, false, false, exception);
+		}
+	}
+	
+	/**
+	 * Complete a copy driven by a FanOutFileCopier.
+	 * 
+	 * @param cancelled		whether or not the copy was cancelled
+	 */
+	void completeFanOut(boolean cancelled) {
+		completeCopy(cancelled);
+	}
+	
+	/**
+	 * Decide whether a file is skipped or placed in the overwrite queue using the snapshot of its 
+	 * destination directory.  Only the source file is examined; the destination file is not.
+	 * 
+	 * @param file			file to copy
+	 * 
+	 * @return				whether or not the file was handled; if not, it must be copied by the regular path
+	 */
+	private boolean syncFile(File file) {
+		if (journal != null && journal.getResumeOffset(file) > 0) {
+			return false;
+		}
+		File destFile = getDestinationFile(file);
+		File destDirectory = destFile.getParentFile();
+		if (destDirectory == null) {
+			return false;
+		}
+		DirectorySnapshot.Entry entry = getDestinationSnapshot(destDirectory).remove(destFile.getName());
+		if (entry == null) {
+			return false;
+		}
+		BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+		} catch (IOException ioe) {
+			return false;
+		}
+		boolean isDirectory = attributes.isDirectory();
+		if (isDirectory) {
+			knownDirectories.add(destFile.getPath());
+			if (deleteExtraneous) {
+				mirroredDirectories.add(destFile.getPath());
+			}
+		}
+		fireFileCopying(file, destFile, isDirectory);
+		if (entry.isDirectory() || (entry.getSize() == attributes.size() 
+				&& entry.getLastModified() == attributes.lastModifiedTime().toMillis())) {
+			recordResult(CopyResult.SKIPPED, file);
+			recordCompleted(file, isDirectory);
+			fireFileCopied(file, destFile, isDirectory, CopyResult.SKIPPED);
+		} else {
+			overwriteFiles.add(file);
+			fireFileCopied(file, destFile, isDirectory, CopyResult.ALREADY_EXISTS);
+		}
+		return true;
+	}
+	
+	/**
+	 * Hard link a file to the same file in the previous backup if it is unchanged.  The file is unchanged if
+	 * the previous file has the same size and last modified time and, when comparing digests, the same digest.
+	 * 
+	 * @param file			file to copy
+	 * 
+	 * @return				whether or not the file was linked; if not, it must be copied by the regular path
+	 */
+	private boolean linkFile(File file) {
+		if (journal != null && journal.getResumeOffset(file) > 0) {
+			return false;
+		}
+		File destFile = getDestinationFile(file);
+		File previousFile = getPreviousBackupFile(destFile);
+		if (previousFile == null) {
+			return false;
+		}
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+			BasicFileAttributes previousAttributes = Files.readAttributes(previousFile.toPath(), BasicFileAttributes.class);
+			if (!attributes.isRegularFile() || !previousAttributes.isRegularFile() || attributes.size() != previousAttributes.size()
+					|| attributes.lastModifiedTime().toMillis() != previousAttributes.lastModifiedTime().toMillis()) {
+				return false;
+			}
+			if (linkCompareDigests && !digestFile(file).getValue().equals(digestFile(previousFile).getValue())) {
+				return false;
+			}
+			File destDirectory = destFile.getParentFile();
+			if (destDirectory != null && !knownDirectories.contains(destDirectory.getPath())) {
+				if (!destDirectory.mkdirs() && !destDirectory.isDirectory()) {
+					return false;
+				}
+				knownDirectories.add(destDirectory.getPath());
+			}
+			Files.createLink(destFile.toPath(), previousFile.toPath());
+		} catch (FileAlreadyExistsException faee) {
+			return false;	// the regular path decides whether to skip or overwrite
+		} catch (IOException ioe) {
+			log.debug("Unable to link " + destFile.getAbsolutePath() + " to previous backup; file will be copied", ioe);
+			return false;
+		} catch (UnsupportedOperationException uoe) {
+			log.debug("Hard links are not supported for " + destFile.getAbsolutePath() + "; file will be copied");
+			return false;
+		}
+		recordResult(CopyResult.LINKED, destFile);
+		synchronized(listenerLock) {
+			fireFileCopying(file, destFile, false);
+			fireFileCopied(file, destFile, false, CopyResult.LINKED);
+		}
+		recordWritten(file, destFile, false, false, 0);
+		return true;
+	}
+	
+	/**
+	 * Delete the given destination file before it is overwritten if it has other hard links, such as a file
+	 * linked to a previous backup.  Overwriting such a file in place would change every link to it; once deleted,
+	 * the overwrite creates a new file and the other links are left as they were.  Nothing is done on file 
+	 * systems that do not report link counts.
+	 * 
+	 * @param destFile		destination file about to be overwritten
+	 * @throws IOException if the destination has other links and cannot be deleted
+	 */
+	private void unlinkShared(File destFile) throws IOException {
+		Path destPath = destFile.toPath();
+		int links;
+		try {
+			links = ((Number) Files.getAttribute(destPath, "unix:nlink", LinkOption.NOFOLLOW_LINKS)).intValue();
+		} catch (NoSuchFileException nsfe) {
+			return;
+		} catch (UnsupportedOperationException | IllegalArgumentException e) {
+			return;		// link counts are not available; such file systems are not used for link mode
+		}
+		if (links > 1 && Files.isRegularFile(destPath, LinkOption.NOFOLLOW_LINKS)) {
+			log.debug("Unlinking " + destFile.getAbsolutePath() + " from its other " + (links - 1) + " link(s) before overwriting it");
+			Files.delete(destPath);
+		}
+	}
+	
+	/**
+	 * Get the file in the previous backup corresponding to the given destination file.
+	 * 
+	 * @param destFile		destination file
+	 * 
+	 * @return				file in the previous backup, or null if the destination file is not within the destination path
+	 */
+	private File getPreviousBackupFile(File destFile) {
+		if (destFile == null) {
+			return null;
+		}
+		String destFilePath = destFile.getAbsolutePath();
+		if (!destFilePath.startsWith(linkDestinationPath)) {
+			return null;
+		}
+		return new File(linkBackupPath + destFilePath.substring(linkDestinationPath.length()));
+	}
+	
+	private DirectorySnapshot getDestinationSnapshot(File destDirectory) {
+		return destinationSnapshots.computeIfAbsent(destDirectory.getPath(), path -> new DirectorySnapshot(destDirectory));
+	}
+	
+	/**
+	 * Delete the destination entries that were not claimed by any file copied and that no longer exist in 
+	 * the source directory.  Only the destination directories of source directories that were part of the 
+	 * copy are examined.  Directories are deleted along with their contents.
+	 */
+	private void deleteExtraneousFiles() {
+		if (sourcePath == null || pathGenerator != null) {
+			log.warn("Extraneous files can only be deleted when copying from a source directory; no files deleted");
+			return;
+		}
+		for (String mirroredDirectory : mirroredDirectories) {
+			DirectorySnapshot snapshot = getDestinationSnapshot(new File(mirroredDirectory));
+			String destDirectoryPath = snapshot.getDirectory().getAbsolutePath();
+			if (!destDirectoryPath.startsWith(destinationPath)) {
+				continue;
+			}
+			File sourceDirectory = new File(sourcePath + destDirectoryPath.substring(destinationPath.length()));
+			for (String name : snapshot.getRemainingNames()) {
+				if (this.cancelled) {
+					return;
+				}
+				if (new File(sourceDirectory, name).exists()) {
+					continue;
+				}
+				File destFile = new File(snapshot.getDirectory(), name);
+				if (testMode) {
+					log.info("Simulating delete of extraneous file " + destFile.getAbsolutePath());
+				} else {
+					try {
+						delete(destFile.toPath());
+					} catch (IOException ioe) {
+						log.error("Unable to delete extraneous file " + destFile.getAbsolutePath(), ioe);
+						continue;
+					}
+				}
+				deletedFiles.add(destFile);
+			}
+		}
+		if (deletedFiles.size() > 0) {
+			log.info("Deleted " + deletedFiles.size() + " extraneous files and directories from destination");
+		}
+	}
+	
+	/**
+	 * Delete the given file or directory, along with any contents.  Symbolic links are deleted rather than followed.
+	 */
+	static void delete(Path path) throws IOException {
+		Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+			@Override
+			public FileVisitResult postVisitDirectory(Path directory, IOException ioe) throws IOException {
+				if (ioe != null) {
+					throw ioe;
+				}
+				Files.delete(directory);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+	
+	/**
+	 * Copy a file through the small file fast path, if it qualifies.  The source is examined with a single 
+	 * attribute read; if it is a regular file within the small file threshold, the destination is also examined
+	 * with a single attribute read, and the file is read whole into this thread's buffer and written in one call.
+	 * 
+	 * @param file			file to copy
+	 * @param overwrite		whether or not to overwrite an existing destination file
+	 * @param throttled		whether or not the copy is subject to the throttle
+	 * 
+	 * @return				whether or not the file was copied, or null if the file must be copied by the regular path
+	 */
+	private Boolean copySmallFile(File file, boolean overwrite, boolean throttled) {
+		BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+		} catch (IOException ioe) {
+			return null;
+		}
+		if (!attributes.isRegularFile() || attributes.size() > smallFileThreshold) {
+			return null;
+		}
+		File destFile = getDestinationFile(file);
+		Path destPath = destFile.toPath();
+		CopyResult result = CopyResult.COPIED;
+		Exception exception = null;
+		if (!overwrite) {
+			try {
+				BasicFileAttributes destAttributes = Files.readAttributes(destPath, BasicFileAttributes.class);
+				if (destAttributes.isDirectory() || (destAttributes.size() == attributes.size() 
+						&& destAttributes.lastModifiedTime().toMillis() == attributes.lastModifiedTime().toMillis())) {
+					result = CopyResult.SKIPPED;
+				} else {
+					result = CopyResult.ALREADY_EXISTS;
+				}
+			} catch (NoSuchFileException nsfe) {
+				// destination does not exist
+			} catch (IOException ioe) {
+				return null;
+			}
+		}
+		if (result == CopyResult.COPIED) {
+			if (cancelled) {
+				fireFileCopying(file, destFile, false);
+				return Boolean.FALSE;
+			}
+			try {
+				if (!writeSmallFile(file.toPath(), destFile, attributes, overwrite)) {
+					return null;
+				}
+				if (throttled) {
+					throttleBytes(attributes.size());
+				}
+			} catch (Exception e) {
+				result = CopyResult.ERROR;
+				exception = e;
+			}
+		}
+		switch (result) {
+		case COPIED:
+			recordResult(CopyResult.COPIED, destFile);
+			break;
+		case SKIPPED:
+			recordResult(CopyResult.SKIPPED, file);
+			break;
+		case ALREADY_EXISTS:
+			overwriteFiles.add(file);
+			break;
+		default:
+			// the error may be retried, so it is recorded the same way as for any other file
+			synchronized(listenerLock) {
+				fireFileCopying(file, destFile, false);
+				recordCopyError(file, destFile, false, overwrite, exception);
+			}
+			return Boolean.FALSE;
+		}
+		synchronized(listenerLock) {
+			fireFileCopying(file, destFile, false);
+			if (result == CopyResult.COPIED) {
+				fireCopyProgress(file, destFile, attributes.size(), true);
+			}
+			fireFileCopied(file, destFile, false, result);
+		}
+		if (result == CopyResult.COPIED) {
+			recordWritten(file, destFile, false, true, attributes.size());
+		} else if (result == CopyResult.SKIPPED) {
+			recordCompleted(file, false);
+		}
+		return Boolean.valueOf(result == CopyResult.COPIED);
+	}
+	
+	/**
+	 * Write a small file by reading it whole into this thread's buffer and writing the buffer in one call.
+	 * If the source no longer matches the size in the given attributes, nothing is written.
+	 * 
+	 * @param source		source file
+	 * @param destFile		destination file
+	 * @param attributes	source file attributes
+	 * @param overwrite		whether or not an existing destination file is being overwritten
+	 * 
+	 * @return				whether or not the file was written
+	 * @throws IOException
+	 */
+	private boolean writeSmallFile(Path source, File destFile, BasicFileAttributes attributes, boolean overwrite) throws IOException {
+		ByteBuffer buffer = smallFileBuffers.get();
+		buffer.clear();
+		try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+			while (buffer.hasRemaining() && in.read(buffer) >= 0) {
+				// buffer is one byte larger than the threshold, so a file that has grown past it will fill it 
+			}
+		}
+		if (buffer.position() != attributes.size()) {
+			return false;
+		}
+		File destDirectory = destFile.getParentFile();
+		if (destDirectory != null && !knownDirectories.contains(destDirectory.getPath())) {
+			if (!destDirectory.mkdirs() && !destDirectory.isDirectory()) {
+				throw new IOException("Unable to make directories for destination file.");
+			}
+			knownDirectories.add(destDirectory.getPath());
+		}
+		if (overwrite) {
+			unlinkShared(destFile);
+		}
+		Path destPath = destFile.toPath();
+		buffer.flip();
+		try (FileChannel out = FileChannel.open(destPath, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (buffer.hasRemaining()) {
+				out.write(buffer);
+			}
+		}
+		try {
+			Files.setLastModifiedTime(destPath, attributes.lastModifiedTime());
+		} catch (IOException ioe) {
+			log.error("Unable to set last modified time on copied file " + destFile.getAbsolutePath());
+		}
+		return true;
+	}
+	
+	private void recordResult(CopyResult result, File file) {
+		results.record(result, file);
+		resultCounts.incrementAndGet(result.ordinal());
+	}
+	
+	/**
+	 * Record a file written to the destination as completed, once it is durable if a durability mode is set.
+	 * 
+	 * @param file			source file
+	 * @param destFile		destination file or directory
+	 * @param isDirectory	whether or not the file is a directory
+	 * @param dataWritten	whether or not file data was written, rather than only a directory entry
+	 * @param bytes			bytes written, or -1 if not known
+	 */
+	private void recordWritten(File file, File destFile, boolean isDirectory, boolean dataWritten, long bytes) {
+		FileSyncQueue syncQueue = this.syncQueue;
+		if (syncQueue == null || !isNativeIo()) {
+			recordCompleted(file, isDirectory);
+		} else {
+			if (bytes < 0) {
+				bytes = (isDirectory || durabilityMode != DurabilityMode.GROUP_COMMIT)? 0 : destFile.length();
+			}
+			syncQueue.add(file, destFile, isDirectory, dataWritten && !isDirectory, bytes);
 		}
-		overwriteFiles.remove(file);
-		if (overwrite) {
-			return copyFile(file, true);
+	}
+	
+	/**
+	 * Record files that have been forced to disk as completed and notify durability listeners.
+	 */
+	private void filesSynced(List<FileSyncQueue.Entry> entries) {
+		List<File> durableFiles = new ArrayList<File>(entries.size());
+		for (FileSyncQueue.Entry entry : entries) {
+			recordCompleted(entry.getFile(), entry.isDirectory());
+			durableFiles.add(entry.getFile());
+		}
+		fireFilesDurable(durableFiles);
+	}
+	
+	private void recordCompleted(File file, boolean isDirectory) {
+		if (journal != null && !testMode) {
+			try {
+				journal.recordCompleted(file, isDirectory);
+			} catch (IOException ioe) {
+				log.error("Unable to record completed file in copy journal: " + file.getAbsolutePath(), ioe);
+			}
 		}
-		return true;
 	}
 	
 	/**
-	 * Inform the file copier whether or not to retry copying a file that is in the copy error queue.
+	 * Enable verification by computing a CRC32C digest of each file as it is copied and comparing it
+	 * with a digest of the destination read back after the copy.
+	 */
+	public void enableVerification() {
+		enableVerification(VerifyMode.REREAD_DESTINATION, FileDigest.Algorithm.CRC32C);
+	}
+	
+	/**
+	 * Enable verification of copied files.  REREAD_DESTINATION is the only mode that checks the destination:
+	 * it is read back and its digest compared with the digest computed while copying, at the cost of one 
+	 * extra read per file.  With DIGEST, the digest computed while copying is only compared with the expected
+	 * digests set for source files, which detects a changed source but not a bad write; files without an 
+	 * expected digest are copied unverified and are not reported to verify listeners.  A mode of NONE 
+	 * disables verification.
 	 * 
-	 * @param file			a file (with source path) in the copy error queue
-	 * @param retry			whether or not to retry copying the file
+	 * @param verifyMode		verification mode
+	 * @param algorithm			digest algorithm
+	 */
+	public void enableVerification(VerifyMode verifyMode, FileDigest.Algorithm algorithm) {
+		this.verifyMode = verifyMode;
+		this.digestAlgorithm = algorithm;
+	}
+	
+	public VerifyMode getVerifyMode() {
+		return verifyMode;
+	}
+	
+	/**
+	 * Set the expected digests for source files, such as digests stored from an earlier copy.  Digests
+	 * are hexadecimal strings computed with the verification algorithm.
 	 * 
-	 * @return				whether or not the request completed successfully.
+	 * @param expectedDigests	map of source file to expected digest
 	 */
-	public boolean resolveError(File file, boolean retry) {
-		FileCopyError fileCopyError = null;
-		for (FileCopyError fce : errorFiles) {
-			if (fce.getFile().equals(file)) {
-				fileCopyError = fce;
-				break;
-			}
+	public void setExpectedDigests(Map<File, String> expectedDigests) {
+		this.expectedDigests = expectedDigests;
+	}
+	
+	/**
+	 * Enable the small file fast path for files no larger than the default small file threshold.
+	 */
+	public void enableSmallFileFastPath() {
+		enableSmallFileFastPath(DEFAULT_SMALL_FILE_THRESHOLD);
+	}
+	
+	/**
+	 * Enable the small file fast path for files no larger than the given threshold.  Each copy thread 
+	 * keeps a direct buffer of the threshold size.  A threshold of 0 disables the fast path.
+	 * 
+	 * @param threshold			largest file size in bytes to copy through the fast path
+	 */
+	public void enableSmallFileFastPath(int threshold) {
+		if (threshold < 0 || threshold > MAX_SMALL_FILE_THRESHOLD) {
+			throw new IllegalArgumentException("Small file threshold must be between 0 and " + MAX_SMALL_FILE_THRESHOLD);
 		}
-		if (fileCopyError == null) {
-			return false;
+		this.smallFileThreshold = threshold;
+		this.smallFileBuffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(threshold + 1));
+	}
+	
+	public int getSmallFileThreshold() {
+		return smallFileThreshold;
+	}
+	
+	/**
+	 * Enable delta copy for overwritten files of at least the default delta copy threshold using the
+	 * default block size.
+	 */
+	public void enableDeltaCopy() {
+		enableDeltaCopy(DEFAULT_DELTA_COPY_THRESHOLD, DEFAULT_DELTA_BLOCK_SIZE);
+	}
+	
+	/**
+	 * Enable delta copy, which updates existing destination files of at least the given size in place 
+	 * when they are overwritten, comparing blocks of the given size and writing only those that differ.  
+	 * Both the source and destination are read in full, so delta copy trades extra reads for fewer writes;
+	 * it is of benefit where writes are slow or costly and changes are small, and of little benefit when 
+	 * data is inserted or removed near the start of a file.  Cancelling the copy leaves a file being updated 
+	 * in place partly updated instead of deleting it.  A block size of 0 disables delta copy.
+	 * 
+	 * @param threshold			minimum size in bytes of files to copy by delta
+	 * @param blockSize			size in bytes of the blocks to compare
+	 */
+	public void enableDeltaCopy(long threshold, int blockSize) {
+		if (threshold < 0) {
+			throw new IllegalArgumentException("Delta copy threshold must be >= 0");
 		}
-		errorFiles.remove(fileCopyError);
-		if (retry) {
-			return copyFile(file, false);			
+		if (blockSize < 0) {
+			throw new IllegalArgumentException("Block size must be >= 0");
 		}
-		return true;
+		this.deltaCopyThreshold = threshold;
+		this.deltaBlockSize = blockSize;
 	}
-
-	private boolean copyFile(File file, boolean overwrite) {
-		File destFile = getDestinationFile(file);
-		if (testMode) {
-			log.info("Simulating copy of file " + file.getAbsolutePath() + " to " + destFile.getAbsolutePath());
+	
+	/**
+	 * Get the total number of bytes written by delta copies since this file copier was created.
+	 * 
+	 * @return					bytes written by delta copies
+	 */
+	public long getDeltaBytesWritten() {
+		return deltaBytesWritten.get();
+	}
+	
+	/**
+	 * Get the total number of bytes that delta copies did not need to write because they were unchanged.
+	 * 
+	 * @return					bytes left unchanged by delta copies
+	 */
+	public long getDeltaBytesUnchanged() {
+		return deltaBytesUnchanged.get();
+	}
+	
+	/**
+	 * Enable sync mode without deleting extraneous destination files.
+	 */
+	public void enableSyncMode() {
+		enableSyncMode(false);
+	}
+	
+	/**
+	 * Enable sync mode, which decides which files to skip from a single listing of each destination
+	 * directory.  This greatly speeds up repeated copies to slow or network destinations where most files 
+	 * are unchanged.  When deleting extraneous files, destination files and directories that do not exist
+	 * in the source are deleted from each directory copied after the copy completes; this is only done when the copy is not cancelled
+	 * and a source directory is specified.
+	 * 
+	 * @param deleteExtraneous	whether or not to delete destination files that do not exist in the source
+	 */
+	public void enableSyncMode(boolean deleteExtraneous) {
+		this.syncMode = true;
+		this.deleteExtraneous = deleteExtraneous;
+	}
+	
+	public boolean isSyncMode() {
+		return syncMode;
+	}
+	
+	/**
+	 * Enable link mode using the given previous backup, which corresponds to the destination directory.
+	 * 
+	 * @param previousBackup	directory of the previous backup
+	 */
+	public void enableLinkMode(File previousBackup) {
+		if (destinationPath == null) {
+			throw new IllegalArgumentException("A destination root must be specified when using a path generator.");
 		}
-		boolean isDirectory = file.isDirectory();
-		fireFileCopying(file, destFile, isDirectory);
-		boolean copied = false;
-		//note: overwrite flag is only true after the first pass; for that reason, it is not necessary
-		//      to check for a skipped file when overwrite is true as it would have been caught in the first pass.
-		if (destFile.exists() && !overwrite) {
-			if (destFile.isDirectory() ||
-					(destFile.length() == file.length() && destFile.lastModified() == file.lastModified())) {
-				skippedFiles.add(file);
-				fireFileCopied(file, destFile, isDirectory, CopyResult.SKIPPED);
-			} else {
-				overwriteFiles.add(file);
-				fireFileCopied(file, destFile, isDirectory, CopyResult.ALREADY_EXISTS);
-			}
-		} else {
-			try {
-				if (testMode) {
-					copied = simulateCopyFileInternal(file, destFile);
-				} else {
-					copied = copyFileInternal(file, destFile, overwrite, true);
-				}
-				if (copied) {
-					copiedFiles.add(destFile);
-					fireFileCopied(file, destFile, isDirectory, CopyResult.COPIED);
-					try {
-						if (!testMode) {
-							destFile.setLastModified(file.lastModified());
-						}
-					} catch (Exception e) {
-						log.error("Unable to set last modified time on copied file " + destFile.getAbsolutePath());
-					}
-				}
-			} catch (Exception e) {
-				log.info("File copy error", e);
-				errorFiles.add(new FileCopyError(file, e));
-				fireFileCopied(file, destFile, isDirectory, CopyResult.ERROR);
-			}
-		}		
-		return copied;
+		enableLinkMode(previousBackup, new File(destinationPath), false);
 	}
-
+	
+	/**
+	 * Enable link mode, which hard links unchanged files to the same files in a previous backup rather
+	 * than copying them, so that each backup takes space only for the files that changed.  The destination 
+	 * root is the directory of the current backup that corresponds to the previous backup directory; it 
+	 * is needed when copying with a path generator.  Comparing digests reads both the source file and the 
+	 * previous file in full, using the verification algorithm, before a file is linked.  The previous backup
+	 * must be on the same file system as the destination for links to be created.  A linked destination that
+	 * is later overwritten, for example when a copy is run again into the same backup, is replaced by a new
+	 * file rather than written in place, so the previous backup is never changed.
+	 * 
+	 * @param previousBackup	directory of the previous backup, or null to disable link mode
+	 * @param destinationRoot	directory of the current backup corresponding to the previous backup
+	 * @param compareDigests	whether or not to also compare file digests before linking
+	 */
+	public void enableLinkMode(File previousBackup, File destinationRoot, boolean compareDigests) {
+		if (previousBackup == null) {
+			this.linkBackupPath = null;
+			return;
+		}
+		if (!previousBackup.isDirectory()) {
+			throw new IllegalArgumentException("Previous backup is not a valid directory: " + previousBackup.getAbsolutePath());
+		}
+		if (destinationRoot == null) {
+			throw new IllegalArgumentException("Destination root cannot be null.");
+		}
+		this.linkBackupPath = previousBackup.getAbsolutePath();
+		this.linkDestinationPath = destinationRoot.getAbsolutePath();
+		this.linkCompareDigests = compareDigests;
+	}
+	
+	public boolean isLinkMode() {
+		return linkBackupPath != null;
+	}
+	
+	/**
+	 * Enable cache bypass using the default chunk size.
+	 */
+	public void enableCacheBypass() {
+		enableCacheBypass(DEFAULT_CACHE_BYPASS_CHUNK_SIZE);
+	}
+	
+	/**
+	 * Enable cache bypass, which copies files with direct I/O so that the operating system page cache is
+	 * left undisturbed by the copy.  Direct I/O requires Java 10 or later and a file system that supports 
+	 * it; otherwise files are copied in chunks of the given size with each chunk forced to disk.  Copies 
+	 * that are verified or resumed from a journal do not use direct I/O.  A chunk size of 0 disables 
+	 * cache bypass.
+	 * 
+	 * @param chunkSize			size in bytes of each read and write
+	 */
+	public void enableCacheBypass(int chunkSize) {
+		if (chunkSize < 0) {
+			throw new IllegalArgumentException("Chunk size must be >= 0");
+		}
+		this.cacheBypassChunkSize = chunkSize;
+		this.directIoUnsupported = false;
+	}
+	
+	/**
+	 * Enable planning with files copied in list order.
+	 */
+	public void enablePlanning() {
+		enablePlanning(CopyOrder.LIST);
+	}
+	
+	/**
+	 * Enable planning, which examines all files before any are copied in order to check the destinations 
+	 * for space, create the destination directories together, and order the files.  The copy is not
+	 * started if any destination file store does not have enough usable space.  Planning is not done
+	 * when streaming scan is enabled, as the files to copy are not known until the scan is complete.
+	 * 
+	 * @param copyOrder			order to copy files in
+	 */
+	public void enablePlanning(CopyOrder copyOrder) {
+		if (copyOrder == null) {
+			throw new IllegalArgumentException("Copy order cannot be null");
+		}
+		this.copyOrder = copyOrder;
+	}
+	
+	/**
+	 * Get the plan of the current or last copy.
+	 * 
+	 * @return					copy plan, or null if the copy was not planned
+	 */
+	public CopyPlan getCopyPlan() {
+		return copyPlan;
+	}
+	
+	/**
+	 * Set the durability mode using the default batch sizes for group commit.
+	 * 
+	 * @param durabilityMode	durability mode
+	 */
+	public void setDurabilityMode(DurabilityMode durabilityMode) {
+		setDurabilityMode(durabilityMode, DEFAULT_SYNC_BATCH_FILES, DEFAULT_SYNC_BATCH_BYTES);
+	}
+	
+	/**
+	 * Set the durability mode, which determines when copied files and the directories containing them
+	 * are forced to disk.  In JOB_BARRIER mode, files are forced when the copy completes; in GROUP_COMMIT
+	 * mode, files are forced from a background thread in batches of the given number of files or bytes,
+	 * whichever is reached first, and when the copy completes; in PER_FILE mode, each file is forced as 
+	 * soon as it is copied.  Files are recorded as completed in the journal, and reported to any 
+	 * FileDurabilityListener, only once they are durable.
+	 * 
+	 * @param durabilityMode	durability mode
+	 * @param batchFiles		files per batch in group commit mode
+	 * @param batchBytes		bytes per batch in group commit mode
+	 */
+	public void setDurabilityMode(DurabilityMode durabilityMode, int batchFiles, long batchBytes) {
+		if (durabilityMode == null) {
+			throw new IllegalArgumentException("Durability mode cannot be null");
+		}
+		if (batchFiles < 1 || batchBytes < 1) {
+			throw new IllegalArgumentException("Batch files and bytes must be > 0");
+		}
+		if (syncQueue != null) {
+			syncQueue.sync();
+		}
+		this.durabilityMode = durabilityMode;
+		this.syncQueue = (durabilityMode == DurabilityMode.NONE)? null : new FileSyncQueue(durabilityMode, batchFiles, batchBytes, this::filesSynced);
+	}
+	
+	public DurabilityMode getDurabilityMode() {
+		return durabilityMode;
+	}
+	
+	/**
+	 * Enable autotuning with the default measurement window.
+	 */
+	public void enableAutotuning() {
+		enableAutotuning(CopyAutotuner.DEFAULT_WINDOW_MILLIS);
+	}
+	
+	/**
+	 * Enable autotuning, which adjusts the channel buffer size, and the number of files copied at once
+	 * when parallel mode is enabled, to the throughput measured while copying.  The thread count of 
+	 * parallel mode is the most files that will be copied at once.  Tuned values are remembered for the
+	 * destination file store and used to start later copies to it.  A window of 0 disables autotuning.
+	 * 
+	 * @param windowMillis		milliseconds of copying to measure throughput over before each adjustment
+	 */
+	public void enableAutotuning(long windowMillis) {
+		if (windowMillis < 0) {
+			throw new IllegalArgumentException("Window must be >= 0");
+		}
+		this.autotuneWindowMillis = windowMillis;
+	}
+	
+	/**
+	 * Enable sparse copy using the default block size.
+	 */
+	public void enableSparseCopy() {
+		enableSparseCopy(DEFAULT_SPARSE_BLOCK_SIZE);
+	}
+	
+	/**
+	 * Enable sparse copy, which skips writing blocks of the given size that are entirely zero so that 
+	 * they become holes in the destination.  Blocks should be a multiple of the file system block size
+	 * for holes to be created.  Sparse copy reads each file through a buffer rather than transferring it
+	 * directly between channels.  Range copies and direct I/O copies are not sparse.  A block size of 0 
+	 * disables sparse copy.
+	 * 
+	 * @param blockSize			size in bytes of the blocks to check for zeros
+	 */
+	public void enableSparseCopy(int blockSize) {
+		if (blockSize < 0) {
+			throw new IllegalArgumentException("Block size must be >= 0");
+		}
+		this.sparseBlockSize = blockSize;
+	}
+	
+	/**
+	 * Set whether or not to preallocate destination files.  When preallocating, a file that would not fit 
+	 * in the usable space of the destination is placed in the error queue before any of it is written.  Space
+	 * is checked rather than reserved, so other writers may still use it up while the file is copied.
+	 * 
+	 * @param preallocate		whether or not to preallocate destination files
+	 */
+	public void setPreallocate(boolean preallocate) {
+		this.preallocate = preallocate;
+	}
+	
+	/**
+	 * Set when files are copied through a pipeline of a reader and a writer thread.  With CROSS_DEVICE,
+	 * the default, files are pipelined when the source and destination are in different file stores.
+	 * 
+	 * @param pipelineMode		when to pipeline copies
+	 * @param ringSize			number of buffers in the ring between the reader and the writer
+	 */
+	public void setPipelineMode(PipelineMode pipelineMode, int ringSize) {
+		if (ringSize < 2) {
+			throw new IllegalArgumentException("Ring size must be > 1");
+		}
+		this.pipelineMode = pipelineMode;
+		this.pipelineRingSize = ringSize;
+		this.pipelineRings.clear();
+	}
+	
+	public PipelineMode getPipelineMode() {
+		return pipelineMode;
+	}
+	
+	/**
+	 * Set the journal to record copy progress in.  The journal should be the same journal used for any
+	 * previous attempts of the same copy.  The file copier does not close the journal.
+	 * 
+	 * @param journal			journal to record progress in, or null to not journal
+	 */
+	public void setJournal(FileCopyJournal journal) {
+		this.journal = journal;
+	}
+	
+	public FileCopyJournal getJournal() {
+		return journal;
+	}
+	
+	/**
+	 * Set how many bytes of a file are copied between journal checkpoints.  Each checkpoint forces the
+	 * destination file to disk, so smaller intervals lose less work on interruption at some cost to speed.
+	 * 
+	 * @param checkpointInterval	bytes copied between checkpoints
+	 */
+	public void setJournalCheckpointInterval(long checkpointInterval) {
+		if (checkpointInterval < 1) {
+			throw new IllegalArgumentException("Checkpoint interval must be > 0");
+		}
+		this.journalCheckpointInterval = checkpointInterval;
+	}
+	
 	/**
 	 * Set the size of the buffer used when copying files.
 	 * 
@@ -564,7 +3163,8 @@ public class FileCopier {
 	}
 	
 	/**
-	 * Get the size of the buffer used when copying files.
+	 * Get the size of the buffer used when copying files, as configured.  While autotuning, the chunk size
+	 * chosen by the autotuner is used instead.
 	 * 
 	 * @return					buffer size in bytes
 	 */
@@ -572,25 +3172,103 @@ public class FileCopier {
 		return channelBufferSize;
 	}
 	
+	private long getChunkSize() {
+		long tunedChunkSize = this.tunedChunkSize;
+		return (tunedChunkSize > 0)? tunedChunkSize : channelBufferSize;
+	}
+	
+	/**
+	 * Set the sink to record copied, skipped, and linked files to.  The sink is used for all later copies;
+	 * the file copier does not close it.
+	 * 
+	 * @param resultSink		result sink, or null to keep results in memory
+	 */
+	public void setResultSink(FileCopyResultSink resultSink) {
+		this.resultSink = resultSink;
+		this.results = (resultSink == null)? new FileCopyResultList() : resultSink;
+	}
+	
+	public FileCopyResultSink getResultSink() {
+		return results;
+	}
+	
+	/**
+	 * Set the backend to perform file operations with.  Operations specific to local file systems, 
+	 * including the small file fast path, sync and link modes, delta copy, direct I/O, preallocation, 
+	 * and durability modes, are only used with a NioFileCopyBackend; with other backends, files are 
+	 * copied through the backend's channels.  Streaming scans always walk the local file systems.
+	 * 
+	 * @param backend			backend to perform file operations with
+	 */
+	public void setBackend(FileCopyBackend backend) {
+		if (backend == null) {
+			throw new IllegalArgumentException("Backend cannot be null.");
+		}
+		this.backend = backend;
+	}
+	
+	public FileCopyBackend getBackend() {
+		return backend;
+	}
+	
+	/**
+	 * Set the policy for retrying files that fail to copy.  While a copy runs, files that fail with a 
+	 * retryable error are placed in a retry queue and attempted again after a delay, while the copy 
+	 * continues with other files; a RETRYING result is reported for each failed attempt that will be 
+	 * retried.  Only files that fail every attempt are placed in the copy error queue.  Files copied when 
+	 * resolving the queues are not retried.
+	 * 
+	 * @param retryPolicy		retry policy, or null to place files in the copy error queue on their first failure
+	 */
+	public void setRetryPolicy(CopyRetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+	
+	public CopyRetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+	
+	/**
+	 * Whether or not files are being copied on the local file systems, allowing operations specific to them.
+	 * A FanOutFileCopier only writes files for a file copier from its single read when this is true.
+	 */
+	boolean isNativeIo() {
+		return !testMode && backend instanceof NioFileCopyBackend;
+	}
+	
 	/**
 	 * Get the list of files in the overwrite queue.  These files were not copied because  
 	 * non-identical files with the same names already exist at the destination location.
+	 * The list returned is a copy of the queue at the time of the call.
 	 * 
 	 * @return		list of files in the overwrite queue
 	 */
 	public List<File> getOverwriteFiles() {
-		return overwriteFiles;
+		synchronized(overwriteFiles) {
+			return new ArrayList<File>(overwriteFiles);
+		}
+	}
+	
+	public int getOverwriteFileCount() {
+		return overwriteFiles.size();
 	}
 
 	/**
 	 * Get the list of copy errors in the copy error queue.  These copy errors are for files
 	 * that were not successfully copied.  Each copy error contains the file that was to be 
-	 * copied and the exception that occurred when the copy was attempted.  
+	 * copied and the exception that occurred when the copy was attempted.  The list returned is a 
+	 * copy of the queue at the time of the call.
 	 * 
 	 * @return		list of copy errors in the copy error queue
 	 */
 	public List<FileCopyError> getErrorFiles() {
-		return errorFiles;
+		synchronized(errorFiles) {
+			return new ArrayList<FileCopyError>(errorFiles.values());
+		}
+	}
+	
+	public int getErrorFileCount() {
+		return errorFiles.size();
 	}
 
 	/**
@@ -600,7 +3278,11 @@ public class FileCopier {
 	 * @return		list of skipped files
 	 */
 	public List<File> getSkippedFiles() {
-		return skippedFiles;
+		return results.getFiles(CopyResult.SKIPPED);
+	}
+	
+	public long getSkippedFileCount() {
+		return resultCounts.get(CopyResult.SKIPPED.ordinal());
 	}
 	
 	/**
@@ -610,6 +3292,33 @@ public class FileCopier {
 	 * @return		list of copied files
 	 */
 	public List<File> getCopiedFiles() {
-		return copiedFiles;
+		return results.getFiles(CopyResult.COPIED);
+	}
+	
+	public long getCopiedFileCount() {
+		return resultCounts.get(CopyResult.COPIED.ordinal());
+	}
+	
+	/**
+	 * Get the list of extraneous destination files and directories deleted in sync mode.
+	 * 
+	 * @return		list of deleted files
+	 */
+	public List<File> getDeletedFiles() {
+		return deletedFiles;
+	}
+	
+	/**
+	 * Get the list of files hard linked to a previous backup in link mode.  These are the files at 
+	 * their destination.
+	 * 
+	 * @return		list of linked files
+	 */
+	public List<File> getLinkedFiles() {
+		return results.getFiles(CopyResult.LINKED);
+	}
+	
+	public long getLinkedFileCount() {
+		return resultCounts.get(CopyResult.LINKED.ordinal());
 	}
 }
@@ -0,0 +1,96 @@
+package org.xandercat.swing.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * FileCopyBackend performs the file operations a FileCopier uses to copy files: examining files,
+ * making directories, opening channels, transferring bytes between them, and setting modification
+ * times.  The default backend is NioFileCopyBackend, which operates on the local file systems;
+ * SimulatedFileCopyBackend keeps files in memory on simulated devices.
+ *
+ * Operations are called from the copy threads, possibly concurrently, so implementations must be thread safe.
+ *
+ * @author Scott C Arnold
+ */
+public interface FileCopyBackend {
+
+	public boolean exists(File file);
+
+	public boolean isDirectory(File file);
+
+	/**
+	 * Get the length of a file, or 0 if the file does not exist.
+	 *
+	 * @param file				file to get length of
+	 *
+	 * @return					length of the file
+	 */
+	public long length(File file);
+
+	/**
+	 * Get the last modified time of a file, or 0 if the file does not exist.
+	 *
+	 * @param file				file to get last modified time of
+	 *
+	 * @return					last modified time of the file in milliseconds
+	 */
+	public long lastModified(File file);
+
+	/**
+	 * Make a directory along with any missing parent directories.
+	 *
+	 * @param directory			directory to make
+	 *
+	 * @return					whether or not the directory was made; false if it already exists
+	 */
+	public boolean mkdirs(File directory);
+
+	public boolean setLastModified(File file, long time);
+
+	/**
+	 * Delete a file or empty directory.
+	 *
+	 * @param file				file to delete
+	 *
+	 * @return					whether or not the file was deleted
+	 */
+	public boolean delete(File file);
+
+	/**
+	 * Open a channel to read a file from.
+	 *
+	 * @param file				file to read
+	 *
+	 * @return					channel to read from
+	 * @throws IOException
+	 */
+	public FileChannel openInput(File file) throws IOException;
+
+	/**
+	 * Open a channel to write a file to.  When resuming, the file is truncated to the resume offset and
+	 * the channel is positioned there; otherwise the file is created or truncated.
+	 *
+	 * @param file				file to write
+	 * @param resumeOffset		offset to resume a partial file from, or 0 to replace the file
+	 *
+	 * @return					channel to write to
+	 * @throws IOException
+	 */
+	public FileChannel openOutput(File file, long resumeOffset) throws IOException;
+
+	/**
+	 * Transfer bytes from a channel opened by this backend for input to a channel opened by this
+	 * backend for output, at the output channel's position.
+	 *
+	 * @param in				channel to read from
+	 * @param position			position in the input channel to start reading from
+	 * @param count				maximum number of bytes to transfer
+	 * @param out				channel to write to
+	 *
+	 * @return					number of bytes transferred
+	 * @throws IOException
+	 */
+	public long transfer(FileChannel in, long position, long count, FileChannel out) throws IOException;
+}
@@ -0,0 +1,240 @@
+package org.xandercat.swing.file;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * FileCopyJournal is an append-only on-disk record of the progress of a FileCopier, allowing an
+ * interrupted copy to be restarted without starting over.  The journal records each file that has
+ * been fully processed and, for large files, the offset up to which the destination is known to be
+ * durable.  A restarted copy using the same journal skips completed files without examining them
+ * again and continues partially copied files from their last recorded offset.
+ *
+ * Completed records are flushed to the journal file in batches, so a crash may lose the most recent
+ * completed records; those files are simply examined again on restart.  Partial copy offsets are
+ * always forced to disk as they are recorded.
+ *
+ * Each record is a single line of tab-separated fields with the source path last, and is only valid
+ * once its terminating new line has been written.  A record left incomplete by a crash is truncated
+ * from the journal file when the journal is opened, so a partial path is never taken as a record.
+ *
+ * @author Scott C Arnold
+ */
+public class FileCopyJournal {
+
+	private static final Logger log = LogManager.getLogger(FileCopyJournal.class);
+	private static final String COMPLETED_FILE = "F";
+	private static final String COMPLETED_DIRECTORY = "D";
+	private static final String PARTIAL = "P";
+	private static final int COMPLETED_FLUSH_INTERVAL = 256;
+
+	private static class PartialCopy {
+		private long offset;
+		private long sourceLength;
+		private long sourceLastModified;
+	}
+
+	private File journalFile;
+	private Map<String, Boolean> completed = new HashMap<String, Boolean>();	// path -> isDirectory
+	private Map<String, PartialCopy> partials = new HashMap<String, PartialCopy>();
+	private FileOutputStream journalOut;
+	private Writer writer;
+	private int unflushedRecords;
+
+	/**
+	 * Open the given journal, loading any records already in it.  If the journal file does not exist,
+	 * it will be created.
+	 *
+	 * @param journalFile		journal file
+	 * @throws IOException
+	 */
+	public FileCopyJournal(File journalFile) throws IOException {
+		this.journalFile = journalFile;
+		if (journalFile.exists()) {
+			truncateIncompleteRecord();
+			load();
+		}
+		this.journalOut = new FileOutputStream(journalFile, true);
+		this.writer = new BufferedWriter(new OutputStreamWriter(journalOut, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Truncate the journal file after its last new line, removing a record that was not completely written.
+	 */
+	private void truncateIncompleteRecord() throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+			long length = file.length();
+			long end = length;
+			while (end > 0) {
+				file.seek(end - 1);
+				if (file.read() == '\n') {
+					break;
+				}
+				end--;
+			}
+			if (end < length) {
+				log.warn("Truncated incomplete record of " + (length - end) + " bytes from copy journal " + journalFile.getAbsolutePath());
+				file.setLength(end);
+			}
+		}
+	}
+
+	private void load() throws IOException {
+		int ignored = 0;
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split("\t", 5);
+				try {
+					if (fields.length == 2 && COMPLETED_FILE.equals(fields[0])) {
+						completed.put(fields[1], Boolean.FALSE);
+						partials.remove(fields[1]);
+					} else if (fields.length == 2 && COMPLETED_DIRECTORY.equals(fields[0])) {
+						completed.put(fields[1], Boolean.TRUE);
+					} else if (fields.length == 5 && PARTIAL.equals(fields[0])) {
+						PartialCopy partial = new PartialCopy();
+						partial.offset = Long.parseLong(fields[1]);
+						partial.sourceLength = Long.parseLong(fields[2]);
+						partial.sourceLastModified = Long.parseLong(fields[3]);
+						partials.put(fields[4], partial);
+					} else {
+						ignored++;
+					}
+				} catch (NumberFormatException nfe) {
+					ignored++;
+				}
+			}
+		}
+		if (ignored > 0) {
+			log.warn("Ignored " + ignored + " incomplete records in copy journal " + journalFile.getAbsolutePath());
+		}
+		log.info("Loaded copy journal " + journalFile.getAbsolutePath() + " with " + completed.size()
+				+ " completed and " + partials.size() + " partial entries");
+	}
+
+	public File getJournalFile() {
+		return journalFile;
+	}
+
+	/**
+	 * Returns whether or not the given file has been recorded as completed.
+	 *
+	 * @param file			source file
+	 *
+	 * @return				whether or not the file was completed
+	 */
+	public synchronized boolean isCompleted(File file) {
+		return completed.containsKey(file.getAbsolutePath());
+	}
+
+	/**
+	 * Returns whether or not the given completed file was recorded as a directory.
+	 *
+	 * @param file			completed source file
+	 *
+	 * @return				whether or not the completed file is a directory
+	 */
+	public synchronized boolean isCompletedDirectory(File file) {
+		return Boolean.TRUE.equals(completed.get(file.getAbsolutePath()));
+	}
+
+	/**
+	 * Get the offset from which a partially copied file can be resumed.  If the source file has
+	 * changed since the offset was recorded, the file cannot be resumed and 0 is returned.
+	 *
+	 * @param file			source file
+	 *
+	 * @return				offset to resume from, or 0 if the file cannot be resumed
+	 */
+	public synchronized long getResumeOffset(File file) {
+		PartialCopy partial = partials.get(file.getAbsolutePath());
+		if (partial == null) {
+			return 0;
+		}
+		if (partial.sourceLength != file.length() || partial.sourceLastModified != file.lastModified()) {
+			log.info("Source file changed since partial copy; copy will restart: " + file.getAbsolutePath());
+			return 0;
+		}
+		return partial.offset;
+	}
+
+	/**
+	 * Record that the given file has been fully processed.  The record is written to the journal file
+	 * once enough records have accumulated or when the journal is next synced.
+	 *
+	 * @param file			source file
+	 * @param isDirectory	whether or not the source file is a directory
+	 * @throws IOException
+	 */
+	public synchronized void recordCompleted(File file, boolean isDirectory) throws IOException {
+		String path = file.getAbsolutePath();
+		completed.put(path, Boolean.valueOf(isDirectory));
+		partials.remove(path);
+		writer.write((isDirectory? COMPLETED_DIRECTORY : COMPLETED_FILE) + "\t" + path + "\n");
+		if (++unflushedRecords >= COMPLETED_FLUSH_INTERVAL) {
+			writer.flush();
+			unflushedRecords = 0;
+		}
+	}
+
+	/**
+	 * Record that the destination of the given file is durable up to the given offset.  The
+	 * destination must already have been forced to disk up to this offset; the record itself is
+	 * forced to disk before this method returns.
+	 *
+	 * @param file			source file
+	 * @param offset		offset up to which the destination is durable
+	 * @throws IOException
+	 */
+	public synchronized void recordProgress(File file, long offset) throws IOException {
+		PartialCopy partial = new PartialCopy();
+		partial.offset = offset;
+		partial.sourceLength = file.length();
+		partial.sourceLastModified = file.lastModified();
+		String path = file.getAbsolutePath();
+		partials.put(path, partial);
+		writer.write(PARTIAL + "\t" + offset + "\t" + partial.sourceLength + "\t" + partial.sourceLastModified + "\t" + path + "\n");
+		writer.flush();
+		unflushedRecords = 0;
+		journalOut.getFD().sync();
+	}
+
+	/**
+	 * Force all records written so far to disk.
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void sync() throws IOException {
+		writer.flush();
+		unflushedRecords = 0;
+		journalOut.getFD().sync();
+	}
+
+	/**
+	 * Close the journal.  The journal file is left in place; delete it once the copy it records
+	 * no longer needs to be resumed.
+	 */
+	public synchronized void close() {
+		try {
+			writer.flush();
+			journalOut.getFD().sync();
+			writer.close();
+		} catch (IOException ioe) {
+			log.error("Unable to close copy journal " + journalFile.getAbsolutePath(), ioe);
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package org.xandercat.swing.file;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FileCopyResultList keeps the results of a FileCopier in memory.  This is the default result sink; it 
+ * uses memory in proportion to the number of files copied.
+ * 
+ * @author Scott C Arnold
+ */
+public class FileCopyResultList implements FileCopyResultSink {
+
+	private Map<FileCopier.CopyResult, List<File>> files = new EnumMap<FileCopier.CopyResult, List<File>>(FileCopier.CopyResult.class);
+	
+	public FileCopyResultList() {
+		for (FileCopier.CopyResult result : FileCopier.CopyResult.values()) {
+			files.put(result, Collections.synchronizedList(new ArrayList<File>()));
+		}
+	}
+	
+	public void record(FileCopier.CopyResult result, File file) {
+		files.get(result).add(file);
+	}
+
+	/**
+	 * Get the files recorded with the given result.  The list returned is the list results are 
+	 * recorded to; synchronize on it while iterating if a copy may be in progress.
+	 */
+	public List<File> getFiles(FileCopier.CopyResult result) {
+		return files.get(result);
+	}
+}
@@ -0,0 +1,97 @@
+package org.xandercat.swing.file;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * FileCopyResultLog streams the results of a FileCopier to a log file rather than keeping them in memory,
+ * so that memory use stays the same no matter how many files are copied.  Files recorded with a given
+ * result are read back from the log file when requested.
+ * 
+ * Each record is a single line with the copy result and the file path separated by a tab.
+ * 
+ * @author Scott C Arnold
+ */
+public class FileCopyResultLog implements FileCopyResultSink {
+
+	private static final Logger log = LogManager.getLogger(FileCopyResultLog.class);
+	
+	private File logFile;
+	private Writer writer;
+	private IOException writeException;
+	
+	/**
+	 * Create a new result log, replacing the given log file if it exists.
+	 * 
+	 * @param logFile			log file
+	 * @throws IOException
+	 */
+	public FileCopyResultLog(File logFile) throws IOException {
+		this.logFile = logFile;
+		this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(logFile), StandardCharsets.UTF_8));
+	}
+	
+	public File getLogFile() {
+		return logFile;
+	}
+	
+	public synchronized void record(FileCopier.CopyResult result, File file) {
+		if (writeException != null) {
+			return;
+		}
+		try {
+			writer.write(result.name() + "\t" + file.getAbsolutePath() + "\n");
+		} catch (IOException ioe) {
+			// report only the first failure; the copy itself is not affected
+			writeException = ioe;
+			log.error("Unable to write to copy result log " + logFile.getAbsolutePath(), ioe);
+		}
+	}
+
+	/**
+	 * Get the files recorded with the given result by reading them back from the log file.  The list
+	 * returned is a new list each time, and holds every file recorded with the result.
+	 */
+	public synchronized List<File> getFiles(FileCopier.CopyResult result) {
+		List<File> files = new ArrayList<File>();
+		String prefix = result.name() + "\t";
+		try {
+			writer.flush();
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(logFile), StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.startsWith(prefix)) {
+						files.add(new File(line.substring(prefix.length())));
+					}
+				}
+			}
+		} catch (IOException ioe) {
+			log.error("Unable to read copy result log " + logFile.getAbsolutePath(), ioe);
+		}
+		return files;
+	}
+	
+	/**
+	 * Close the result log.  The log file is left in place.
+	 */
+	public synchronized void close() {
+		try {
+			writer.close();
+		} catch (IOException ioe) {
+			log.error("Unable to close copy result log " + logFile.getAbsolutePath(), ioe);
+		}
+	}
+}
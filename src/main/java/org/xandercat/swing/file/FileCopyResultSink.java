@@ -0,0 +1,33 @@
+package org.xandercat.swing.file;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * FileCopyResultSink receives the files a FileCopier has copied, skipped, or linked.  Files that need
+ * resolution are not sent to the sink; they are kept by the FileCopier in its resolution queues.
+ * 
+ * Files are recorded from the copy threads, possibly concurrently, so implementations must be thread safe.
+ * 
+ * @author Scott C Arnold
+ */
+public interface FileCopyResultSink {
+
+	/**
+	 * Record a file with the given result.  Copied and linked files are recorded with their destination;
+	 * skipped files are recorded with their source.
+	 * 
+	 * @param result			copy result (COPIED, SKIPPED, or LINKED)
+	 * @param file				file to record
+	 */
+	public void record(FileCopier.CopyResult result, File file);
+	
+	/**
+	 * Get the files recorded with the given result, in the order they were recorded.
+	 * 
+	 * @param result			copy result
+	 * 
+	 * @return					files recorded with the result
+	 */
+	public List<File> getFiles(FileCopier.CopyResult result);
+}
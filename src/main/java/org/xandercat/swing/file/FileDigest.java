@@ -0,0 +1,115 @@
+package org.xandercat.swing.file;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * FileDigest computes a digest of file contents as they are copied.  CRC32C is fast enough to
+ * compute inline with a copy at close to disk speed; SHA-256 is slower but cryptographically strong.
+ *
+ * CRC32C requires Java 9 or later; when it is not available, CRC32 is used instead and reported
+ * as the digest algorithm.
+ *
+ * @author Scott C Arnold
+ */
+public class FileDigest {
+
+	private static final Logger log = LogManager.getLogger(FileDigest.class);
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	public static enum Algorithm {
+		CRC32C, SHA256;
+	}
+
+	private Checksum checksum;
+	private MessageDigest messageDigest;
+	private String algorithmName;
+	private String value;
+
+	/**
+	 * Construct a new digest using the given algorithm.
+	 *
+	 * @param algorithm			digest algorithm
+	 */
+	public FileDigest(Algorithm algorithm) {
+		if (algorithm == Algorithm.SHA256) {
+			try {
+				this.messageDigest = MessageDigest.getInstance("SHA-256");
+				this.algorithmName = "SHA-256";
+			} catch (NoSuchAlgorithmException nsae) {
+				throw new IllegalStateException("SHA-256 is not available", nsae);
+			}
+		} else {
+			this.checksum = createCrc32c();
+			this.algorithmName = (checksum instanceof CRC32)? "CRC32" : "CRC32C";
+		}
+	}
+
+	private static Checksum createCrc32c() {
+		try {
+			return (Checksum) Class.forName("java.util.zip.CRC32C").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException roe) {
+			log.debug("CRC32C is not available; using CRC32");
+			return new CRC32();
+		}
+	}
+
+	/**
+	 * Update the digest with the given bytes.
+	 *
+	 * @param bytes				bytes to add to the digest
+	 * @param offset			offset of first byte to add
+	 * @param length			number of bytes to add
+	 */
+	public void update(byte[] bytes, int offset, int length) {
+		if (value != null) {
+			throw new IllegalStateException("Digest value has already been computed.");
+		}
+		if (checksum != null) {
+			checksum.update(bytes, offset, length);
+		} else {
+			messageDigest.update(bytes, offset, length);
+		}
+	}
+
+	/**
+	 * Get the name of the algorithm actually used to compute the digest.
+	 *
+	 * @return					algorithm name
+	 */
+	public String getAlgorithmName() {
+		return algorithmName;
+	}
+
+	/**
+	 * Get the digest value as a hexadecimal string.  Once the value has been computed, the
+	 * digest can no longer be updated.
+	 *
+	 * @return					digest value
+	 */
+	public String getValue() {
+		if (value == null) {
+			if (checksum != null) {
+				value = String.format("%08x", checksum.getValue());
+			} else {
+				byte[] bytes = messageDigest.digest();
+				char[] chars = new char[bytes.length * 2];
+				for (int i = 0; i < bytes.length; i++) {
+					chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+					chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+				}
+				value = new String(chars);
+			}
+		}
+		return value;
+	}
+
+	public String toString() {
+		return algorithmName + ":" + getValue();
+	}
+}
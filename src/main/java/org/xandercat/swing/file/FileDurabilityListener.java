@@ -0,0 +1,20 @@
+package org.xandercat.swing.file;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * FileDurabilityListener can be implemented by any class wishing to be notified when files copied by
+ * a FileCopier have been forced to disk.
+ * 
+ * @author Scott C Arnold
+ */
+public interface FileDurabilityListener {
+
+	/**
+	 * Called when the copies of the given files, and the directory entries for them, are durable.
+	 * 
+	 * @param files				source files whose copies are durable
+	 */
+	public void filesDurable(List<File> files);
+}
@@ -0,0 +1,37 @@
+package org.xandercat.swing.file;
+
+import java.io.File;
+
+/**
+ * FileMoveListener can be implemented by any class wishing to be notified as files are moved by
+ * a FileMover.  All methods are called on the event dispatch thread.
+ *
+ * @author Scott C Arnold
+ */
+public interface FileMoveListener {
+
+	/**
+	 * Called when a file or directory has been moved to its new location.
+	 *
+	 * @param from				file at its original location
+	 * @param to				file at its new location
+	 */
+	public void fileMoved(File from, File to);
+
+	/**
+	 * Called when a file or directory could not be moved, including each file not moved because the move
+	 * was cancelled.  The file remains at its original location.
+	 *
+	 * @param from				file at its original location
+	 * @param to				location the file was to be moved to
+	 * @param throwable			cause of the failure
+	 */
+	public void fileMoveFailed(File from, File to, Throwable throwable);
+
+	/**
+	 * Called once all files have been moved or the move has been cancelled.
+	 *
+	 * @param cancelled			whether or not the move was cancelled
+	 */
+	public void moveComplete(boolean cancelled);
+}
@@ -0,0 +1,333 @@
+package org.xandercat.swing.file;
+
+import java.awt.Component;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.xandercat.swing.dialog.ProgressMonitor;
+
+/**
+ * FileMover moves files and directories into a destination directory in a background thread.  When a
+ * file and the destination share a FileStore, the file is moved with a single atomic rename; otherwise,
+ * it is copied with a FileCopier, forced to disk, and then deleted from its original location.  A file
+ * that cannot be copied completely is left where it was.
+ *
+ * Listeners are notified on the event dispatch thread as each file lands, so views can be updated one
+ * entry at a time rather than reloaded.  Every file is reported as either moved or failed; when the move
+ * is cancelled, the files not moved are reported as failed.  Progress is reported through the SwingWorker 
+ * progress property as the percentage of files moved.
+ *
+ * A file is pending from the time the mover is constructed until it has been reported to the listeners.
+ * Components that remove the entries of dragged files once the drag is done, such as FileTransferHandler,
+ * can use getPendingMover to wait for the outcome of a file that has not been reported yet.
+ *
+ * @author Scott C Arnold
+ */
+public class FileMover extends SwingWorker<Void, FileMover.MoveEvent> {
+
+	public static final int DEFAULT_PROGRESS_DELAY = 500;		// milliseconds before a progress monitor is shown
+
+	private static final Logger log = LogManager.getLogger(FileMover.class);
+	private static final Map<File, FileMover> pendingMovers = new ConcurrentHashMap<File, FileMover>();
+
+	protected static class MoveEvent {
+
+		private File from;
+		private File to;
+		private Throwable throwable;
+
+		private MoveEvent(File from, File to, Throwable throwable) {
+			this.from = from;
+			this.to = to;
+			this.throwable = throwable;
+		}
+	}
+
+	private List<File> files;
+	private File destination;
+	private FileStore destinationStore;
+	private List<FileMoveListener> fileMoveListeners = new ArrayList<FileMoveListener>();
+	private volatile boolean cancelled;
+	private volatile FileCopier fileCopier;
+	private volatile File currentFile;
+	private int movedFileCount;
+	private int failedFileCount;
+
+	/**
+	 * Construct a new file mover to move the given files into the given destination directory.
+	 *
+	 * @param files				files and directories to move
+	 * @param destination		directory to move files into
+	 */
+	public FileMover(List<File> files, File destination) {
+		if (destination == null || !destination.isDirectory()) {
+			String destPath = (destination == null)? "null" : destination.getAbsolutePath();
+			throw new IllegalArgumentException("Destination is not a valid directory: " + destPath);
+		}
+		this.files = new ArrayList<File>(files);
+		this.destination = destination;
+		for (File file : this.files) {
+			pendingMovers.put(file.getAbsoluteFile(), this);
+		}
+	}
+	
+	/**
+	 * Returns the mover that is to move the given file if the file has not been reported to its listeners yet.
+	 * Listeners added to the returned mover from the event dispatch thread are notified of the file.
+	 * 
+	 * @param file				file to check
+	 * 
+	 * @return					mover of the file, or null if no move of the file is pending
+	 */
+	public static FileMover getPendingMover(File file) {
+		return pendingMovers.get(file.getAbsoluteFile());
+	}
+
+	public void addFileMoveListener(FileMoveListener listener) {
+		this.fileMoveListeners.add(listener);
+	}
+
+	public void removeFileMoveListener(FileMoveListener listener) {
+		this.fileMoveListeners.remove(listener);
+	}
+
+	public List<File> getFiles() {
+		return Collections.unmodifiableList(files);
+	}
+
+	public File getDestination() {
+		return destination;
+	}
+
+	/**
+	 * Returns the file currently being moved, or null if no file is being moved.
+	 *
+	 * @return			file currently being moved
+	 */
+	public File getCurrentFile() {
+		return currentFile;
+	}
+
+	/**
+	 * Returns the number of files moved so far.  Should be called from the event dispatch thread.
+	 *
+	 * @return			number of files moved
+	 */
+	public int getMovedFileCount() {
+		return movedFileCount;
+	}
+
+	/**
+	 * Returns the number of files that could not be moved.  Should be called from the event dispatch thread.
+	 *
+	 * @return			number of files that could not be moved
+	 */
+	public int getFailedFileCount() {
+		return failedFileCount;
+	}
+
+	/**
+	 * Cancel the move.  Files already moved stay moved; a file being copied across file stores is
+	 * removed from the destination and left at its original location.  The files not moved are reported
+	 * to the listeners as failed.
+	 */
+	public void cancelMove() {
+		this.cancelled = true;
+		FileCopier copier = fileCopier;
+		if (copier != null) {
+			copier.cancel();
+		}
+	}
+
+	public boolean isMoveCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Show a progress monitor for this move if it is still running after the default delay.  The
+	 * monitor's cancel button cancels the move.  Should be called from the event dispatch thread
+	 * before the mover is executed.
+	 *
+	 * @param parent			component the monitor is shown over
+	 * @param title				title for the monitor
+	 */
+	public void monitorProgress(Component parent, String title) {
+		monitorProgress(parent, title, DEFAULT_PROGRESS_DELAY);
+	}
+
+	/**
+	 * Show a progress monitor for this move if it is still running after the given delay.  The
+	 * monitor's cancel button cancels the move.  Should be called from the event dispatch thread
+	 * before the mover is executed.
+	 *
+	 * @param parent			component the monitor is shown over
+	 * @param title				title for the monitor
+	 * @param delay				milliseconds to wait before showing the monitor
+	 */
+	public void monitorProgress(Component parent, String title, int delay) {
+		JFrame frame = (parent == null)? null : (JFrame) SwingUtilities.getAncestorOfClass(JFrame.class, parent);
+		final ProgressMonitor monitor = new ProgressMonitor(frame, title, "Moving to " + destination.getAbsolutePath(), 0, files.size());
+		monitor.addActionListener(event -> cancelMove());
+		final Timer timer = new Timer(delay, null);
+		timer.addActionListener(event -> {
+			if (isDone()) {
+				timer.stop();
+				monitor.dispose();
+			} else {
+				File file = currentFile;
+				monitor.setMessage((file == null)? "" : file.getName());
+				monitor.setProgress(movedFileCount + failedFileCount);
+				if (!monitor.isVisible() && !monitor.isCancelled()) {
+					timer.setDelay(100);
+					monitor.setVisible(true);
+				}
+			}
+		});
+		timer.start();
+	}
+
+	@Override
+	protected Void doInBackground() throws Exception {
+		try {
+			this.destinationStore = Files.getFileStore(destination.toPath());
+		} catch (IOException e) {
+			log.warn("Unable to determine file store for " + destination.getAbsolutePath(), e);
+		}
+		int done = 0;
+		for (File file : files) {
+			File destFile = new File(destination.getAbsolutePath() + File.separator + file.getName());
+			if (cancelled) {
+				// the file is still at its original location, so views that removed it must put it back
+				publish(new MoveEvent(file, destFile, new IOException("Move cancelled")));
+				continue;
+			}
+			currentFile = file;
+			try {
+				move(file, destFile);
+				publish(new MoveEvent(file, destFile, null));
+			} catch (Exception e) {
+				if (!cancelled) {
+					log.warn("Unable to move " + file.getAbsolutePath() + " to " + destFile.getAbsolutePath(), e);
+				}
+				publish(new MoveEvent(file, destFile, e));
+			}
+			done++;
+			setProgress(done * 100 / files.size());
+		}
+		currentFile = null;
+		// completion is published rather than fired from done() so that it follows the last move event
+		publish(new MoveEvent(null, null, null));
+		return null;
+	}
+
+	private void move(File file, File destFile) throws IOException {
+		Path source = file.toPath();
+		Path target = destFile.toPath();
+		if (file.getAbsoluteFile().equals(destFile.getAbsoluteFile())) {
+			return;
+		}
+		if (Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+			throw new FileAlreadyExistsException(destFile.getAbsolutePath());
+		}
+		if (destinationStore != null && destinationStore.equals(Files.getFileStore(source))) {
+			try {
+				Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+				return;
+			} catch (AtomicMoveNotSupportedException e) {
+				log.debug("Atomic move not supported for " + file.getAbsolutePath() + "; copying instead");
+			}
+		}
+		copyAndDelete(file, destFile);
+	}
+
+	private void copyAndDelete(File file, File destFile) throws IOException {
+		File sourceDirectory = file.getAbsoluteFile().getParentFile();
+		FileCopier copier = new FileCopier(Collections.singletonList(file.getAbsoluteFile()), destination, sourceDirectory);
+		if (file.isDirectory()) {
+			copier.enableStreamingScan();
+		}
+		copier.setDurabilityMode(FileCopier.DurabilityMode.JOB_BARRIER);
+		this.fileCopier = copier;
+		try {
+			if (cancelled) {
+				copier.cancel();
+			}
+			copier.copy();
+		} finally {
+			this.fileCopier = null;
+		}
+		String failure = null;
+		Throwable cause = null;
+		if (cancelled) {
+			failure = "Move cancelled";
+		} else if (copier.getErrorFileCount() > 0) {
+			FileCopier.FileCopyError error = copier.getErrorFiles().get(0);
+			failure = "Unable to copy " + error.getFile().getAbsolutePath();
+			cause = error.getThrowable();
+		} else if (copier.getOverwriteFileCount() > 0) {
+			failure = "File already exists: " + copier.getOverwriteFiles().get(0).getAbsolutePath();
+		}
+		if (failure != null) {
+			if (Files.exists(destFile.toPath(), LinkOption.NOFOLLOW_LINKS)) {
+				FileCopier.delete(destFile.toPath());
+			}
+			throw new IOException(failure, cause);
+		}
+		FileCopier.delete(file.toPath());
+	}
+
+	@Override
+	protected void process(List<MoveEvent> events) {
+		for (MoveEvent event : events) {
+			if (event.from != null) {
+				pendingMovers.remove(event.from.getAbsoluteFile(), this);
+			}
+			if (event.from == null) {
+				fireMoveComplete(cancelled);
+			} else if (event.throwable == null) {
+				movedFileCount++;
+				fireFileMoved(event.from, event.to);
+			} else {
+				failedFileCount++;
+				fireFileMoveFailed(event.from, event.to, event.throwable);
+			}
+		}
+	}
+
+	private void fireFileMoved(File from, File to) {
+		for (FileMoveListener listener : fileMoveListeners) {
+			listener.fileMoved(from, to);
+		}
+	}
+
+	private void fireFileMoveFailed(File from, File to, Throwable throwable) {
+		for (FileMoveListener listener : fileMoveListeners) {
+			listener.fileMoveFailed(from, to, throwable);
+		}
+	}
+
+	private void fireMoveComplete(boolean cancelled) {
+		for (FileMoveListener listener : fileMoveListeners) {
+			listener.moveComplete(cancelled);
+		}
+	}
+}
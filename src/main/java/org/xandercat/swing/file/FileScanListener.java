@@ -0,0 +1,12 @@
+package org.xandercat.swing.file;
+
+/**
+ * FileScanListener can be implemented by any class wishing to be kept updated on the progress
+ * of a FileTreeScanner as it enumerates the files to be copied.
+ * 
+ * @author Scott C Arnold
+ */
+public interface FileScanListener {
+
+	public void filesScanned(int filesScanned, boolean scanComplete);
+}
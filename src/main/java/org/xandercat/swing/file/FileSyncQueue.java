@@ -0,0 +1,209 @@
+package org.xandercat.swing.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * FileSyncQueue collects the files written by a FileCopier and forces them, along with the directories 
+ * containing them, to disk according to the durability mode.  Each directory is forced once per batch 
+ * no matter how many files in the batch were written to it.  Once a batch is durable, the handler is
+ * given the entries that were forced successfully; entries that could not be forced are logged and left
+ * out, so they are never reported as durable.
+ * 
+ * @author Scott C Arnold
+ */
+class FileSyncQueue {
+
+	private static final Logger log = LogManager.getLogger(FileSyncQueue.class);
+	private static final int MAX_BARRIER_PENDING = 1024 * 64;	// files held for a job barrier before forcing early
+	
+	/**
+	 * A file or directory written to the destination.
+	 */
+	static class Entry {
+		
+		private final File file;
+		private final File destFile;
+		private final boolean directory;
+		private final boolean dataWritten;
+		
+		private Entry(File file, File destFile, boolean directory, boolean dataWritten) {
+			this.file = file;
+			this.destFile = destFile;
+			this.directory = directory;
+			this.dataWritten = dataWritten;
+		}
+		
+		File getFile() {
+			return file;
+		}
+		
+		boolean isDirectory() {
+			return directory;
+		}
+	}
+	
+	private final FileCopier.DurabilityMode mode;
+	private final int batchFiles;
+	private final long batchBytes;
+	private final Consumer<List<Entry>> handler;
+	private List<Entry> pending = new ArrayList<Entry>();
+	private long pendingBytes;
+	private ExecutorService executor;
+	private Future<?> lastFlush;
+	
+	FileSyncQueue(FileCopier.DurabilityMode mode, int batchFiles, long batchBytes, Consumer<List<Entry>> handler) {
+		this.mode = mode;
+		this.batchFiles = batchFiles;
+		this.batchBytes = batchBytes;
+		this.handler = handler;
+	}
+	
+	/**
+	 * Add a file written to the destination.  Files are forced right away in per file mode, from a
+	 * background thread once a batch is full in group commit mode, and otherwise when synced.
+	 * 
+	 * @param file				source file
+	 * @param destFile			destination file or directory written
+	 * @param directory			whether or not the destination is a directory
+	 * @param dataWritten		whether or not file data was written, rather than only a directory entry
+	 * @param bytes				bytes written
+	 */
+	void add(File file, File destFile, boolean directory, boolean dataWritten, long bytes) {
+		List<Entry> batch = null;
+		boolean background = false;
+		synchronized(this) {
+			pending.add(new Entry(file, destFile, directory, dataWritten));
+			pendingBytes += bytes;
+			switch (mode) {
+			case PER_FILE:
+				batch = takePending();
+				break;
+			case GROUP_COMMIT:
+				if (pending.size() >= batchFiles || pendingBytes >= batchBytes) {
+					batch = takePending();
+					background = true;
+				}
+				break;
+			default:
+				if (pending.size() >= MAX_BARRIER_PENDING) {
+					batch = takePending();
+				}
+				break;
+			}
+		}
+		if (background) {
+			flushInBackground(batch);
+		} else if (batch != null) {
+			flush(batch);
+		}
+	}
+	
+	/**
+	 * Force any pending files to disk from a background thread.
+	 */
+	void flushLater() {
+		List<Entry> batch = null;
+		synchronized(this) {
+			if (!pending.isEmpty()) {
+				batch = takePending();
+			}
+		}
+		if (batch != null) {
+			flushInBackground(batch);
+		}
+	}
+	
+	/**
+	 * Force any pending files to disk and wait for all batches to be durable.
+	 */
+	void sync() {
+		List<Entry> batch;
+		Future<?> flush;
+		synchronized(this) {
+			batch = takePending();
+			flush = lastFlush;
+		}
+		if (flush != null) {
+			try {
+				flush.get();
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException ee) {
+				log.error("Unable to force copied files to disk", ee.getCause());
+			}
+		}
+		if (!batch.isEmpty()) {
+			flush(batch);
+		}
+	}
+	
+	private List<Entry> takePending() {
+		List<Entry> batch = pending;
+		pending = new ArrayList<Entry>();
+		pendingBytes = 0;
+		return batch;
+	}
+	
+	private synchronized void flushInBackground(final List<Entry> batch) {
+		if (executor == null) {
+			executor = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "FileSyncQueue");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		lastFlush = executor.submit(() -> flush(batch));
+	}
+	
+	private void flush(List<Entry> batch) {
+		Set<File> directories = new LinkedHashSet<File>();
+		List<Entry> durable = new ArrayList<Entry>(batch.size());
+		for (Entry entry : batch) {
+			try {
+				if (entry.dataWritten) {
+					force(entry.destFile.toPath(), StandardOpenOption.WRITE);
+				}
+				File directory = entry.destFile.getAbsoluteFile().getParentFile();
+				if (directory != null) {
+					directories.add(directory);
+				}
+				durable.add(entry);
+			} catch (IOException ioe) {
+				log.error("Unable to force copied file to disk: " + entry.destFile.getAbsolutePath(), ioe);
+			}
+		}
+		for (File directory : directories) {
+			try {
+				force(directory.toPath(), StandardOpenOption.READ);
+			} catch (IOException ioe) {
+				// not all platforms allow directories to be opened; their entries are forced with the file system
+				log.debug("Unable to force directory to disk: " + directory.getAbsolutePath(), ioe);
+			}
+		}
+		if (!durable.isEmpty()) {
+			handler.accept(durable);
+		}
+	}
+	
+	private static void force(Path path, StandardOpenOption option) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, option)) {
+			channel.force(true);
+		}
+	}
+}
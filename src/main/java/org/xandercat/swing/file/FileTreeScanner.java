@@ -0,0 +1,191 @@
+package org.xandercat.swing.file;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.xandercat.swing.util.PlatformTool;
+
+/**
+ * FileTreeScanner lazily enumerates a list of files, fully recursing any directories, on a 
+ * background thread.  Entries are handed to the consumer through a bounded queue, so the consumer
+ * can begin working on the first entries while the rest of the tree is still being scanned, and memory
+ * use is bounded by the queue capacity and the depth of the tree rather than the number of files.
+ * 
+ * Entries are produced in pre-order; a directory is always produced before any of its contents.
+ * Symbolic links to directories are followed, except where a link leads back to a directory that is
+ * already being scanned; such a link is produced but not recursed, so link loops cannot recurse without end.
+ * A FileTreeScanner can only be iterated once.
+ * 
+ * @author Scott C Arnold
+ */
+public class FileTreeScanner implements Iterable<File> {
+
+	private static final Logger log = LogManager.getLogger(FileTreeScanner.class);
+	private static final FileFilter FILE_FILTER = PlatformTool.FILE_FILTER;
+	private static final File END_OF_SCAN = new File("");
+	private static final int NOTIFY_INTERVAL = 1000;
+	
+	private final List<File> files;
+	private final BlockingQueue<File> queue;
+	private final FileScanListener listener;
+	private final DirectoryStream.Filter<Path> filter = entry -> FILE_FILTER.accept(entry.toFile());
+	private final Deque<Object> scanningKeys = new ArrayDeque<Object>();	// keys of the directories on the current path
+	private Thread scanThread;
+	private volatile boolean stopped;
+	private int filesScanned;
+	
+	/**
+	 * Construct a new scanner for the given files.
+	 * 
+	 * @param files				files and directories to scan
+	 * @param queueCapacity		maximum number of scanned entries waiting to be consumed
+	 * @param listener			listener to notify of scan progress (may be null)
+	 */
+	public FileTreeScanner(List<File> files, int queueCapacity, FileScanListener listener) {
+		this.files = files;
+		this.queue = new ArrayBlockingQueue<File>(queueCapacity);
+		this.listener = listener;
+	}
+	
+	/**
+	 * Stop scanning.  Entries already queued are discarded and the iterator will end.
+	 */
+	public void stop() {
+		this.stopped = true;
+		queue.clear();
+		if (scanThread != null) {
+			scanThread.interrupt();
+		}
+	}
+	
+	@Override
+	public synchronized Iterator<File> iterator() {
+		if (scanThread != null) {
+			throw new IllegalStateException("FileTreeScanner can only be iterated once.");
+		}
+		scanThread = new Thread(() -> scan(), "FileTreeScanner");
+		scanThread.setDaemon(true);
+		scanThread.start();
+		return new Iterator<File>() {
+			private File next;
+			
+			public boolean hasNext() {
+				if (next == null) {
+					try {
+						next = stopped? END_OF_SCAN : queue.take();
+					} catch (InterruptedException ie) {
+						Thread.currentThread().interrupt();
+						next = END_OF_SCAN;
+					}
+				}
+				return next != END_OF_SCAN;
+			}
+			
+			public File next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				File file = next;
+				next = null;
+				return file;
+			}
+		};
+	}
+	
+	private void scan() {
+		try {
+			for (File file : files) {
+				if (stopped) {
+					break;
+				}
+				produce(file);
+				if (file.isDirectory()) {
+					scanDirectory(file.toPath());
+				}
+			}
+		} catch (InterruptedException ie) {
+			log.debug("File tree scan interrupted after " + filesScanned + " entries");
+		} finally {
+			if (listener != null) {
+				listener.filesScanned(filesScanned, true);
+			}
+			endScan();
+		}
+	}
+	
+	private void endScan() {
+		boolean ended = false;
+		while (!ended) {
+			try {
+				if (stopped) {
+					queue.clear();
+				}
+				queue.put(END_OF_SCAN);
+				ended = true;
+			} catch (InterruptedException ie) {
+				// only interrupted when stopped, in which case the queue is cleared on the next attempt
+			}
+		}
+	}
+	
+	private void scanDirectory(Path directory) throws InterruptedException {
+		Object key;
+		try {
+			key = getDirectoryKey(directory);
+		} catch (IOException ioe) {
+			log.warn("Unable to scan directory " + directory, ioe);
+			return;
+		}
+		if (scanningKeys.contains(key)) {
+			log.warn("Not scanning directory " + directory + "; it links back to a directory already being scanned");
+			return;
+		}
+		scanningKeys.push(key);
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, filter)) {
+			for (Path entry : stream) {
+				if (stopped) {
+					return;
+				}
+				produce(entry.toFile());
+				if (Files.isDirectory(entry)) {
+					scanDirectory(entry);
+				}
+			}
+		} catch (IOException ioe) {
+			log.warn("Unable to scan directory " + directory, ioe);
+		} finally {
+			scanningKeys.pop();
+		}
+	}
+	
+	/**
+	 * Get a key that identifies the given directory however it is reached, using the file key where the
+	 * file system provides one and the real path otherwise.
+	 */
+	private static Object getDirectoryKey(Path directory) throws IOException {
+		Object key = Files.readAttributes(directory, BasicFileAttributes.class).fileKey();
+		return (key == null)? directory.toRealPath() : key;
+	}
+	
+	private void produce(File file) throws InterruptedException {
+		queue.put(file);
+		filesScanned++;
+		if (listener != null && filesScanned % NOTIFY_INTERVAL == 0) {
+			listener.filesScanned(filesScanned, false);
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package org.xandercat.swing.file;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * FileVerificationException indicates that the digest of a copied file did not match the digest
+ * it was expected to have.
+ * 
+ * @author Scott C Arnold
+ */
+public class FileVerificationException extends IOException {
+
+	private static final long serialVersionUID = 2026101601L;
+	
+	private File file;
+	private String expectedDigest;
+	private String actualDigest;
+	
+	public FileVerificationException(File file, String expectedDigest, String actualDigest) {
+		super("Verification failed for " + file.getAbsolutePath() + "; expected digest " + expectedDigest + " but was " + actualDigest);
+		this.file = file;
+		this.expectedDigest = expectedDigest;
+		this.actualDigest = actualDigest;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public String getExpectedDigest() {
+		return expectedDigest;
+	}
+
+	public String getActualDigest() {
+		return actualDigest;
+	}
+}
@@ -0,0 +1,14 @@
+package org.xandercat.swing.file;
+
+import java.io.File;
+
+/**
+ * FileVerifyListener can be implemented by classes wishing to receive the digests computed 
+ * for each file copied by a FileCopier with verification enabled.
+ * 
+ * @author Scott C Arnold
+ */
+public interface FileVerifyListener {
+
+	public void fileVerified(File from, File to, FileDigest digest, boolean verified);
+}
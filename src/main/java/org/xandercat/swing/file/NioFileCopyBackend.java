@@ -0,0 +1,65 @@
+package org.xandercat.swing.file;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * NioFileCopyBackend performs file operations on the local file systems.  This is the default backend
+ * for a FileCopier, and the only backend with which a FileCopier uses operations specific to local
+ * file systems, such as direct I/O, hard links, and forcing files to disk.
+ *
+ * @author Scott C Arnold
+ */
+public class NioFileCopyBackend implements FileCopyBackend {
+
+	public boolean exists(File file) {
+		return file.exists();
+	}
+
+	public boolean isDirectory(File file) {
+		return file.isDirectory();
+	}
+
+	public long length(File file) {
+		return file.length();
+	}
+
+	public long lastModified(File file) {
+		return file.lastModified();
+	}
+
+	public boolean mkdirs(File directory) {
+		return directory.mkdirs();
+	}
+
+	public boolean setLastModified(File file, long time) {
+		return file.setLastModified(time);
+	}
+
+	public boolean delete(File file) {
+		return file.delete();
+	}
+
+	public FileChannel openInput(File file) throws IOException {
+		return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+	}
+
+	@SuppressWarnings("resource")
+	public FileChannel openOutput(File file, long resumeOffset) throws IOException {
+		if (resumeOffset > 0) {
+			FileChannel out = new RandomAccessFile(file, "rw").getChannel();
+			out.truncate(resumeOffset);
+			out.position(resumeOffset);
+			return out;
+		}
+		return new FileOutputStream(file).getChannel();
+	}
+
+	public long transfer(FileChannel in, long position, long count, FileChannel out) throws IOException {
+		return in.transferTo(position, count, out);
+	}
+}
@@ -0,0 +1,523 @@
+package org.xandercat.swing.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.CopyOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * PathCopier copies files and directory trees between Paths of any file system provider, such as the
+ * default file system, zip file systems, or in-memory file systems.  Directories given to the path
+ * copier are walked, with the attributes of each entry read in bulk as it is visited; the attributes
+ * of each destination are read with a single call.  When the source and destination share a provider,
+ * files are copied with Files.copy so that the provider can use its own fast path; otherwise, files
+ * are streamed from one provider to the other.  For example, files can be packaged straight into a
+ * zip file by copying them to the root of a zip file system.
+ *
+ * As with FileCopier, destinations that already exist with the same length and last modified time are
+ * skipped, other existing destinations are placed in an overwrite queue, and files that cannot be
+ * copied are placed in an error queue; both queues can be resolved after the copy.  When the source and 
+ * destination have different providers, last modified times are compared to within two seconds, as zip
+ * entries store times only to one or two second precision.
+ *
+ * @author Scott C Arnold
+ */
+public class PathCopier {
+
+	public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+	private static final long CROSS_PROVIDER_TIME_PRECISION = 2000;	// zip entries store times to 2 seconds
+
+	private static final Logger log = LogManager.getLogger(PathCopier.class);
+
+	public static class PathCopyError {
+		private Path path;
+		private Throwable throwable;
+		private PathCopyError(Path path, Throwable throwable) {
+			this.path = path;
+			this.throwable = throwable;
+		}
+		public Path getPath() {
+			return path;
+		}
+		public Throwable getThrowable() {
+			return throwable;
+		}
+	}
+
+	private List<Path> paths;
+	private Path destination;
+	private Path source;
+	private PathCopierPathGenerator pathGenerator;
+	private List<PathCopyListener> listeners;
+	private List<PathCopyProgressListener> progressListeners;
+	private int bufferSize = DEFAULT_BUFFER_SIZE;
+	private volatile boolean cancelled;
+	private Set<Path> knownDirectories = new HashSet<Path>();		// destination directories known to exist
+	private Map<Path, BasicFileAttributes> overwritePaths;
+	private Map<Path, PathCopyError> errorPaths;
+	private Map<Path, BasicFileAttributes> errorAttributes;
+	private List<Path> copiedPaths;
+	private List<Path> skippedPaths;
+
+	/**
+	 * Construct a new path copier to copy the given paths from the given source directory to the given
+	 * destination directory.  If source is null, each path is copied into the destination by its name.
+	 * The destination may belong to a different file system than the source.
+	 *
+	 * @param paths				files and directories to copy
+	 * @param destination		directory to copy paths to
+	 * @param source			directory to copy paths from, or null
+	 */
+	public PathCopier(List<Path> paths, Path destination, Path source) {
+		if (destination == null || (Files.exists(destination) && !Files.isDirectory(destination))) {
+			throw new IllegalArgumentException("Destination is not a valid directory: " + destination);
+		}
+		if (source != null) {
+			if (!Files.isDirectory(source)) {
+				throw new IllegalArgumentException("Source is not a valid directory.");
+			}
+			for (Path path : paths) {
+				if (!path.getFileSystem().equals(source.getFileSystem()) || !path.toAbsolutePath().startsWith(source.toAbsolutePath())) {
+					throw new IllegalArgumentException("If a source directory is specified, all paths must be contained within the source directory.");
+				}
+			}
+		}
+		this.destination = destination;
+		this.source = (source == null)? null : source.toAbsolutePath();
+		initialize(paths);
+	}
+
+	/**
+	 * Construct a new path copier to copy the given paths using the given path generator.  Directories
+	 * are walked, and the path generator is called for each entry within them.
+	 *
+	 * @param paths				files and directories to copy
+	 * @param pathGenerator		path generator
+	 */
+	public PathCopier(List<Path> paths, PathCopierPathGenerator pathGenerator) {
+		this.pathGenerator = pathGenerator;
+		initialize(paths);
+	}
+
+	private void initialize(List<Path> paths) {
+		this.paths = paths;
+		this.cancelled = false;
+		this.knownDirectories.clear();
+		this.overwritePaths = Collections.synchronizedMap(new LinkedHashMap<Path, BasicFileAttributes>());
+		this.errorPaths = Collections.synchronizedMap(new LinkedHashMap<Path, PathCopyError>());
+		this.errorAttributes = Collections.synchronizedMap(new LinkedHashMap<Path, BasicFileAttributes>());
+		this.copiedPaths = Collections.synchronizedList(new ArrayList<Path>());
+		this.skippedPaths = Collections.synchronizedList(new ArrayList<Path>());
+	}
+
+	public void addPathCopyListener(PathCopyListener listener) {
+		if (listeners == null) {
+			listeners = new ArrayList<PathCopyListener>();
+		}
+		listeners.add(listener);
+	}
+
+	public void removePathCopyListener(PathCopyListener listener) {
+		if (listeners != null) {
+			listeners.remove(listener);
+		}
+	}
+
+	public void addPathCopyProgressListener(PathCopyProgressListener listener) {
+		if (progressListeners == null) {
+			progressListeners = new ArrayList<PathCopyProgressListener>();
+		}
+		progressListeners.add(listener);
+	}
+
+	public void removePathCopyProgressListener(PathCopyProgressListener listener) {
+		if (progressListeners != null) {
+			progressListeners.remove(listener);
+		}
+	}
+
+	/**
+	 * Set the size of the buffer used when streaming files between providers.
+	 *
+	 * @param bufferSize		buffer size in bytes
+	 */
+	public void setBufferSize(int bufferSize) {
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("Buffer size must be > 0");
+		}
+		this.bufferSize = bufferSize;
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * Cancel the current copy operation.  A file being streamed when the copy is cancelled is deleted
+	 * from the destination.
+	 */
+	public void cancel() {
+		this.cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Copy the paths stored within the path copier.
+	 */
+	public void copy() {
+		for (Path path : paths) {
+			if (cancelled) {
+				break;
+			}
+			BasicFileAttributes attributes;
+			try {
+				attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+			} catch (IOException ioe) {
+				recordCopyError(path, getDestinationPath(path), false, null, ioe);
+				continue;
+			}
+			if (attributes.isDirectory()) {
+				walk(path);
+			} else {
+				copyPath(path, attributes, false);
+			}
+		}
+		fireCopyComplete(cancelled);
+	}
+
+	/**
+	 * Copy a new list of paths from the given source directory to the given destination directory.
+	 * Use this method when you wish to perform multiple copies using the same path copier.
+	 *
+	 * @param paths				paths to copy
+	 * @param destination		destination directory
+	 * @param source			source directory
+	 */
+	public void copy(List<Path> paths, Path destination, Path source) {
+		this.destination = destination;
+		this.source = (source == null)? null : source.toAbsolutePath();
+		this.pathGenerator = null;
+		initialize(paths);
+		copy();
+	}
+
+	private void walk(Path directory) {
+		try {
+			Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+					if (cancelled) {
+						return FileVisitResult.TERMINATE;
+					}
+					return copyPath(dir, attributes, false)? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+				}
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+					if (cancelled) {
+						return FileVisitResult.TERMINATE;
+					}
+					copyPath(file, attributes, false);
+					return FileVisitResult.CONTINUE;
+				}
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException ioe) {
+					recordCopyError(file, getDestinationPath(file), false, null, ioe);
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException ioe) {
+			recordCopyError(directory, getDestinationPath(directory), true, null, ioe);
+		}
+	}
+
+	/**
+	 * Get the destination for a path.  Names are resolved one at a time so that the destination
+	 * may belong to a file system with a different name separator.
+	 */
+	private Path getDestinationPath(Path path) {
+		if (pathGenerator != null) {
+			return pathGenerator.generateDestinationPath(path);
+		}
+		Path absolutePath = path.toAbsolutePath();
+		Path base = source;
+		for (Path root : paths) {
+			if (base != null) {
+				break;
+			}
+			Path absoluteRoot = root.toAbsolutePath();
+			if (absolutePath.startsWith(absoluteRoot)) {
+				base = absoluteRoot.getParent();
+			}
+		}
+		Path destPath = destination;
+		Path relativePath = (base == null)? absolutePath.getFileName() : base.relativize(absolutePath);
+		for (Path name : relativePath) {
+			destPath = destPath.resolve(name.toString());
+		}
+		return destPath;
+	}
+
+	/**
+	 * Copy a single path with the given attributes.
+	 *
+	 * @return			whether or not the path was copied, or was a directory that already existed
+	 */
+	private boolean copyPath(Path path, BasicFileAttributes attributes, boolean overwrite) {
+		Path destPath = getDestinationPath(path);
+		boolean isDirectory = attributes.isDirectory();
+		fireFileCopying(path, destPath, isDirectory);
+		try {
+			BasicFileAttributes destAttributes = readAttributes(destPath);
+			if (destAttributes != null && !overwrite) {
+				if (destAttributes.isDirectory() || (destAttributes.size() == attributes.size()
+						&& isSameTime(path, destPath, attributes.lastModifiedTime().toMillis(), destAttributes.lastModifiedTime().toMillis()))) {
+					if (isDirectory) {
+						knownDirectories.add(destPath);
+					}
+					skippedPaths.add(path);
+					fireFileCopied(path, destPath, isDirectory, FileCopier.CopyResult.SKIPPED);
+					return true;
+				}
+				overwritePaths.put(path, attributes);
+				fireFileCopied(path, destPath, isDirectory, FileCopier.CopyResult.ALREADY_EXISTS);
+				return false;
+			}
+			if (isDirectory) {
+				Files.createDirectories(destPath);
+				knownDirectories.add(destPath);
+			} else if (!copyFile(path, destPath, attributes, overwrite)) {
+				return false;
+			}
+			copiedPaths.add(destPath);
+			fireFileCopied(path, destPath, isDirectory, FileCopier.CopyResult.COPIED);
+			return true;
+		} catch (Exception e) {
+			recordCopyError(path, destPath, isDirectory, attributes, e);
+			return false;
+		}
+	}
+
+	/**
+	 * Determine whether or not the last modified times of a source and destination match, at the precision
+	 * of the destination.  Times are compared exactly when both paths share a provider; otherwise they are
+	 * compared to within two seconds, so that files copied to a zip file system are not seen as changed.
+	 */
+	private static boolean isSameTime(Path path, Path destPath, long lastModified, long destLastModified) {
+		if (path.getFileSystem().provider().equals(destPath.getFileSystem().provider())) {
+			return lastModified == destLastModified;
+		}
+		return Math.abs(lastModified - destLastModified) < CROSS_PROVIDER_TIME_PRECISION;
+	}
+
+	private static BasicFileAttributes readAttributes(Path path) throws IOException {
+		try {
+			return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Copy a file, or a symbolic link when the source and destination share a provider.
+	 *
+	 * @return			whether or not the copy was completed (copy will not be completed if cancelled)
+	 */
+	private boolean copyFile(Path path, Path destPath, BasicFileAttributes attributes, boolean overwrite) throws IOException {
+		Path destDirectory = destPath.getParent();
+		if (destDirectory != null && !knownDirectories.contains(destDirectory)) {
+			Files.createDirectories(destDirectory);
+			knownDirectories.add(destDirectory);
+		}
+		if (path.getFileSystem().provider().equals(destPath.getFileSystem().provider())) {
+			CopyOption[] options = overwrite?
+					new CopyOption[] { StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS, StandardCopyOption.REPLACE_EXISTING } :
+					new CopyOption[] { StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS };
+			Files.copy(path, destPath, options);
+			fireCopyProgress(path, destPath, attributes.size(), true);
+			return true;
+		}
+		boolean completed = false;
+		try (InputStream in = Files.newInputStream(path);
+				OutputStream out = Files.newOutputStream(destPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			byte[] buffer = new byte[(int) Math.max(1, Math.min(bufferSize, attributes.size()))];
+			long bytesCopied = 0;
+			int read;
+			while (!cancelled && (read = in.read(buffer)) >= 0) {
+				out.write(buffer, 0, read);
+				bytesCopied += read;
+				fireCopyProgress(path, destPath, bytesCopied, bytesCopied >= attributes.size());
+			}
+			completed = !cancelled;
+		} finally {
+			if (!completed) {
+				Files.deleteIfExists(destPath);
+			}
+		}
+		if (!completed) {
+			return false;
+		}
+		Files.setLastModifiedTime(destPath, attributes.lastModifiedTime());
+		return true;
+	}
+
+	private void recordCopyError(Path path, Path destPath, boolean isDirectory, BasicFileAttributes attributes, Exception e) {
+		log.info("Path copy error", e);
+		errorPaths.put(path, new PathCopyError(path, e));
+		if (attributes != null) {
+			errorAttributes.put(path, attributes);
+		}
+		fireFileCopied(path, destPath, isDirectory, FileCopier.CopyResult.ERROR);
+	}
+
+	/**
+	 * Inform the path copier whether or not to overwrite a path that is in the overwrite queue.  An
+	 * overwritten directory is merged with the existing destination directory rather than replaced.
+	 *
+	 * @param path			a path (with source path) in the overwrite queue
+	 * @param overwrite		whether or not to overwrite the path of same name at the destination
+	 *
+	 * @return				whether or not the request completed successfully.
+	 */
+	public boolean resolveOverwrite(Path path, boolean overwrite) {
+		BasicFileAttributes attributes = overwritePaths.remove(path);
+		if (attributes == null) {
+			return false;
+		}
+		return !overwrite || resolve(path, attributes, true);
+	}
+
+	/**
+	 * Inform the path copier whether or not to retry copying a path that is in the copy error queue.
+	 *
+	 * @param path			a path (with source path) in the copy error queue
+	 * @param retry			whether or not to retry copying the path
+	 *
+	 * @return				whether or not the request completed successfully.
+	 */
+	public boolean resolveError(Path path, boolean retry) {
+		if (errorPaths.remove(path) == null) {
+			return false;
+		}
+		BasicFileAttributes attributes = errorAttributes.remove(path);
+		if (!retry) {
+			return true;
+		}
+		if (attributes == null) {
+			try {
+				attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+			} catch (IOException ioe) {
+				recordCopyError(path, getDestinationPath(path), false, null, ioe);
+				return false;
+			}
+		}
+		return resolve(path, attributes, false);
+	}
+
+	private boolean resolve(Path path, BasicFileAttributes attributes, boolean overwrite) {
+		if (attributes.isDirectory()) {
+			try {
+				Files.createDirectories(getDestinationPath(path));
+			} catch (IOException ioe) {
+				recordCopyError(path, getDestinationPath(path), true, attributes, ioe);
+				return false;
+			}
+			walk(path);
+			return true;
+		}
+		return copyPath(path, attributes, overwrite);
+	}
+
+	public List<Path> getOverwritePaths() {
+		synchronized (overwritePaths) {
+			return new ArrayList<Path>(overwritePaths.keySet());
+		}
+	}
+
+	public int getOverwritePathCount() {
+		return overwritePaths.size();
+	}
+
+	public List<PathCopyError> getErrorPaths() {
+		synchronized (errorPaths) {
+			return new ArrayList<PathCopyError>(errorPaths.values());
+		}
+	}
+
+	public int getErrorPathCount() {
+		return errorPaths.size();
+	}
+
+	/**
+	 * Get the destinations of the paths that were copied.
+	 *
+	 * @return			destination paths copied
+	 */
+	public List<Path> getCopiedPaths() {
+		return copiedPaths;
+	}
+
+	/**
+	 * Get the source paths that were skipped because an identical destination already exists.
+	 *
+	 * @return			source paths skipped
+	 */
+	public List<Path> getSkippedPaths() {
+		return skippedPaths;
+	}
+
+	private void fireFileCopying(Path from, Path to, boolean isDirectory) {
+		if (listeners != null) {
+			for (PathCopyListener listener : listeners) {
+				listener.pathCopying(from, to, isDirectory);
+			}
+		}
+	}
+
+	private void fireFileCopied(Path from, Path to, boolean isDirectory, FileCopier.CopyResult result) {
+		if (listeners != null) {
+			for (PathCopyListener listener : listeners) {
+				listener.pathCopied(from, to, isDirectory, result);
+			}
+		}
+	}
+
+	private void fireCopyProgress(Path from, Path to, long bytesCopied, boolean copyComplete) {
+		if (progressListeners != null) {
+			for (PathCopyProgressListener listener : progressListeners) {
+				listener.pathCopying(from, to, bytesCopied, copyComplete);
+			}
+		}
+	}
+
+	private void fireCopyComplete(boolean cancelled) {
+		if (listeners != null) {
+			boolean resolutionRequired = overwritePaths.size() > 0 || errorPaths.size() > 0;
+			for (PathCopyListener listener : listeners) {
+				listener.copyComplete(resolutionRequired, cancelled);
+			}
+		}
+	}
+}
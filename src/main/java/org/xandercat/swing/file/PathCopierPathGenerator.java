@@ -0,0 +1,15 @@
+package org.xandercat.swing.file;
+
+import java.nio.file.Path;
+
+/**
+ * PathCopierPathGenerator can be implemented by any class that wishes to provide a PathCopier
+ * with destination paths for paths to be copied rather than allowing the PathCopier to determine
+ * these paths on it's own.  Destination paths may belong to a different file system than the source.
+ *
+ * @author Scott C Arnold
+ */
+public interface PathCopierPathGenerator {
+
+	public Path generateDestinationPath(Path path);
+}
@@ -0,0 +1,18 @@
+package org.xandercat.swing.file;
+
+import java.nio.file.Path;
+
+/**
+ * PathCopyListener can be implemented by any class wishing to be kept updated on the progress
+ * of a PathCopier.
+ *
+ * @author Scott C Arnold
+ */
+public interface PathCopyListener {
+
+	public void pathCopying(Path from, Path to, boolean isDirectory);
+
+	public void pathCopied(Path from, Path to, boolean isDirectory, FileCopier.CopyResult result);
+
+	public void copyComplete(boolean resolutionRequired, boolean copyCancelled);
+}
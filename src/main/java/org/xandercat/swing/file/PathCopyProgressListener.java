@@ -0,0 +1,15 @@
+package org.xandercat.swing.file;
+
+import java.nio.file.Path;
+
+/**
+ * PathCopyProgressListener can be implemented by classes wishing to receive incremental
+ * updates on each file being copied by a PathCopier.  Files copied by their provider in a
+ * single operation report progress once, when the copy completes.
+ *
+ * @author Scott C Arnold
+ */
+public interface PathCopyProgressListener {
+
+	public void pathCopying(Path from, Path to, long bytesCopied, boolean copyComplete);
+}
@@ -0,0 +1,870 @@
+package org.xandercat.swing.file;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * SimulatedFileCopyBackend keeps files in memory on simulated devices, so that copies can be run and
+ * measured without touching any disks.  Each device has a latency for every operation, a bandwidth shared
+ * by all operations on the device, and a queue depth limiting how many operations it services at once;
+ * operations beyond the queue depth wait for a slot.  Latencies of operations in service overlap, while
+ * their bytes are transferred one operation after another.
+ *
+ * Operation and byte counts, along with the simulated service time of each device, do not depend on the
+ * machine the copy runs on.  Wall clock time follows the simulated time multiplied by the time scale; a
+ * time scale of 0 runs operations without waiting.  Failures can be injected for a single operation on a
+ * file or at a rate for an operation type; failure rates use a seeded random number generator.
+ *
+ * Files added with a length but no data read as zeros and are not held in memory.  Files written by a
+ * copy hold their data unless data retention is turned off, in which case only their lengths are kept.
+ *
+ * @author Scott C Arnold
+ */
+public class SimulatedFileCopyBackend implements FileCopyBackend {
+
+	public static final long DEFAULT_LATENCY_MICROS = 100;
+	public static final long DEFAULT_BYTES_PER_SECOND = 200L * 1024 * 1024;
+	public static final int DEFAULT_QUEUE_DEPTH = 32;
+
+	public static enum Operation {
+		STAT, OPEN, READ, WRITE, FORCE, MKDIRS, SET_LAST_MODIFIED, DELETE;
+	}
+
+	/**
+	 * Simulated storage device.
+	 */
+	public static class Device {
+
+		private final String name;
+		private final long latencyNanos;
+		private final long bytesPerSecond;
+		private final int queueDepth;
+		private final Semaphore queue;
+		private final AtomicLong operationCount = new AtomicLong();
+		private final AtomicLong byteCount = new AtomicLong();
+		private final AtomicLong serviceNanos = new AtomicLong();
+		private final AtomicInteger inService = new AtomicInteger();
+		private final AtomicInteger maxInService = new AtomicInteger();
+		private long busyUntil;		// nano time the device finishes transferring bytes already scheduled
+
+		/**
+		 * Construct a new simulated device.
+		 *
+		 * @param name				name of the device
+		 * @param latencyMicros		latency of each operation in microseconds
+		 * @param bytesPerSecond	bandwidth of the device
+		 * @param queueDepth		maximum number of operations serviced at once
+		 */
+		public Device(String name, long latencyMicros, long bytesPerSecond, int queueDepth) {
+			if (latencyMicros < 0) {
+				throw new IllegalArgumentException("Latency cannot be negative.");
+			}
+			if (bytesPerSecond <= 0) {
+				throw new IllegalArgumentException("Bandwidth must be greater than 0.");
+			}
+			if (queueDepth < 1) {
+				throw new IllegalArgumentException("Queue depth must be at least 1.");
+			}
+			this.name = name;
+			this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+			this.bytesPerSecond = bytesPerSecond;
+			this.queueDepth = queueDepth;
+			this.queue = new Semaphore(queueDepth, true);
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getLatencyMicros() {
+			return TimeUnit.NANOSECONDS.toMicros(latencyNanos);
+		}
+
+		public long getBytesPerSecond() {
+			return bytesPerSecond;
+		}
+
+		public int getQueueDepth() {
+			return queueDepth;
+		}
+
+		public long getOperationCount() {
+			return operationCount.get();
+		}
+
+		public long getByteCount() {
+			return byteCount.get();
+		}
+
+		/**
+		 * Get the total simulated time this device has spent servicing operations, before scaling.
+		 *
+		 * @return				simulated service time in nanoseconds
+		 */
+		public long getServiceNanos() {
+			return serviceNanos.get();
+		}
+
+		/**
+		 * Get the greatest number of operations this device has serviced at once.
+		 *
+		 * @return				greatest number of operations serviced at once
+		 */
+		public int getMaxOperationsInService() {
+			return maxInService.get();
+		}
+
+		public void resetStatistics() {
+			operationCount.set(0);
+			byteCount.set(0);
+			serviceNanos.set(0);
+			maxInService.set(0);
+		}
+
+		private void service(long bytes, double timeScale) throws InterruptedIOException {
+			try {
+				queue.acquire();
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for simulated device " + name);
+			}
+			try {
+				int current = inService.incrementAndGet();
+				maxInService.accumulateAndGet(current, Math::max);
+				long transferNanos = bytes * 1000000000L / bytesPerSecond;
+				operationCount.incrementAndGet();
+				byteCount.addAndGet(bytes);
+				serviceNanos.addAndGet(latencyNanos + transferNanos);
+				if (timeScale > 0) {
+					long ready = System.nanoTime() + (long) (latencyNanos * timeScale);
+					long end;
+					synchronized (this) {
+						end = Math.max(ready, busyUntil) + (long) (transferNanos * timeScale);
+						busyUntil = end;
+					}
+					for (long wait = end - System.nanoTime(); wait > 0; wait = end - System.nanoTime()) {
+						TimeUnit.NANOSECONDS.sleep(wait);
+					}
+				}
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted during operation on simulated device " + name);
+			} finally {
+				inService.decrementAndGet();
+				queue.release();
+			}
+		}
+	}
+
+	private static class Node {
+
+		private final boolean directory;
+		private byte[] data;		// null if contents are not held
+		private long length;
+		private long lastModified;
+
+		private Node(boolean directory, byte[] data, long length, long lastModified) {
+			this.directory = directory;
+			this.data = data;
+			this.length = length;
+			this.lastModified = lastModified;
+		}
+
+		private synchronized int read(ByteBuffer dst, long position) {
+			if (position >= length) {
+				return -1;
+			}
+			int count = (int) Math.min(dst.remaining(), length - position);
+			if (data == null) {
+				for (int i = 0; i < count; i++) {
+					dst.put((byte) 0);
+				}
+			} else {
+				int held = (int) Math.max(0, Math.min(count, data.length - position));
+				if (held > 0) {
+					dst.put(data, (int) position, held);
+				}
+				for (int i = held; i < count; i++) {
+					dst.put((byte) 0);
+				}
+			}
+			return count;
+		}
+
+		private synchronized int write(ByteBuffer src, long position) throws IOException {
+			int count = src.remaining();
+			long end = position + count;
+			if (data == null) {
+				src.position(src.limit());
+			} else {
+				if (end > Integer.MAX_VALUE - 8) {
+					throw new IOException("Simulated file is too large to hold in memory; turn off data retention");
+				}
+				if (end > data.length) {
+					data = Arrays.copyOf(data, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(end, data.length * 2L)));
+				}
+				src.get(data, (int) position, count);
+			}
+			length = Math.max(length, end);
+			lastModified = System.currentTimeMillis();
+			return count;
+		}
+
+		private synchronized void truncate(long size) {
+			if (size < length) {
+				if (data != null) {
+					Arrays.fill(data, (int) size, (int) Math.min(length, data.length), (byte) 0);
+				}
+				length = size;
+				lastModified = System.currentTimeMillis();
+			}
+		}
+	}
+
+	/**
+	 * Channel to a simulated file.  Memory mapping and locking are not supported.
+	 */
+	private class SimulatedChannel extends FileChannel {
+
+		private final File file;
+		private final Node node;
+		private final Device device;
+		private final boolean writable;
+		private long position;
+
+		private SimulatedChannel(File file, Node node, boolean writable) {
+			this.file = file;
+			this.node = node;
+			this.device = getDevice(file);
+			this.writable = writable;
+		}
+
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			int read = read(dst, position);
+			if (read > 0) {
+				position += read;
+			}
+			return read;
+		}
+
+		@Override
+		public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+			long total = 0;
+			for (int i = offset; i < offset + length; i++) {
+				int read = read(dsts[i]);
+				if (read < 0) {
+					return (total == 0)? -1 : total;
+				}
+				total += read;
+				if (dsts[i].hasRemaining()) {
+					break;
+				}
+			}
+			return total;
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+			int written = write(src, position);
+			position += written;
+			return written;
+		}
+
+		@Override
+		public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+			long total = 0;
+			for (int i = offset; i < offset + length; i++) {
+				total += write(srcs[i]);
+			}
+			return total;
+		}
+
+		@Override
+		public long position() throws IOException {
+			return position;
+		}
+
+		@Override
+		public FileChannel position(long newPosition) throws IOException {
+			if (newPosition < 0) {
+				throw new IllegalArgumentException("Position cannot be negative.");
+			}
+			this.position = newPosition;
+			return this;
+		}
+
+		@Override
+		public long size() throws IOException {
+			synchronized (node) {
+				return node.length;
+			}
+		}
+
+		@Override
+		public FileChannel truncate(long size) throws IOException {
+			if (!writable) {
+				throw new NonWritableChannelException();
+			}
+			node.truncate(size);
+			position = Math.min(position, size);
+			return this;
+		}
+
+		@Override
+		public void force(boolean metaData) throws IOException {
+			perform(Operation.FORCE, file, device, 0);
+		}
+
+		@Override
+		public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+			if (target instanceof SimulatedChannel) {
+				return transfer(this, position, count, (SimulatedChannel) target);
+			}
+			ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(count, 65536));
+			int read = read(buffer, position);
+			if (read <= 0) {
+				return 0;
+			}
+			buffer.flip();
+			return target.write(buffer);
+		}
+
+		@Override
+		public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+			if (src instanceof SimulatedChannel) {
+				SimulatedChannel in = (SimulatedChannel) src;
+				long transferred = transfer(in, in.position, count, this, position);
+				in.position += transferred;
+				return transferred;
+			}
+			ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(count, 65536));
+			int read = src.read(buffer);
+			if (read <= 0) {
+				return 0;
+			}
+			buffer.flip();
+			return write(buffer, position);
+		}
+
+		@Override
+		public int read(ByteBuffer dst, long position) throws IOException {
+			int count = (int) Math.max(0, Math.min(dst.remaining(), size() - position));
+			perform(Operation.READ, file, device, count);
+			return node.read(dst, position);
+		}
+
+		@Override
+		public int write(ByteBuffer src, long position) throws IOException {
+			if (!writable) {
+				throw new NonWritableChannelException();
+			}
+			perform(Operation.WRITE, file, device, src.remaining());
+			return node.write(src, position);
+		}
+
+		@Override
+		public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+			throw new UnsupportedOperationException("Simulated files cannot be mapped.");
+		}
+
+		@Override
+		public FileLock lock(long position, long size, boolean shared) throws IOException {
+			throw new UnsupportedOperationException("Simulated files cannot be locked.");
+		}
+
+		@Override
+		public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+			throw new UnsupportedOperationException("Simulated files cannot be locked.");
+		}
+
+		@Override
+		protected void implCloseChannel() throws IOException {
+			// nothing to release
+		}
+	}
+
+	private final Map<String, Node> nodes = new HashMap<String, Node>();
+	private final Map<String, Device> devices = new LinkedHashMap<String, Device>();
+	private final Device defaultDevice;
+	private final AtomicLongArray operationCounts = new AtomicLongArray(Operation.values().length);
+	private final Set<String> injectedFailures = new HashSet<String>();
+	private final double[] failureRates = new double[Operation.values().length];
+	private final AtomicLong failureCount = new AtomicLong();
+	private Random random = new Random(0);
+	private volatile double timeScale = 1;
+	private volatile boolean retainData = true;
+
+	/**
+	 * Construct a new simulated backend with a default device of 100 microsecond latency,
+	 * 200 MiB per second bandwidth, and a queue depth of 32.
+	 */
+	public SimulatedFileCopyBackend() {
+		this(new Device("default", DEFAULT_LATENCY_MICROS, DEFAULT_BYTES_PER_SECOND, DEFAULT_QUEUE_DEPTH));
+	}
+
+	/**
+	 * Construct a new simulated backend with the given default device.  Files not beneath the root
+	 * of any other device are on the default device.
+	 *
+	 * @param defaultDevice		default device
+	 */
+	public SimulatedFileCopyBackend(Device defaultDevice) {
+		this.defaultDevice = defaultDevice;
+	}
+
+	/**
+	 * Place the files beneath the given root directory on the given device.  The root directory is created.
+	 *
+	 * @param root				root directory of the device
+	 * @param device			device
+	 */
+	public void addDevice(File root, Device device) {
+		synchronized (devices) {
+			devices.put(key(root), device);
+		}
+		addDirectory(root);
+	}
+
+	/**
+	 * Get the device the given file is on.
+	 *
+	 * @param file				file
+	 *
+	 * @return					device the file is on
+	 */
+	public Device getDevice(File file) {
+		String path = key(file);
+		Device device = defaultDevice;
+		int matchLength = -1;
+		synchronized (devices) {
+			for (Map.Entry<String, Device> entry : devices.entrySet()) {
+				String root = entry.getKey();
+				if (root.length() > matchLength && (path.equals(root)
+						|| path.startsWith(root.endsWith(File.separator)? root : root + File.separator))) {
+					device = entry.getValue();
+					matchLength = root.length();
+				}
+			}
+		}
+		return device;
+	}
+
+	/**
+	 * Set the factor simulated time is multiplied by to get the wall clock time operations take.
+	 *
+	 * @param timeScale			time scale, or 0 to run operations without waiting
+	 */
+	public void setTimeScale(double timeScale) {
+		if (timeScale < 0) {
+			throw new IllegalArgumentException("Time scale cannot be negative.");
+		}
+		this.timeScale = timeScale;
+	}
+
+	public double getTimeScale() {
+		return timeScale;
+	}
+
+	/**
+	 * Set whether or not files created by a copy hold their data.  When data is not retained, only the
+	 * lengths of files are kept and they read as zeros, which allows copies of any size to be simulated.
+	 *
+	 * @param retainData		whether or not to hold data of files created by a copy
+	 */
+	public void setRetainData(boolean retainData) {
+		this.retainData = retainData;
+	}
+
+	public boolean isRetainData() {
+		return retainData;
+	}
+
+	/**
+	 * Add a directory, along with any missing parent directories.
+	 *
+	 * @param directory			directory to add
+	 */
+	public void addDirectory(File directory) {
+		synchronized (nodes) {
+			makeDirectories(key(directory));
+		}
+	}
+
+	/**
+	 * Add a file with the given data, along with any missing parent directories.
+	 *
+	 * @param file				file to add
+	 * @param data				contents of the file
+	 * @param lastModified		last modified time of the file
+	 */
+	public void addFile(File file, byte[] data, long lastModified) {
+		addNode(file, new Node(false, data.clone(), data.length, lastModified));
+	}
+
+	/**
+	 * Add a file of the given length that reads as zeros, along with any missing parent directories.  The
+	 * contents of the file are not held in memory.
+	 *
+	 * @param file				file to add
+	 * @param length			length of the file
+	 * @param lastModified		last modified time of the file
+	 */
+	public void addFile(File file, long length, long lastModified) {
+		addNode(file, new Node(false, null, length, lastModified));
+	}
+
+	private void addNode(File file, Node node) {
+		String path = key(file);
+		synchronized (nodes) {
+			String parent = new File(path).getParent();
+			if (parent != null) {
+				makeDirectories(parent);
+			}
+			nodes.put(path, node);
+		}
+	}
+
+	/**
+	 * Get the data held for a file.
+	 *
+	 * @param file				file to get data of
+	 *
+	 * @return					copy of the file's data, or null if the file does not exist or its data is not held
+	 */
+	public byte[] getData(File file) {
+		Node node = getNode(file);
+		if (node == null) {
+			return null;
+		}
+		synchronized (node) {
+			return (node.data == null)? null : Arrays.copyOf(node.data, (int) node.length);
+		}
+	}
+
+	/**
+	 * Cause the next operation of the given type on the given file to fail.
+	 *
+	 * @param operation			operation to fail; cannot be STAT
+	 * @param file				file to fail the operation on
+	 */
+	public void injectFailure(Operation operation, File file) {
+		if (operation == Operation.STAT) {
+			throw new IllegalArgumentException("Failures cannot be injected for STAT operations.");
+		}
+		synchronized (injectedFailures) {
+			injectedFailures.add(operation.name() + ':' + key(file));
+		}
+	}
+
+	/**
+	 * Set the fraction of operations of the given type that fail.
+	 *
+	 * @param operation			operation to fail; cannot be STAT
+	 * @param rate				fraction of operations to fail, from 0 to 1
+	 */
+	public void setFailureRate(Operation operation, double rate) {
+		if (operation == Operation.STAT) {
+			throw new IllegalArgumentException("Failures cannot be injected for STAT operations.");
+		}
+		if (rate < 0 || rate > 1) {
+			throw new IllegalArgumentException("Failure rate must be between 0 and 1.");
+		}
+		synchronized (failureRates) {
+			failureRates[operation.ordinal()] = rate;
+		}
+	}
+
+	/**
+	 * Set the seed of the random number generator used for failure rates.  The default seed is 0.
+	 *
+	 * @param seed				seed for failure rates
+	 */
+	public void setRandomSeed(long seed) {
+		synchronized (failureRates) {
+			this.random = new Random(seed);
+		}
+	}
+
+	public long getOperationCount(Operation operation) {
+		return operationCounts.get(operation.ordinal());
+	}
+
+	public long getFailureCount() {
+		return failureCount.get();
+	}
+
+	/**
+	 * Reset the operation and failure counts of this backend and the statistics of its devices.
+	 */
+	public void resetStatistics() {
+		for (int i = 0; i < operationCounts.length(); i++) {
+			operationCounts.set(i, 0);
+		}
+		failureCount.set(0);
+		defaultDevice.resetStatistics();
+		synchronized (devices) {
+			for (Device device : devices.values()) {
+				device.resetStatistics();
+			}
+		}
+	}
+
+	public boolean exists(File file) {
+		stat(file);
+		return getNode(file) != null;
+	}
+
+	public boolean isDirectory(File file) {
+		stat(file);
+		Node node = getNode(file);
+		return node != null && node.directory;
+	}
+
+	public long length(File file) {
+		stat(file);
+		Node node = getNode(file);
+		if (node == null || node.directory) {
+			return 0;
+		}
+		synchronized (node) {
+			return node.length;
+		}
+	}
+
+	public long lastModified(File file) {
+		stat(file);
+		Node node = getNode(file);
+		if (node == null) {
+			return 0;
+		}
+		synchronized (node) {
+			return node.lastModified;
+		}
+	}
+
+	public boolean mkdirs(File directory) {
+		if (!performQuietly(Operation.MKDIRS, directory)) {
+			return false;
+		}
+		synchronized (nodes) {
+			return makeDirectories(key(directory));
+		}
+	}
+
+	public boolean setLastModified(File file, long time) {
+		if (!performQuietly(Operation.SET_LAST_MODIFIED, file)) {
+			return false;
+		}
+		Node node = getNode(file);
+		if (node == null) {
+			return false;
+		}
+		synchronized (node) {
+			node.lastModified = time;
+		}
+		return true;
+	}
+
+	public boolean delete(File file) {
+		if (!performQuietly(Operation.DELETE, file)) {
+			return false;
+		}
+		String path = key(file);
+		synchronized (nodes) {
+			Node node = nodes.get(path);
+			if (node == null) {
+				return false;
+			}
+			if (node.directory) {
+				String prefix = path.endsWith(File.separator)? path : path + File.separator;
+				for (String other : nodes.keySet()) {
+					if (other.startsWith(prefix)) {
+						return false;
+					}
+				}
+			}
+			nodes.remove(path);
+			return true;
+		}
+	}
+
+	public FileChannel openInput(File file) throws IOException {
+		perform(Operation.OPEN, file, getDevice(file), 0);
+		Node node = getNode(file);
+		if (node == null) {
+			throw new FileNotFoundException(file.getAbsolutePath() + " (No such file or directory)");
+		}
+		if (node.directory) {
+			throw new FileNotFoundException(file.getAbsolutePath() + " (Is a directory)");
+		}
+		return new SimulatedChannel(file, node, false);
+	}
+
+	public FileChannel openOutput(File file, long resumeOffset) throws IOException {
+		perform(Operation.OPEN, file, getDevice(file), 0);
+		String path = key(file);
+		Node node;
+		synchronized (nodes) {
+			String parent = new File(path).getParent();
+			Node parentNode = (parent == null)? null : nodes.get(parent);
+			if (parent != null && !isRoot(parent) && (parentNode == null || !parentNode.directory)) {
+				throw new FileNotFoundException(file.getAbsolutePath() + " (No such file or directory)");
+			}
+			node = nodes.get(path);
+			if (node != null && node.directory) {
+				throw new FileNotFoundException(file.getAbsolutePath() + " (Is a directory)");
+			}
+			if (node == null) {
+				node = new Node(false, retainData? new byte[0] : null, 0, System.currentTimeMillis());
+				nodes.put(path, node);
+			}
+		}
+		node.truncate(resumeOffset);
+		SimulatedChannel channel = new SimulatedChannel(file, node, true);
+		channel.position(resumeOffset);
+		return channel;
+	}
+
+	public long transfer(FileChannel in, long position, long count, FileChannel out) throws IOException {
+		if (!(in instanceof SimulatedChannel) || !(out instanceof SimulatedChannel)) {
+			return in.transferTo(position, count, out);
+		}
+		SimulatedChannel simulatedOut = (SimulatedChannel) out;
+		long transferred = transfer((SimulatedChannel) in, position, count, simulatedOut, simulatedOut.position);
+		simulatedOut.position += transferred;
+		return transferred;
+	}
+
+	/**
+	 * Transfer bytes between simulated channels as one read on the input device and one write on the
+	 * output device.
+	 */
+	private long transfer(SimulatedChannel in, long position, long count, SimulatedChannel out, long outPosition) throws IOException {
+		if (!out.writable) {
+			throw new NonWritableChannelException();
+		}
+		int length = (int) Math.max(0, Math.min(Math.min(count, Integer.MAX_VALUE - 8), in.size() - position));
+		if (length == 0) {
+			return 0;
+		}
+		perform(Operation.READ, in.file, in.device, length);
+		perform(Operation.WRITE, out.file, out.device, length);
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		if (in.node.data == null && out.node.data == null) {
+			// neither side holds data; only the length needs to change
+			synchronized (out.node) {
+				out.node.length = Math.max(out.node.length, outPosition + length);
+				out.node.lastModified = System.currentTimeMillis();
+			}
+			return length;
+		}
+		in.node.read(buffer, position);
+		buffer.flip();
+		return out.node.write(buffer, outPosition);
+	}
+
+	private void stat(File file) {
+		operationCounts.incrementAndGet(Operation.STAT.ordinal());
+		try {
+			getDevice(file).service(0, timeScale);
+		} catch (InterruptedIOException e) {
+			// interrupt status is kept; the stat completes without waiting
+		}
+	}
+
+	private boolean performQuietly(Operation operation, File file) {
+		try {
+			perform(operation, file, getDevice(file), 0);
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Perform an operation on a device, failing it if a failure was injected for it.  Failed operations
+	 * take the same time as operations that succeed.
+	 */
+	private void perform(Operation operation, File file, Device device, long bytes) throws IOException {
+		operationCounts.incrementAndGet(operation.ordinal());
+		device.service(bytes, timeScale);
+		boolean fail;
+		synchronized (injectedFailures) {
+			fail = injectedFailures.remove(operation.name() + ':' + key(file));
+		}
+		if (!fail) {
+			synchronized (failureRates) {
+				double rate = failureRates[operation.ordinal()];
+				fail = rate > 0 && random.nextDouble() < rate;
+			}
+		}
+		if (fail) {
+			failureCount.incrementAndGet();
+			throw new IOException("Simulated " + operation.name().toLowerCase() + " failure on " + device.getName() + ": " + file.getAbsolutePath());
+		}
+	}
+
+	private Node getNode(File file) {
+		String path = key(file);
+		synchronized (nodes) {
+			Node node = nodes.get(path);
+			if (node == null && isRoot(path)) {
+				node = new Node(true, null, 0, 0);
+				nodes.put(path, node);
+			}
+			return node;
+		}
+	}
+
+	/**
+	 * Make a directory and any missing parents.  Must be called while synchronized on the nodes.
+	 *
+	 * @return				whether or not the directory was made
+	 */
+	private boolean makeDirectories(String path) {
+		Node node = nodes.get(path);
+		if (node != null) {
+			return false;
+		}
+		String parent = new File(path).getParent();
+		if (parent != null) {
+			makeDirectories(parent);
+			Node parentNode = nodes.get(parent);
+			if (parentNode != null && !parentNode.directory) {
+				return false;
+			}
+		}
+		nodes.put(path, new Node(true, null, 0, System.currentTimeMillis()));
+		return true;
+	}
+
+	private static boolean isRoot(String path) {
+		return new File(path).getParent() == null;
+	}
+
+	private static String key(File file) {
+		return file.getAbsoluteFile().toPath().normalize().toString();
+	}
+}
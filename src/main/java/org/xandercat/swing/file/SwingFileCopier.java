@@ -3,9 +3,11 @@ package org.xandercat.swing.file;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
+import javax.swing.Timer;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -15,38 +17,174 @@ import org.xandercat.swing.file.FileCopier.CopyResult;
  * SwingFileCopier is a wrapper for FileCopier for use in Swing applications; SwingFileCopier runs
  * as a background thread; listener events are executed on the event dispatch thread.
  * 
+ * Events for each file and each chunk copied are only published once a listener for them has been 
+ * added.  For progress displays, add a CopyStatisticsListener instead; it is sent samples of a 
+ * CopyProgressChannel at a fixed rate, so the load on the event dispatch thread stays the same no 
+ * matter how many files are copied or how quickly.  Listeners that only need some of the files, such
+ * as files in error, can be added with addCopyThreadFileCopyListener and hand just those files to the
+ * event dispatch thread themselves.
+ * 
  * @author Scott C Arnold
  */
-public class SwingFileCopier extends SwingWorker<Void, SwingFileCopierEvent> implements FileCopyListener, FileCopyProgressListener {
+public class SwingFileCopier extends SwingWorker<Void, SwingFileCopierEvent> implements FileCopyListener, FileCopyProgressListener, FileScanListener, FileVerifyListener, CopyPlanListener, FileDurabilityListener {
+
+	public static final int DEFAULT_STATISTICS_INTERVAL = 100;	// 10 samples per second
 
 	private static final Logger log = LogManager.getLogger(SwingFileCopier.class);
 			
 	private FileCopier fileCopier;
 	private List<FileCopyListener> fileCopyListeners = new ArrayList<FileCopyListener>();
+	private List<FileCopyListener> copyCompleteListeners = new ArrayList<FileCopyListener>();
 	private List<FileCopyProgressListener> fileCopyProgressListeners = new ArrayList<FileCopyProgressListener>(); 
+	private List<FileScanListener> fileScanListeners = new ArrayList<FileScanListener>();
+	private List<FileVerifyListener> fileVerifyListeners = new ArrayList<FileVerifyListener>();
+	private List<CopyPlanListener> copyPlanListeners = new ArrayList<CopyPlanListener>();
+	private List<FileDurabilityListener> fileDurabilityListeners = new ArrayList<FileDurabilityListener>();
+	private List<CopyStatisticsListener> copyStatisticsListeners = new ArrayList<CopyStatisticsListener>();
+	private CopyProgressChannel progressChannel = new CopyProgressChannel();
+	private int statisticsInterval = DEFAULT_STATISTICS_INTERVAL;
+	private Timer statisticsTimer;
+	private volatile boolean fileEvents;		// whether or not to publish events for each file
+	private boolean progressEvents;				// whether or not to publish events for each chunk copied
+	private final AtomicBoolean samplePending = new AtomicBoolean();
 	
 	public SwingFileCopier(List<File> files, FileCopierPathGenerator pathGenerator) {
 		this.fileCopier = new FileCopier(files, pathGenerator);
-		this.fileCopier.addFileCopyListener(this);
-		this.fileCopier.addFileCopyProgressListener(this);
+		initialize(files);
 	}
 	
 	public SwingFileCopier(List<File> files, File destination, File source) {
 		this.fileCopier = new FileCopier(files, destination, source);
+		initialize(files);
+	}
+	
+	private void initialize(List<File> files) {
+		this.progressChannel.setTotalFiles(files.size());
+		this.fileCopier.addFileCopyListener(progressChannel);
+		this.fileCopier.addFileCopyProgressListener(progressChannel);
+		this.fileCopier.addFileScanListener(progressChannel);
 		this.fileCopier.addFileCopyListener(this);
-		this.fileCopier.addFileCopyProgressListener(this);
+		this.fileCopier.addFileScanListener(this);
+		this.fileCopier.addFileVerifyListener(this);
+		this.fileCopier.addCopyPlanListener(this);
 	}
 	
+	/**
+	 * Add a FileCopyListener.  Adding a FileCopyListener enables publishing an event for each file 
+	 * processed.
+	 * 
+	 * @param listener			listener to add
+	 */
 	public void addFileCopyListener(FileCopyListener listener) {
 		this.fileCopyListeners.add(listener);
+		this.fileEvents = true;
 	}
 	
 	public void removeFileCopyListener(FileCopyListener listener) {
 		this.fileCopyListeners.remove(listener);
 	}
 	
+	/**
+	 * Add a FileCopyListener to be notified only when the copy is complete.  Unlike addFileCopyListener,
+	 * this does not enable publishing an event for each file processed.
+	 * 
+	 * @param listener			listener to add
+	 */
+	public void addCopyCompleteListener(FileCopyListener listener) {
+		this.copyCompleteListeners.add(listener);
+	}
+	
+	public void removeCopyCompleteListener(FileCopyListener listener) {
+		this.copyCompleteListeners.remove(listener);
+	}
+	
+	/**
+	 * Add a FileCopyListener that is called directly from the copy threads rather than on the event
+	 * dispatch thread.  No event is published for it, so it adds no load to the event dispatch thread;
+	 * the listener must be thread safe and return quickly.  This should be done before the copy is started.
+	 * 
+	 * @param listener			listener to add
+	 */
+	public void addCopyThreadFileCopyListener(FileCopyListener listener) {
+		this.fileCopier.addFileCopyListener(listener);
+	}
+	
+	/**
+	 * Add a FileCopyProgressListener.  Adding a FileCopyProgressListener enables publishing an event
+	 * for each chunk of each file copied; this should be done before the copy is started.
+	 * 
+	 * @param listener			listener to add
+	 */
 	public void addFileCopyProgressListener(FileCopyProgressListener listener) {
 		this.fileCopyProgressListeners.add(listener);
+		if (!progressEvents) {
+			this.fileCopier.addFileCopyProgressListener(this);
+			this.progressEvents = true;
+		}
+	}
+	
+	/**
+	 * Add a CopyStatisticsListener to be sent samples of copy progress at the statistics interval
+	 * while copying, and a final sample once the copy is complete.  Files processed after the copy is
+	 * complete, such as errors retried during resolution, are followed by a further sample.
+	 * 
+	 * @param listener			listener to add
+	 */
+	public void addCopyStatisticsListener(CopyStatisticsListener listener) {
+		this.copyStatisticsListeners.add(listener);
+	}
+	
+	public void removeCopyStatisticsListener(CopyStatisticsListener listener) {
+		this.copyStatisticsListeners.remove(listener);
+	}
+	
+	/**
+	 * Set how often copy statistics are sampled.
+	 * 
+	 * @param statisticsInterval	milliseconds between samples
+	 */
+	public void setStatisticsInterval(int statisticsInterval) {
+		if (statisticsInterval < 1) {
+			throw new IllegalArgumentException("Statistics interval must be > 0");
+		}
+		this.statisticsInterval = statisticsInterval;
+	}
+	
+	/**
+	 * Set the total bytes to copy, used to estimate the time remaining.
+	 * 
+	 * @param totalBytes		total bytes, or 0 if not known
+	 */
+	public void setTotalBytes(long totalBytes) {
+		progressChannel.setTotalBytes(totalBytes);
+	}
+	
+	public CopyProgressChannel getProgressChannel() {
+		return progressChannel;
+	}
+	
+	public void addFileScanListener(FileScanListener listener) {
+		this.fileScanListeners.add(listener);
+	}
+	
+	public void addFileVerifyListener(FileVerifyListener listener) {
+		this.fileVerifyListeners.add(listener);
+	}
+	
+	public void addCopyPlanListener(CopyPlanListener listener) {
+		this.copyPlanListeners.add(listener);
+	}
+	
+	/**
+	 * Add a FileDurabilityListener.  Events are only published once a listener has been added.
+	 * 
+	 * @param listener			listener to add
+	 */
+	public void addFileDurabilityListener(FileDurabilityListener listener) {
+		this.fileDurabilityListeners.add(listener);
+		if (this.fileDurabilityListeners.size() == 1) {
+			this.fileCopier.addFileDurabilityListener(this);
+		}
 	}
 	
 	public List<File> getCopiedFiles() {
@@ -57,6 +195,38 @@ public class SwingFileCopier extends SwingWorker<Void, SwingFileCopierEvent> imp
 		return fileCopier.getOverwriteFiles();
 	}
 	
+	public int getOverwriteFileCount() {
+		return fileCopier.getOverwriteFileCount();
+	}
+	
+	public int getErrorFileCount() {
+		return fileCopier.getErrorFileCount();
+	}
+	
+	public long getCopiedFileCount() {
+		return fileCopier.getCopiedFileCount();
+	}
+	
+	public long getSkippedFileCount() {
+		return fileCopier.getSkippedFileCount();
+	}
+	
+	public long getLinkedFileCount() {
+		return fileCopier.getLinkedFileCount();
+	}
+	
+	public void setResultSink(FileCopyResultSink resultSink) {
+		fileCopier.setResultSink(resultSink);
+	}
+	
+	public void setBackend(FileCopyBackend backend) {
+		fileCopier.setBackend(backend);
+	}
+	
+	public void setRetryPolicy(CopyRetryPolicy retryPolicy) {
+		fileCopier.setRetryPolicy(retryPolicy);
+	}
+	
 	public List<FileCopier.FileCopyError> getErrorFiles() {
 		return fileCopier.getErrorFiles();
 	}
@@ -69,6 +239,14 @@ public class SwingFileCopier extends SwingWorker<Void, SwingFileCopierEvent> imp
 		return fileCopier.getSkippedFiles();
 	}
 	
+	public List<File> getDeletedFiles() {
+		return fileCopier.getDeletedFiles();
+	}
+	
+	public List<File> getLinkedFiles() {
+		return fileCopier.getLinkedFiles();
+	}
+	
 	public void resolveError(File file, boolean retry) {
 		fileCopier.resolveError(file, retry);
 	}
@@ -85,12 +263,167 @@ public class SwingFileCopier extends SwingWorker<Void, SwingFileCopierEvent> imp
 		fileCopier.enableTestMode(speedFactor);
 	}
 	
+	public void enableParallelMode() {
+		fileCopier.enableParallelMode();
+	}
+	
+	public void enableParallelMode(int threadCount) {
+		fileCopier.enableParallelMode(threadCount);
+	}
+	
+	public int getThreadCount() {
+		return fileCopier.getThreadCount();
+	}
+	
+	public void enableRangeCopy() {
+		fileCopier.enableRangeCopy();
+	}
+	
+	public void enableRangeCopy(long threshold, int threadCount) {
+		fileCopier.enableRangeCopy(threshold, threadCount);
+	}
+	
+	public void enableStreamingScan() {
+		fileCopier.enableStreamingScan();
+	}
+	
+	public void enableStreamingScan(int queueCapacity) {
+		fileCopier.enableStreamingScan(queueCapacity);
+	}
+	
+	public void enableDeltaCopy() {
+		fileCopier.enableDeltaCopy();
+	}
+	
+	public void enableDeltaCopy(long threshold, int blockSize) {
+		fileCopier.enableDeltaCopy(threshold, blockSize);
+	}
+	
+	public void enableCacheBypass() {
+		fileCopier.enableCacheBypass();
+	}
+	
+	public void enableCacheBypass(int chunkSize) {
+		fileCopier.enableCacheBypass(chunkSize);
+	}
+	
+	public void enablePlanning() {
+		fileCopier.enablePlanning();
+	}
+	
+	public void enablePlanning(FileCopier.CopyOrder copyOrder) {
+		fileCopier.enablePlanning(copyOrder);
+	}
+	
+	public CopyPlan getCopyPlan() {
+		return fileCopier.getCopyPlan();
+	}
+	
+	public void setDurabilityMode(FileCopier.DurabilityMode durabilityMode) {
+		fileCopier.setDurabilityMode(durabilityMode);
+	}
+	
+	public void setDurabilityMode(FileCopier.DurabilityMode durabilityMode, int batchFiles, long batchBytes) {
+		fileCopier.setDurabilityMode(durabilityMode, batchFiles, batchBytes);
+	}
+	
+	public void enableAutotuning() {
+		fileCopier.enableAutotuning();
+	}
+	
+	public void enableAutotuning(long windowMillis) {
+		fileCopier.enableAutotuning(windowMillis);
+	}
+	
+	public void enableSparseCopy() {
+		fileCopier.enableSparseCopy();
+	}
+	
+	public void enableSparseCopy(int blockSize) {
+		fileCopier.enableSparseCopy(blockSize);
+	}
+	
+	public void setPreallocate(boolean preallocate) {
+		fileCopier.setPreallocate(preallocate);
+	}
+	
+	public void setPipelineMode(FileCopier.PipelineMode pipelineMode, int ringSize) {
+		fileCopier.setPipelineMode(pipelineMode, ringSize);
+	}
+	
+	public void enableSyncMode() {
+		fileCopier.enableSyncMode();
+	}
+	
+	public void enableSyncMode(boolean deleteExtraneous) {
+		fileCopier.enableSyncMode(deleteExtraneous);
+	}
+	
+	public void enableLinkMode(File previousBackup) {
+		fileCopier.enableLinkMode(previousBackup);
+	}
+	
+	public void enableLinkMode(File previousBackup, File destinationRoot, boolean compareDigests) {
+		fileCopier.enableLinkMode(previousBackup, destinationRoot, compareDigests);
+	}
+	
+	public void enableSmallFileFastPath() {
+		fileCopier.enableSmallFileFastPath();
+	}
+	
+	public void enableSmallFileFastPath(int threshold) {
+		fileCopier.enableSmallFileFastPath(threshold);
+	}
+	
+	public void enableVerification() {
+		fileCopier.enableVerification();
+	}
+	
+	public void enableVerification(FileCopier.VerifyMode verifyMode, FileDigest.Algorithm algorithm) {
+		fileCopier.enableVerification(verifyMode, algorithm);
+	}
+	
+	public void setJournal(FileCopyJournal journal) {
+		fileCopier.setJournal(journal);
+	}
+	
+	public void pause() {
+		fileCopier.pause();
+	}
+	
+	public void resume() {
+		fileCopier.resume();
+	}
+	
+	public boolean isPaused() {
+		return fileCopier.isPaused();
+	}
+	
+	public void setMaxBytesPerSecond(long bytesPerSecond) {
+		fileCopier.setMaxBytesPerSecond(bytesPerSecond);
+	}
+	
+	public void setMaxFilesPerSecond(double filesPerSecond) {
+		fileCopier.setMaxFilesPerSecond(filesPerSecond);
+	}
+	
 	public void cancel() {
 		fileCopier.cancel();
 	}
 	
 	@Override
 	protected Void doInBackground() throws Exception {
+		if (copyStatisticsListeners.size() > 0) {
+			// the timer is started on the event dispatch thread; this runs before done() is called there
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					if (!isDone()) {
+						statisticsTimer = new Timer(statisticsInterval, event -> fireCopyStatisticsSampled());
+						statisticsTimer.start();
+					}
+				}
+			});
+		}
 		try {
 			this.fileCopier.copy();
 		} catch (Exception e) {
@@ -98,6 +431,16 @@ public class SwingFileCopier extends SwingWorker<Void, SwingFileCopierEvent> imp
 		}
 		return null;
 	}
+	
+	@Override
+	protected void done() {
+		if (statisticsTimer != null) {
+			statisticsTimer.stop();
+		}
+		if (copyStatisticsListeners.size() > 0) {
+			fireCopyStatisticsSampled();
+		}
+	}
 
 	@Override
 	protected void process(List<SwingFileCopierEvent> eventList) {
@@ -115,11 +458,33 @@ public class SwingFileCopier extends SwingWorker<Void, SwingFileCopierEvent> imp
 			case COPY_PROGRESS:
 				fireFileCopyProgress(event);
 				break;
+			case SCAN_PROGRESS:
+				fireFilesScanned(event);
+				break;
+			case VERIFIED:
+				fireFileVerified(event);
+				break;
+			case PLANNED:
+				fireCopyPlanned(event);
+				break;
+			case DURABLE:
+				fireFilesDurable(event);
+				break;
 			}
 		}
 	}
 
+	private void fireCopyStatisticsSampled() {
+		CopyStatistics statistics = progressChannel.sample();
+		for (CopyStatisticsListener listener : copyStatisticsListeners) {
+			listener.copyStatisticsSampled(statistics);
+		}
+	}
+	
 	private void fireCopyComplete(SwingFileCopierEvent event) {
+		for (FileCopyListener listener : copyCompleteListeners) {
+			listener.copyComplete(event.isResolutionRequired(), event.isCopyCancelled());
+		}
 		for (FileCopyListener listener : fileCopyListeners) {
 			listener.copyComplete(event.isResolutionRequired(), event.isCopyCancelled());
 		}
@@ -143,6 +508,30 @@ public class SwingFileCopier extends SwingWorker<Void, SwingFileCopierEvent> imp
 		}
 	}
 	
+	private void fireFilesScanned(SwingFileCopierEvent event) {
+		for (FileScanListener listener : fileScanListeners) {
+			listener.filesScanned(event.getFilesScanned(), event.isScanComplete());
+		}
+	}
+	
+	private void fireFilesDurable(SwingFileCopierEvent event) {
+		for (FileDurabilityListener listener : fileDurabilityListeners) {
+			listener.filesDurable(event.getDurableFiles());
+		}
+	}
+	
+	private void fireCopyPlanned(SwingFileCopierEvent event) {
+		for (CopyPlanListener listener : copyPlanListeners) {
+			listener.copyPlanned(event.getPlan());
+		}
+	}
+	
+	private void fireFileVerified(SwingFileCopierEvent event) {
+		for (FileVerifyListener listener : fileVerifyListeners) {
+			listener.fileVerified(event.getFrom(), event.getTo(), event.getDigest(), event.isVerified());
+		}
+	}
+	
 	public void copyComplete(boolean resolutionRequired, boolean copyCancelled) {
 		SwingFileCopierEvent event = new SwingFileCopierEvent();
 		event.setCopyCompleteType(resolutionRequired, copyCancelled);
@@ -150,6 +539,18 @@ public class SwingFileCopier extends SwingWorker<Void, SwingFileCopierEvent> imp
 	}
 
 	public void fileCopied(File from, File to, boolean isDirectory, CopyResult copyResult) {
+		if (isDone() && copyStatisticsListeners.size() > 0 && samplePending.compareAndSet(false, true)) {
+			// the statistics timer has stopped; samples after files are resolved are coalesced into one
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					samplePending.set(false);
+					fireCopyStatisticsSampled();
+				}
+			});
+		}
+		if (!fileEvents) {
+			return;
+		}
 		if (isDone()) {
 			final SwingFileCopierEvent event = new SwingFileCopierEvent();
 			event.setCopiedType(from, to, isDirectory, copyResult);
@@ -166,6 +567,9 @@ public class SwingFileCopier extends SwingWorker<Void, SwingFileCopierEvent> imp
 	}
 
 	public void fileCopying(File from, File to, boolean isDirectory) {
+		if (!fileEvents) {
+			return;
+		}
 		if (isDone()) {
 			final SwingFileCopierEvent event = new SwingFileCopierEvent();
 			event.setCopyingType(from, to, isDirectory);		
@@ -195,5 +599,49 @@ public class SwingFileCopier extends SwingWorker<Void, SwingFileCopierEvent> imp
 			event.setCopyProgressType(from, to, bytesCopied, copyComplete);
 			publish(event);	
 		}
-	}	
+	}
+	
+	public void fileVerified(File from, File to, FileDigest digest, boolean verified) {
+		if (isDone()) {
+			final SwingFileCopierEvent event = new SwingFileCopierEvent();
+			event.setVerifiedType(from, to, digest, verified);
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					fireFileVerified(event);
+				}
+			});
+		} else {
+			SwingFileCopierEvent event = new SwingFileCopierEvent();
+			event.setVerifiedType(from, to, digest, verified);
+			publish(event);
+		}
+	}
+	
+	public void filesDurable(List<File> files) {
+		final SwingFileCopierEvent event = new SwingFileCopierEvent();
+		event.setDurableType(files);
+		if (isDone()) {
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					fireFilesDurable(event);
+				}
+			});
+		} else {
+			publish(event);
+		}
+	}
+	
+	public void copyPlanned(CopyPlan plan) {
+		progressChannel.setTotalFiles(plan.getFiles().size());
+		progressChannel.setTotalBytes(plan.getTotalBytes());
+		SwingFileCopierEvent event = new SwingFileCopierEvent();
+		event.setPlannedType(plan);
+		publish(event);
+	}
+	
+	public void filesScanned(int filesScanned, boolean scanComplete) {
+		SwingFileCopierEvent event = new SwingFileCopierEvent();
+		event.setScanProgressType(filesScanned, scanComplete);
+		publish(event);
+	}
 }
@@ -1,11 +1,12 @@
 package org.xandercat.swing.file;
 
 import java.io.File;
+import java.util.List;
 
 public class SwingFileCopierEvent {
 
 	public static enum Type {
-		COPYING, COPIED, COPY_COMPLETE, COPY_PROGRESS;
+		COPYING, COPIED, COPY_COMPLETE, COPY_PROGRESS, SCAN_PROGRESS, VERIFIED, PLANNED, DURABLE;
 	}
 	
 	private Type type;
@@ -17,6 +18,12 @@ public class SwingFileCopierEvent {
 	private long bytesCopied;
 	private boolean copyComplete;
 	private boolean copyCancelled;
+	private int filesScanned;
+	private boolean scanComplete;
+	private FileDigest digest;
+	private boolean verified;
+	private CopyPlan plan;
+	private List<File> durableFiles;
 	
 	public SwingFileCopierEvent() {
 	}
@@ -50,6 +57,30 @@ public class SwingFileCopierEvent {
 		this.copyComplete = copyComplete;
 	}
 	
+	public void setScanProgressType(int filesScanned, boolean scanComplete) {
+		this.type = Type.SCAN_PROGRESS;
+		this.filesScanned = filesScanned;
+		this.scanComplete = scanComplete;
+	}
+	
+	public void setVerifiedType(File from, File to, FileDigest digest, boolean verified) {
+		this.type = Type.VERIFIED;
+		this.from = from;
+		this.to = to;
+		this.digest = digest;
+		this.verified = verified;
+	}
+	
+	public void setPlannedType(CopyPlan plan) {
+		this.type = Type.PLANNED;
+		this.plan = plan;
+	}
+	
+	public void setDurableType(List<File> durableFiles) {
+		this.type = Type.DURABLE;
+		this.durableFiles = durableFiles;
+	}
+	
 	public Type getType() {
 		return type;
 	}
@@ -85,4 +116,28 @@ public class SwingFileCopierEvent {
 	public boolean isCopyComplete() {
 		return copyComplete;
 	}
+	
+	public int getFilesScanned() {
+		return filesScanned;
+	}
+	
+	public boolean isScanComplete() {
+		return scanComplete;
+	}
+	
+	public FileDigest getDigest() {
+		return digest;
+	}
+	
+	public boolean isVerified() {
+		return verified;
+	}
+	
+	public CopyPlan getPlan() {
+		return plan;
+	}
+	
+	public List<File> getDurableFiles() {
+		return durableFiles;
+	}
 }
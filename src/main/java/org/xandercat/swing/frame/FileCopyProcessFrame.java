@@ -1,13 +1,17 @@
 package org.xandercat.swing.frame;
 
 import java.awt.BorderLayout;
+import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.Font;
 import java.awt.Frame;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import javax.swing.BorderFactory;
@@ -24,11 +28,19 @@ import javax.swing.border.BevelBorder;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.xandercat.swing.component.MessageScrollPane;
+import org.xandercat.swing.file.BinaryPrefix;
+import org.xandercat.swing.file.CopyJobListener;
+import org.xandercat.swing.file.CopyLog;
+import org.xandercat.swing.file.CopyLogPanel;
+import org.xandercat.swing.file.CopyRetryPolicy;
+import org.xandercat.swing.file.CopyScheduler;
+import org.xandercat.swing.file.CopyStatistics;
+import org.xandercat.swing.file.CopyStatisticsListener;
 import org.xandercat.swing.file.FileCopier;
 import org.xandercat.swing.file.FileCopierPathGenerator;
 import org.xandercat.swing.file.FileCopyListener;
 import org.xandercat.swing.file.FileCopyProgressListener;
+import org.xandercat.swing.file.FileScanListener;
 import org.xandercat.swing.file.SwingFileCopier;
 import org.xandercat.swing.file.icon.FileIconCache;
 import org.xandercat.swing.table.ComponentRenderer;
@@ -36,6 +48,7 @@ import org.xandercat.swing.table.FileErrorTableModel;
 import org.xandercat.swing.table.FileOverwriteTableModel;
 import org.xandercat.swing.table.FileTable;
 import org.xandercat.swing.table.JTableButtonMouseListener;
+import org.xandercat.swing.util.FileUtil;
 import org.xandercat.swing.worker.SwingWorkerUtil;
 
 /**
@@ -43,13 +56,15 @@ import org.xandercat.swing.worker.SwingWorkerUtil;
  * providing the means for the user to resolve copy problems.
  * 
  * To use FileCopyProcessFrame, construct it, and then call copy to launch the copy process.
+ * The copy is run by the shared CopyScheduler unless another scheduler is set, so that copies
+ * using the same devices wait for each other rather than competing.
  * 
  *     FileCopyProcessFrame frame = new FileCopyProcessFrame(...);
  *     frame.copy();
  * 
  * @author Scott C Arnold
  */
-public class FileCopyProcessFrame extends JFrame implements FileCopyListener, WindowListener {
+public class FileCopyProcessFrame extends JFrame implements FileCopyListener, FileScanListener, CopyStatisticsListener, CopyJobListener, WindowListener {
 
 	//TODO:  Add way to save problem files for later retry and resolution
 	
@@ -60,14 +75,18 @@ public class FileCopyProcessFrame extends JFrame implements FileCopyListener, Wi
 	private static final String ALREADY_EXIST_TITLE = "Already Existing";
 	private static final String ERROR_TITLE = "Errors";
 	private static final String SKIP_TITLE = "Skipped ";
+	private static final int DEFAULT_LOG_RECORDS_PER_SECOND = 500;
 	
 	private JLabel headingLabel;
+	private JButton pauseButton;
 	private JLabel filesCopiedCounterLabel = new JLabel("0");
 	private JLabel directoriesCreatedCounterLabel = new JLabel("0");
 	private JLabel filesAlreadyExistCounterLabel = new JLabel("0");
 	private JLabel copyErrorsCounterLabel = new JLabel("0");
 	private JLabel skippedCounterLabel = new JLabel("0");
-	private MessageScrollPane messageScrollPane;
+	private JLabel throughputLabel = new JLabel(" ");
+	private CopyLog copyLog;
+	private CopyLogPanel copyLogPanel;
 	private List<File> files;
 	private FileCopierPathGenerator pathGenerator;
 	private File destination;
@@ -85,21 +104,31 @@ public class FileCopyProcessFrame extends JFrame implements FileCopyListener, Wi
 	private FileErrorTableModel errorModel;
 	private boolean startCopyMinimized;		// start the copy process frame minimized
 	private boolean autoclose;				// autoclose if no problems to resolve
-	private int processed;                  // includes both files and directory entries processed
-	private int filesCopied;                // filesCopied includes only files (no directories) copied successfully
-	private int directoriesCreated;         // directoriesCreated includes only directories (no files) created successfully
+	private long processed;                 // includes both files and directory entries processed
+	private long filesCopied;               // filesCopied includes only files (no directories) copied successfully
+	private long directoriesCreated;        // directoriesCreated includes only directories (no files) created successfully
 	private int toProcess;                  // total files and directory entries to process
+	private boolean streamingScan;          // recurse directories while copying
+	private boolean scanning;               // whether toProcess is still growing as directories are scanned
 	private List<FileCopyListener> fileCopyListeners;
 	private List<FileCopyProgressListener> fileCopyProgressListeners;
 	private FileIconCache fileIconCache;
 	private int errorsUntilHalt;
-	private int errorCount;
+	private long errorCount;
+	private long nextErrorHalt;             // error count at which to next ask whether to continue
+	private boolean askingToHalt;           // whether or not the continue dialog is showing
 	private boolean haltedDueToErrors;
 	private boolean testMode = false;
 	private long testModeSpeedFactor;
-	private long nextCountUpdate = 0;
-	final private long countIntervalMs = 500;
-	private boolean logCopiedFilesWithoutAbsolutePaths;
+	private int parallelThreads;            // 0 for sequential copy
+	private long maxBytesPerSecond;         // 0 for no limit
+	private double maxFilesPerSecond;       // 0 for no limit
+	private long totalBytes;                // 0 if not known
+	private CopyScheduler copyScheduler = CopyScheduler.getDefault();
+	private CopyScheduler.Priority copyPriority = CopyScheduler.Priority.NORMAL;
+	private boolean preempted;              // paused by the scheduler for a higher priority copy
+	private CopyRetryPolicy retryPolicy;    // null to report errors on the first failure
+	final private int countIntervalMs = 500;
 	
 	public FileCopyProcessFrame(List<File> files, FileIconCache fileIconCache,
 			File destination, File source, boolean startCopyMinimized, boolean autoclose, int errorsUntilHalt) {
@@ -162,6 +191,18 @@ public class FileCopyProcessFrame extends JFrame implements FileCopyListener, Wi
 		headingLabel = new JLabel("Preparing to copy files...");
 		headingLabel.setFont(headingLabel.getFont().deriveFont(Font.BOLD, 14f));
 		headingPanel.add(headingLabel);
+		pauseButton = new JButton("Pause");
+		pauseButton.setEnabled(false);
+		pauseButton.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent event) {
+				if (fileCopier.isPaused()) {
+					resumeCopy();
+				} else {
+					pauseCopy();
+				}
+			}
+		});
+		headingPanel.add(pauseButton);
 		copyProcessHeaderNorthPanel.add(headingPanel);
 		JPanel countersPanel = new JPanel(new FlowLayout());
 		countersPanel.add(createCountPanel(FILES_COPIED_TITLE, filesCopiedCounterLabel));
@@ -170,10 +211,15 @@ public class FileCopyProcessFrame extends JFrame implements FileCopyListener, Wi
 		countersPanel.add(createCountPanel(SKIP_TITLE, skippedCounterLabel));
 		countersPanel.add(createCountPanel(ERROR_TITLE, copyErrorsCounterLabel));
 		copyProcessHeaderNorthPanel.add(countersPanel);
+		JPanel throughputPanel = new JPanel(new FlowLayout());
+		throughputPanel.add(throughputLabel);
+		copyProcessHeaderNorthPanel.add(throughputPanel);
 		copyProcessPanel.add(copyProcessHeaderNorthPanel, BorderLayout.NORTH);
-		messageScrollPane = new MessageScrollPane();
-		messageScrollPane.setPreferredSize(700, 240);
-		copyProcessPanel.add(messageScrollPane, BorderLayout.CENTER);
+		copyLog = new CopyLog();
+		copyLog.setMaxRecordsPerSecond(DEFAULT_LOG_RECORDS_PER_SECOND);
+		copyLogPanel = new CopyLogPanel(copyLog);
+		copyLogPanel.setPreferredSize(new Dimension(700, 240));
+		copyProcessPanel.add(copyLogPanel, BorderLayout.CENTER);
 		return copyProcessPanel;
 	}
 	
@@ -218,8 +264,88 @@ public class FileCopyProcessFrame extends JFrame implements FileCopyListener, Wi
 		this.testModeSpeedFactor = speedFactor;
 	}
 	
+	public void enableParallelMode() {
+		this.parallelThreads = FileCopier.DEFAULT_PARALLEL_THREADS;
+	}
+	
+	public void enableParallelMode(int threadCount) {
+		this.parallelThreads = threadCount;
+	}
+	
+	/**
+	 * Enable streaming scan, so that directories in the file list are recursed as the copy proceeds.
+	 * The total to process is updated as the scan progresses.
+	 */
+	public void enableStreamingScan() {
+		this.streamingScan = true;
+	}
+	
+	/**
+	 * Set the maximum average copy rate in bytes per second.  May be changed while copying.
+	 * 
+	 * @param bytesPerSecond		maximum bytes per second, or 0 for no limit
+	 */
+	public void setMaxBytesPerSecond(long bytesPerSecond) {
+		this.maxBytesPerSecond = bytesPerSecond;
+		if (fileCopier != null) {
+			fileCopier.setMaxBytesPerSecond(bytesPerSecond);
+		}
+	}
+	
+	/**
+	 * Set the maximum average rate of files processed per second.  May be changed while copying.
+	 * 
+	 * @param filesPerSecond		maximum files per second, or 0 for no limit
+	 */
+	public void setMaxFilesPerSecond(double filesPerSecond) {
+		this.maxFilesPerSecond = filesPerSecond;
+		if (fileCopier != null) {
+			fileCopier.setMaxFilesPerSecond(filesPerSecond);
+		}
+	}
+	
+	/**
+	 * Set the total bytes to copy, if known, so that the time remaining can be estimated from bytes 
+	 * rather than from files.
+	 * 
+	 * @param totalBytes			total bytes to copy, or 0 if not known
+	 */
+	public void setTotalBytes(long totalBytes) {
+		this.totalBytes = totalBytes;
+	}
+	
+	/**
+	 * Set the scheduler to run the copy with, or null to start the copy right away regardless of other
+	 * copies in progress.
+	 * 
+	 * @param copyScheduler			copy scheduler, or null for none
+	 */
+	public void setCopyScheduler(CopyScheduler copyScheduler) {
+		this.copyScheduler = copyScheduler;
+	}
+	
+	/**
+	 * Set the priority of the copy with the copy scheduler.  Interactive copies pause other copies on
+	 * the same devices until they are done.
+	 * 
+	 * @param copyPriority			copy priority
+	 */
+	public void setCopyPriority(CopyScheduler.Priority copyPriority) {
+		this.copyPriority = copyPriority;
+	}
+	
+	/**
+	 * Set the policy for retrying files that fail to copy.  Files are retried in the background while the
+	 * copy continues, and only files that fail every attempt are counted as errors.
+	 * 
+	 * @param retryPolicy			retry policy, or null to count files as errors on their first failure
+	 */
+	public void setRetryPolicy(CopyRetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+	
 	public void setLogCopiedFilesWithoutAbsolutePaths(boolean logCopiedFilesWithoutAbsolutePaths) {
-		this.logCopiedFilesWithoutAbsolutePaths = logCopiedFilesWithoutAbsolutePaths;
+		copyLogPanel.setShowAbsolutePaths(!logCopiedFilesWithoutAbsolutePaths);
 	}
 	
 	public void addFileCopyListener(FileCopyListener listener) {
@@ -260,7 +386,23 @@ public class FileCopyProcessFrame extends JFrame implements FileCopyListener, Wi
 					fileCopier.enableTestMode();
 				}
 			}
-			fileCopier.addFileCopyListener(this);
+			if (parallelThreads > 0) {
+				fileCopier.enableParallelMode(parallelThreads);
+			}
+			fileCopier.setMaxBytesPerSecond(maxBytesPerSecond);
+			fileCopier.setMaxFilesPerSecond(maxFilesPerSecond);
+			fileCopier.setTotalBytes(totalBytes);
+			fileCopier.setRetryPolicy(retryPolicy);
+			fileCopier.setStatisticsInterval(countIntervalMs);
+			fileCopier.addCopyStatisticsListener(this);
+			nextErrorHalt = errorsUntilHalt;
+			if (streamingScan) {
+				fileCopier.enableStreamingScan();
+				fileCopier.addFileScanListener(this);
+				scanning = true;
+			}
+			fileCopier.addCopyThreadFileCopyListener(copyLog);
+			fileCopier.addCopyCompleteListener(this);
 			for (FileCopyListener listener : this.fileCopyListeners) {
 				fileCopier.addFileCopyListener(listener);
 			}
@@ -269,11 +411,7 @@ public class FileCopyProcessFrame extends JFrame implements FileCopyListener, Wi
 					fileCopier.addFileCopyProgressListener(listener);
 				}
 			}
-			if (testMode) {
-				headingLabel.setText("Processing " + toProcess + " files/directories (SIMULATED)...");
-			} else {
-				headingLabel.setText("Processing " + toProcess + " files/directories...");
-			}
+			updateHeading();
 			
 			// set up overwrite files table
 			overwriteModel = new FileOverwriteTableModel(fileCopier, overwriteAllButton, overwriteCancelAllButton);
@@ -291,63 +429,146 @@ public class FileCopyProcessFrame extends JFrame implements FileCopyListener, Wi
 			
 			// cleanup and start copying files
 			resolutionSplitPane.setDividerLocation(0.5d);
-			SwingWorkerUtil.execute(fileCopier);
+			if (copyScheduler == null) {
+				SwingWorkerUtil.execute(fileCopier);
+			} else {
+				copyScheduler.submit(fileCopier, copyPriority, getSources(), getDestinations(), this);
+			}
+			pauseButton.setEnabled(true);
 		} catch (IllegalArgumentException iae) {
 			headingLabel.setText("Unable to start copy process.");
-			messageScrollPane.addMessage("Unable to start copy process: " + iae.getMessage());
+			copyLog.addMessage("Unable to start copy process: " + iae.getMessage());
 			log.error("Unable to start copy process", iae);
 		}
 	}
 
+	private List<File> getSources() {
+		if (source != null) {
+			return Collections.singletonList(source);
+		}
+		return files;
+	}
+	
+	private List<File> getDestinations() {
+		if (destination != null) {
+			return Collections.singletonList(destination);
+		}
+		List<File> destinations = new ArrayList<File>();
+		for (File file : files) {
+			String path = pathGenerator.generateDestinationPath(file);
+			if (path != null) {
+				destinations.add(new File(path));
+			}
+		}
+		return destinations;
+	}
+	
+	private void updateHeading() {
+		String count = scanning? toProcess + "+" : String.valueOf(toProcess);
+		if (testMode) {
+			headingLabel.setText("Processing " + count + " files/directories (SIMULATED)...");
+		} else {
+			headingLabel.setText("Processing " + count + " files/directories...");
+		}
+	}
+	
+	public void copyJobStateChanged(CopyScheduler.JobState state, int queuePosition) {
+		if (copyComplete) {
+			return;
+		}
+		switch (state) {
+		case QUEUED:
+			headingLabel.setText("Waiting for other copies to finish (" + queuePosition + " in queue)...");
+			break;
+		case RUNNING:
+			preempted = false;
+			pauseButton.setEnabled(true);
+			if (!fileCopier.isPaused()) {
+				updateHeading();
+			}
+			break;
+		case PREEMPTED:
+			preempted = true;
+			pauseButton.setEnabled(false);
+			headingLabel.setText("Paused for a higher priority copy.");
+			break;
+		case COMPLETE:
+			break;
+		}
+	}
+	
+	/**
+	 * Pause any copy currently in progress (if any).
+	 */
+	public void pauseCopy() {
+		if (fileCopier != null && !copyComplete && !preempted) {
+			fileCopier.pause();
+			pauseButton.setText("Resume");
+			headingLabel.setText("Paused.");
+		}
+	}
+	
+	/**
+	 * Resume a paused copy.
+	 */
+	public void resumeCopy() {
+		if (fileCopier != null && fileCopier.isPaused()) {
+			fileCopier.resume();
+			pauseButton.setText("Pause");
+			if (!copyComplete) {
+				updateHeading();
+			}
+		}
+	}
+	
 	/**
 	 * Cancel any copy currently in progress (if any).
 	 */
 	public boolean cancelCopyInProgress() {
 		if (fileCopier != null) {
-			fileCopier.cancel();
+			cancel();
 			return true;
 		}
 		return false;
 	}
 	
+	private void cancel() {
+		if (copyScheduler == null) {
+			fileCopier.cancel();
+		} else {
+			copyScheduler.cancel(fileCopier);
+		}
+	}
+	
 	public boolean isHaltedDueToErrors() {
 		return haltedDueToErrors;
 	}
 	
 	public void fileCopying(File from, File to, boolean isDirectory) {
-		if (isDirectory) {
-			messageScrollPane.addMessage("Creating directory " + to.getAbsolutePath());
-		} else {
-			if (logCopiedFilesWithoutAbsolutePaths) {
-				messageScrollPane.addMessage("Copying file " + from.getName());
-			} else {
-				messageScrollPane.addMessage("Copying file " + from.getAbsolutePath());
-			}
-		}
+		// per-file events are not registered for; counts are taken from copy statistics
+	}
+	
+	/**
+	 * Get the log of files processed by this frame.  Sampling of the log can be adjusted through the 
+	 * log; by default, at most 500 routine file records are kept per second.
+	 * 
+	 * @return						the copy log
+	 */
+	public CopyLog getCopyLog() {
+		return copyLog;
 	}
 
 	public void fileCopied(File from, File to, boolean isDirectory, FileCopier.CopyResult result) {
-		processed++;
-		String resultTag = result.toString();
-		switch (result) {
-		case ALREADY_EXISTS:
-			break;
-		case COPIED:
-			if (isDirectory) {
-				directoriesCreated++;
-				resultTag = "CREATED";
-			} else {
-				filesCopied++;
-			}
-			break;
-		case ERROR:
-			errorCount++;
-			break;
-		case SKIPPED:
-			break;
+		// per-file events are not registered for; counts are taken from copy statistics
+	}
+	
+	private void askToHalt() {
+		if (errorsUntilHalt <= 0 || askingToHalt || haltedDueToErrors || errorCount < nextErrorHalt) {
+			return;
 		}
-		messageScrollPane.appendMessage(" [" + resultTag + "]");
-		if (errorCount > 0 && errorCount % errorsUntilHalt == 0) {
+		nextErrorHalt = (errorCount / errorsUntilHalt + 1) * errorsUntilHalt;
+		askingToHalt = true;	// statistics continue to be sampled while the dialog is showing
+		try {
 			int choice = JOptionPane.showConfirmDialog(this, 
 					errorCount + " copy errors have occurred.  Do you wish to continue the copy process?", 
 					"Continue?", 
@@ -355,36 +576,73 @@ public class FileCopyProcessFrame extends JFrame implements FileCopyListener, Wi
 					JOptionPane.ERROR_MESSAGE);
 			if (choice == JOptionPane.NO_OPTION) {
 				haltedDueToErrors = true;
-				fileCopier.cancel();
+				cancel();
 			}
-		}
-		if (System.currentTimeMillis() > nextCountUpdate) {
-			updateCounts();
-			nextCountUpdate = System.currentTimeMillis() + countIntervalMs;
+		} finally {
+			askingToHalt = false;
 		}
 	}
 	
 	private void updateCounts() {
-		filesAlreadyExistCounterLabel.setText(String.valueOf(fileCopier.getOverwriteFiles().size()));
+		filesAlreadyExistCounterLabel.setText(String.valueOf(fileCopier.getOverwriteFileCount()));
 		directoriesCreatedCounterLabel.setText(String.valueOf(directoriesCreated));
 		filesCopiedCounterLabel.setText(String.valueOf(filesCopied));
 		copyErrorsCounterLabel.setText(String.valueOf(errorCount));
-		skippedCounterLabel.setText(String.valueOf(fileCopier.getSkippedFiles().size()));
-		setTitle(processed + "/" + toProcess + " processed");
+		skippedCounterLabel.setText(String.valueOf(fileCopier.getSkippedFileCount()));
+		setTitle(processed + "/" + toProcess + (scanning? "+" : "") + " processed");
+	}
+	
+	public void filesScanned(int filesScanned, boolean scanComplete) {
+		this.toProcess = filesScanned;
+		this.scanning = !scanComplete;
+		if (!copyComplete && !fileCopier.isPaused()) {
+			updateHeading();
+		}
+	}
+	
+	public void copyStatisticsSampled(CopyStatistics statistics) {
+		processed = statistics.getFilesProcessed();
+		directoriesCreated = statistics.getDirectoriesCreated();
+		filesCopied = statistics.getResultCount(FileCopier.CopyResult.COPIED) - directoriesCreated
+				+ statistics.getResultCount(FileCopier.CopyResult.LINKED);
+		errorCount = statistics.getResultCount(FileCopier.CopyResult.ERROR) 
+				+ statistics.getResultCount(FileCopier.CopyResult.VERIFY_FAILED);
+		updateCounts();
+		if (statistics.isComplete()) {
+			throughputLabel.setText(FileUtil.formatFileSize(statistics.getBytesCopied(), BinaryPrefix.TiB) + " copied");
+		} else {
+			StringBuilder text = new StringBuilder();
+			text.append(FileUtil.formatFileSize(Math.round(statistics.getBytesPerSecond()), BinaryPrefix.GiB)).append("/s, ");
+			text.append(String.format("%.1f", statistics.getFilesPerSecond())).append(" files/s");
+			if (statistics.getRemainingMillis() >= 0) {
+				text.append(", about ").append(formatDuration(statistics.getRemainingMillis())).append(" remaining");
+			}
+			throughputLabel.setText(text.toString());
+		}
+		askToHalt();
+	}
+	
+	private static String formatDuration(long millis) {
+		long seconds = millis / 1000;
+		if (seconds >= 3600) {
+			return String.format("%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+		}
+		return String.format("%d:%02d", seconds / 60, seconds % 60);
 	}
 	
 	public void copyComplete(boolean resolutionRequired, boolean copyCancelled) {
 		this.copyComplete = true;
+		pauseButton.setEnabled(false);
 		updateCounts();
 		if (resolutionRequired) {
-			messageScrollPane.addMessage("Process complete.  Some files need resolution.");
+			copyLog.addMessage("Process complete.  Some files need resolution.");
 			headingLabel.setText("Process complete.  Some files need resolution.");
 			if (getState() == Frame.ICONIFIED) {
 				setState(Frame.NORMAL);
 			}
 		} else {
 			String message = copyCancelled? "Process cancelled." : "Process complete.";
-			messageScrollPane.addMessage(message);
+			copyLog.addMessage(message);
 			headingLabel.setText(message);
 			if (autoclose) {
 				setVisible(false);
@@ -413,7 +671,7 @@ public class FileCopyProcessFrame extends JFrame implements FileCopyListener, Wi
 			if (result == JOptionPane.NO_OPTION) {
 				return;
 			}
-			fileCopier.cancel();
+			cancel();
 		}
 		if (overwriteModel.getRowCount() + errorModel.getRowCount() > 0) {
 			Object[] options = {"Close Copy Window", "Cancel"};
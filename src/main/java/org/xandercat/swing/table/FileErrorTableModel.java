@@ -8,6 +8,7 @@ import java.util.List;
 
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
+import javax.swing.SwingUtilities;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -48,7 +49,7 @@ public class FileErrorTableModel extends FileTableModel implements FileCopyListe
 		this.cancelAllButton = cancelAllButton;
 		cancelAllButton.setActionCommand(CANCEL);
 		cancelAllButton.addActionListener(this);
-		fileCopier.addFileCopyListener(this);
+		fileCopier.addCopyThreadFileCopyListener(this);
 		retryAllButton.setEnabled(false);
 		cancelAllButton.setEnabled(false);
 	}
@@ -103,8 +104,12 @@ public class FileErrorTableModel extends FileTableModel implements FileCopyListe
 		List<FileData> copy = new ArrayList<FileData>();
 		copy.addAll(this.elements);
 		String actionCommand = event.getActionCommand();
+		// clear all rows at once rather than removing them one at a time, which is slow for large tables
+		clear();
+		retryAllButton.setEnabled(false);
+		cancelAllButton.setEnabled(false);
 		for (FileData data : copy) {
-			remove(data, actionCommand);
+			fileCopier.resolveError(data.getFile(), RETRY.equals(actionCommand));
 		}
 	}
 
@@ -129,23 +134,34 @@ public class FileErrorTableModel extends FileTableModel implements FileCopyListe
 		}
 	}
 	
-	public void fileCopied(File from, File to, boolean isDirectory, FileCopier.CopyResult result) {
-		if (result == FileCopier.CopyResult.ERROR) {
-			JButton retryButton = new JButton();
-			JButton cancelButton = new JButton();
-			JButton detailButton = new JButton();
-			Throwable throwable = fileCopier.getFileCopyException(from);
-			ErrorFileData fileDataItem = new ErrorFileData(from, throwable, retryButton, cancelButton, detailButton);
-			cancelButton.setAction(new RemoveObjectAction(this, fileDataItem, CANCEL_ICON, CANCEL));	
-			retryButton.setAction(new RemoveObjectAction(this, fileDataItem, RETRY_ICON, RETRY));
-			detailButton.setAction(new ExceptionDetailAction(
-					INFO_ICON, fileDataItem.getThrowable(), "Copy Error Detail: " + fileDataItem.getFile().getAbsolutePath()));
-			addElement(fileDataItem);
-			retryAllButton.setEnabled(true);
-			cancelAllButton.setEnabled(true);
+	/**
+	 * Called from the copy threads; only files that failed to copy are handed to the event dispatch thread.
+	 */
+	public void fileCopied(final File from, File to, boolean isDirectory, FileCopier.CopyResult result) {
+		if (result == FileCopier.CopyResult.ERROR || result == FileCopier.CopyResult.VERIFY_FAILED) {
+			final Throwable throwable = fileCopier.getFileCopyException(from);
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					addErrorFile(from, throwable);
+				}
+			});
 		}
 	}
 	
+	private void addErrorFile(File from, Throwable throwable) {
+		JButton retryButton = new JButton();
+		JButton cancelButton = new JButton();
+		JButton detailButton = new JButton();
+		ErrorFileData fileDataItem = new ErrorFileData(from, throwable, retryButton, cancelButton, detailButton);
+		cancelButton.setAction(new RemoveObjectAction(this, fileDataItem, CANCEL_ICON, CANCEL));	
+		retryButton.setAction(new RemoveObjectAction(this, fileDataItem, RETRY_ICON, RETRY));
+		detailButton.setAction(new ExceptionDetailAction(
+				INFO_ICON, fileDataItem.getThrowable(), "Copy Error Detail: " + fileDataItem.getFile().getAbsolutePath()));
+		addElement(fileDataItem);
+		retryAllButton.setEnabled(true);
+		cancelAllButton.setEnabled(true);
+	}
+	
 	@Override
 	public void setDirectory(File directory) {
 		throw new UnsupportedOperationException("Directory cannot be set on a FileErrorTableModel.");
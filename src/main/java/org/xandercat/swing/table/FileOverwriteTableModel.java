@@ -8,6 +8,7 @@ import java.util.List;
 
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
+import javax.swing.SwingUtilities;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -46,7 +47,7 @@ public class FileOverwriteTableModel extends FileTableModel implements FileCopyL
 		cancelAllButton.addActionListener(this);
 		overwriteAllButton.setEnabled(false);
 		cancelAllButton.setEnabled(false);
-		fileCopier.addFileCopyListener(this);
+		fileCopier.addCopyThreadFileCopyListener(this);
 	}
 	
 	@Override
@@ -97,8 +98,12 @@ public class FileOverwriteTableModel extends FileTableModel implements FileCopyL
 		List<FileData> copy = new ArrayList<FileData>();
 		copy.addAll(this.elements);
 		String actionCommand = event.getActionCommand();
+		// clear all rows at once rather than removing them one at a time, which is slow for large tables
+		clear();
+		overwriteAllButton.setEnabled(false);
+		cancelAllButton.setEnabled(false);
 		for (FileData data : copy) {
-			remove(data, actionCommand);
+			fileCopier.resolveOverwrite(data.getFile(), OVERWRITE.equals(actionCommand));
 		}
 	}
 	
@@ -117,19 +122,30 @@ public class FileOverwriteTableModel extends FileTableModel implements FileCopyL
 		}
 	}
 	
-	public void fileCopied(File from, File to, boolean isDirectory, FileCopier.CopyResult result) {
+	/**
+	 * Called from the copy threads; only files that already exist are handed to the event dispatch thread.
+	 */
+	public void fileCopied(final File from, File to, boolean isDirectory, FileCopier.CopyResult result) {
 		if (result == FileCopier.CopyResult.ALREADY_EXISTS) {
-			JButton overwriteButton = new JButton();
-			JButton cancelButton = new JButton();
-			OverwriteFileData fileDataItem = new OverwriteFileData(from, overwriteButton, cancelButton);
-			cancelButton.setAction(new RemoveObjectAction(this, fileDataItem, CANCEL_ICON, CANCEL));	
-			overwriteButton.setAction(new RemoveObjectAction(this, fileDataItem, OVERWRITE_ICON, OVERWRITE));
-			addElement(fileDataItem);
-			overwriteAllButton.setEnabled(true);
-			cancelAllButton.setEnabled(true);
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					addOverwriteFile(from);
+				}
+			});
 		}
 	}
 	
+	private void addOverwriteFile(File from) {
+		JButton overwriteButton = new JButton();
+		JButton cancelButton = new JButton();
+		OverwriteFileData fileDataItem = new OverwriteFileData(from, overwriteButton, cancelButton);
+		cancelButton.setAction(new RemoveObjectAction(this, fileDataItem, CANCEL_ICON, CANCEL));	
+		overwriteButton.setAction(new RemoveObjectAction(this, fileDataItem, OVERWRITE_ICON, OVERWRITE));
+		addElement(fileDataItem);
+		overwriteAllButton.setEnabled(true);
+		cancelAllButton.setEnabled(true);
+	}
+	
 	@Override
 	public void setDirectory(File directory) {
 		throw new UnsupportedOperationException("Directory cannot be set on a FileOverwriteTableModel");
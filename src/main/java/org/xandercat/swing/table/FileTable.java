@@ -19,7 +19,10 @@ import javax.swing.table.TableColumnModel;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.xandercat.swing.dnd.FileTransferHandler;
+import org.xandercat.swing.file.FileMoveListener;
+import org.xandercat.swing.file.FileMover;
 import org.xandercat.swing.file.icon.FileIconCache;
+import org.xandercat.swing.worker.SwingWorkerUtil;
 
 /**
  * FileTable is a table for a list of files.  The list of files in the table can be set or
@@ -136,7 +139,7 @@ public class FileTable extends NonBlockingTable implements DropTargetListener {
 			@SuppressWarnings("unchecked")
 			List<File> files = (List<File>) event.getTransferable().getTransferData(DataFlavor.javaFileListFlavor);
 			if (accept && files != null) {
-				FileTableModel model = (FileTableModel) getModel();
+				final FileTableModel model = (FileTableModel) getModel();
 				File destDir = model.getDirectory();
 				// determine what file drop occurred over; if it is a directory drop into that directory;
 				// otherwise, drop into the directory represented by this table
@@ -150,18 +153,26 @@ public class FileTable extends NonBlockingTable implements DropTargetListener {
 						destDir = dropFile;
 					}
 				}
-				for (File file : files) {
-					File destFile = new File(destDir.getAbsolutePath() + File.separator + file.getName());
-					// note: if a file is dragged from and to the same directory, we should not attempt
-					// to rename it; however, we will still add it to the model as a duplicate, as the 
-					// transfer handler will not be aware of this and will remove it (in such case it 
-					// will simply remove the duplicate).
-					if (file.equals(destFile) || file.renameTo(destFile)) {
-						if (destDir == model.getDirectory()) {
-							model.addFile(destFile);
+				// note: if a file is dragged from and to the same directory, the mover will not attempt
+				// to rename it, and the transfer handler keeps its row as the file has not gone anywhere
+				final boolean addToModel = destDir == model.getDirectory();
+				FileMover mover = new FileMover(files, destDir);
+				mover.addFileMoveListener(new FileMoveListener() {
+					public void fileMoved(File from, File to) {
+						if (addToModel && !from.getAbsoluteFile().equals(to.getAbsoluteFile())) {
+							model.addFile(to);
 						}
 					}
-				}
+					public void fileMoveFailed(File from, File to, Throwable throwable) {
+						// the transfer handler keeps the source row of a file that is not moved
+						log.warn("Unable to move/rename file " + from.getAbsolutePath() + " as " + to.getAbsolutePath(), throwable);
+					}
+					public void moveComplete(boolean cancelled) {
+						// nothing to do here
+					}
+				});
+				mover.monitorProgress(this, "Moving Files");
+				SwingWorkerUtil.execute(mover);
 			}
 		} catch (UnsupportedFlavorException e) {
 			log.info("Unable to drop due to unsupported data flavor.", e);
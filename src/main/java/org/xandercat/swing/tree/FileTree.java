@@ -27,6 +27,8 @@ import javax.swing.tree.TreePath;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.xandercat.swing.dnd.FileTransferHandler;
+import org.xandercat.swing.file.FileMoveListener;
+import org.xandercat.swing.file.FileMover;
 import org.xandercat.swing.file.icon.FileIconCache;
 import org.xandercat.swing.util.FileUtil;
 import org.xandercat.swing.worker.SwingWorkerUtil;
@@ -154,6 +156,35 @@ public class FileTree extends JTree implements DropTargetListener, TreeWillExpan
 		}
 	}
 	
+	/**
+	 * Add a node for the given file beneath the given parent node, unless the parent's children have not 
+	 * been loaded yet, the file already has a node, or the file would not be shown by this tree.  Unlike
+	 * refreshNode, this leaves the rest of the parent's subtree (and its expansion state) untouched.
+	 * Should be called from event dispatch thread.
+	 * 
+	 * @param parent		parent node
+	 * @param file			file to add a node for
+	 */
+	public void addFileNode(FileTreeNode parent, File file) {
+		try {
+			lock();
+			if (!parent.isChildrenLoaded()
+					|| (factory.isDirectoriesOnly() && !file.isDirectory())
+					|| (!factory.isShowHiddenFiles() && file.isHidden())) {
+				return;
+			}
+			for (int i=0,j=parent.getChildCount(); i<j; i++) {
+				if (file.equals(((FileTreeNode) parent.getChildAt(i)).getFile())) {
+					return;
+				}
+			}
+			DefaultTreeModel model = (DefaultTreeModel) getModel();
+			model.insertNodeInto(factory.createNode(parent, file), parent, parent.getChildCount());
+		} finally {
+			unlock();
+		}
+	}
+	
 	public void treeWillCollapse(TreeExpansionEvent event) throws ExpandVetoException {
 		// nothing to do here
 	}
@@ -350,29 +381,23 @@ public class FileTree extends JTree implements DropTargetListener, TreeWillExpan
 					// if files are dropped on a file that is not a directory, use it's parent directory
 					closestNode = (FileTreeNode) closestNode.getParent();
 				}
-				File dropDirectory = closestNode.getFile();
-				List<FileTreeNode> refreshNodes = new ArrayList<FileTreeNode>();
-				refreshNodes.add(closestNode);
-				//TODO: Instead of refreshing the closest path, perform an insert for each file moved (because this will prevent node from collapsing)
-				for (File file : files) {
-					File destFile = new File(dropDirectory.getAbsolutePath() + File.separator + file.getName());
-					if (file.renameTo(destFile)) {
-						log.debug("moving/renaming " + file.getAbsolutePath());
-						FileTreeNode nodeForSourceFile = findNodeForFile(file);
-						if (nodeForSourceFile != null) {
-							refreshNodes.add(nodeForSourceFile);
-						}
-					} else {
-						log.warn("Unable to move/rename file " + file.getAbsolutePath() + " as " + destFile.getAbsolutePath());
+				final FileTreeNode dropNode = closestNode;
+				FileMover mover = new FileMover(files, dropNode.getFile());
+				mover.addFileMoveListener(new FileMoveListener() {
+					public void fileMoved(File from, File to) {
+						log.debug("moved/renamed " + from.getAbsolutePath());
+						addFileNode(dropNode, to);
 					}
-				}
-				for (FileTreeNode node : refreshNodes) {
-					log.debug("Refreshing node for file " + node.getFile().getAbsolutePath());
-					if (getSelectedNode() == node) {
-						setSelectionPath(null);
+					public void fileMoveFailed(File from, File to, Throwable throwable) {
+						// the transfer handler keeps the source node of a file that is not moved
+						log.warn("Unable to move/rename file " + from.getAbsolutePath() + " as " + to.getAbsolutePath(), throwable);
 					}
-					refreshNode(node);
-				}
+					public void moveComplete(boolean cancelled) {
+						log.debug("Move to " + dropNode.getFile().getAbsolutePath() + (cancelled? " cancelled" : " complete"));
+					}
+				});
+				mover.monitorProgress(this, "Moving Files");
+				SwingWorkerUtil.execute(mover);
 			}
 		} catch (UnsupportedFlavorException e) {
 			log.info("Unable to drop due to unsupported data flavor.", e);
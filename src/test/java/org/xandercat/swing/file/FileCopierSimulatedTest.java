@@ -0,0 +1,291 @@
+package org.xandercat.swing.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of FileCopier run against a SimulatedFileCopyBackend with a time scale of 0, so that every
+ * copy runs without waiting and gives the same operation and byte counts on any machine.
+ *
+ * @author Scott C Arnold
+ */
+public class FileCopierSimulatedTest {
+
+	private static final File SOURCE = new File("/source");
+	private static final File DESTINATION = new File("/destination");
+	private static final long LAST_MODIFIED = 1500000000000L;
+	private static final int MEGABYTE = 1024 * 1024;
+
+	private SimulatedFileCopyBackend backend;
+	private SimulatedFileCopyBackend.Device sourceDevice;
+	private SimulatedFileCopyBackend.Device destinationDevice;
+
+	/**
+	 * FileCopyListener that counts the results reported for each file.
+	 */
+	private static class ResultCounter implements FileCopyListener {
+
+		private final int[] counts = new int[FileCopier.CopyResult.values().length];
+		private boolean copyCancelled;
+
+		public void fileCopying(File from, File to, boolean isDirectory) {
+		}
+
+		public synchronized void fileCopied(File from, File to, boolean isDirectory, FileCopier.CopyResult result) {
+			counts[result.ordinal()]++;
+		}
+
+		public void copyComplete(boolean resolutionRequired, boolean copyCancelled) {
+			this.copyCancelled = copyCancelled;
+		}
+
+		private synchronized int getCount(FileCopier.CopyResult result) {
+			return counts[result.ordinal()];
+		}
+	}
+
+	@Before
+	public void setUp() {
+		backend = new SimulatedFileCopyBackend();
+		backend.setTimeScale(0);
+		sourceDevice = new SimulatedFileCopyBackend.Device("source", 100, 200L * MEGABYTE, 32);
+		destinationDevice = new SimulatedFileCopyBackend.Device("destination", 100, 200L * MEGABYTE, 32);
+		backend.addDevice(SOURCE, sourceDevice);
+		backend.addDevice(DESTINATION, destinationDevice);
+	}
+
+	private static byte[] createData(int length, long seed) {
+		byte[] data = new byte[length];
+		new Random(seed).nextBytes(data);
+		return data;
+	}
+
+	private File addSourceFile(String name, byte[] data) {
+		File file = new File(SOURCE, name);
+		backend.addFile(file, data, LAST_MODIFIED);
+		return file;
+	}
+
+	private List<File> addSourceFiles(int count, int length) {
+		List<File> files = new ArrayList<File>();
+		for (int i = 0; i < count; i++) {
+			files.add(addSourceFile("file" + i, createData(length, i)));
+		}
+		return files;
+	}
+
+	private FileCopier createCopier(List<File> files) {
+		FileCopier fileCopier = new FileCopier(files, DESTINATION, SOURCE, backend);
+		fileCopier.setPipelineMode(FileCopier.PipelineMode.NEVER, FileCopier.DEFAULT_PIPELINE_RING_SIZE);
+		return fileCopier;
+	}
+
+	private static File getDestinationFile(File file) {
+		return new File(DESTINATION, file.getName());
+	}
+
+	@Test
+	public void testCopy() {
+		List<File> files = addSourceFiles(5, 1000);
+		FileCopier fileCopier = createCopier(files);
+		fileCopier.copy();
+		assertEquals(5, fileCopier.getCopiedFileCount());
+		assertEquals(0, fileCopier.getErrorFileCount());
+		for (File file : files) {
+			assertArrayEquals(file.getName(), backend.getData(file), backend.getData(getDestinationFile(file)));
+			assertEquals(LAST_MODIFIED, backend.lastModified(getDestinationFile(file)));
+		}
+	}
+
+	@Test
+	public void testInjectedFailureIsPlacedInErrorQueue() {
+		List<File> files = addSourceFiles(3, 1000);
+		File failedFile = files.get(1);
+		backend.injectFailure(SimulatedFileCopyBackend.Operation.WRITE, getDestinationFile(failedFile));
+		FileCopier fileCopier = createCopier(files);
+		ResultCounter counter = new ResultCounter();
+		fileCopier.addFileCopyListener(counter);
+		fileCopier.copy();
+		assertEquals(2, fileCopier.getCopiedFileCount());
+		assertEquals(1, fileCopier.getErrorFileCount());
+		assertEquals(failedFile, fileCopier.getErrorFiles().get(0).getFile());
+		assertEquals(1, counter.getCount(FileCopier.CopyResult.ERROR));
+		assertEquals(1, backend.getFailureCount());
+
+		// the failed write left a partial file, so retrying from the error queue places it in the overwrite queue
+		assertFalse(fileCopier.resolveError(failedFile, true));
+		assertEquals(0, fileCopier.getErrorFileCount());
+		assertEquals(1, fileCopier.getOverwriteFileCount());
+		assertEquals(1, counter.getCount(FileCopier.CopyResult.ALREADY_EXISTS));
+
+		// the injected failure is used up, so overwriting copies the file
+		assertTrue(fileCopier.resolveOverwrite(failedFile, true));
+		assertEquals(0, fileCopier.getOverwriteFileCount());
+		assertEquals(3, fileCopier.getCopiedFileCount());
+		assertArrayEquals(backend.getData(failedFile), backend.getData(getDestinationFile(failedFile)));
+	}
+
+	@Test
+	public void testInjectedFailureIsRetried() {
+		List<File> files = addSourceFiles(3, 1000);
+		File failedFile = files.get(2);
+		backend.injectFailure(SimulatedFileCopyBackend.Operation.WRITE, getDestinationFile(failedFile));
+		FileCopier fileCopier = createCopier(files);
+		fileCopier.setRetryPolicy(new CopyRetryPolicy(3, 1, 1, 1, 0));
+		ResultCounter counter = new ResultCounter();
+		fileCopier.addFileCopyListener(counter);
+		fileCopier.copy();
+		assertEquals(3, fileCopier.getCopiedFileCount());
+		assertEquals(0, fileCopier.getErrorFileCount());
+		assertEquals(1, counter.getCount(FileCopier.CopyResult.RETRYING));
+		assertArrayEquals(backend.getData(failedFile), backend.getData(getDestinationFile(failedFile)));
+	}
+
+	@Test
+	public void testFileFailingEveryAttemptIsPlacedInErrorQueue() {
+		List<File> files = addSourceFiles(2, 1000);
+		backend.setFailureRate(SimulatedFileCopyBackend.Operation.WRITE, 1);
+		FileCopier fileCopier = createCopier(files);
+		fileCopier.setRetryPolicy(new CopyRetryPolicy(3, 1, 1, 1, 0));
+		ResultCounter counter = new ResultCounter();
+		fileCopier.addFileCopyListener(counter);
+		fileCopier.copy();
+		assertEquals(0, fileCopier.getCopiedFileCount());
+		assertEquals(2, fileCopier.getErrorFileCount());
+		assertEquals(4, counter.getCount(FileCopier.CopyResult.RETRYING));
+		assertEquals(2, counter.getCount(FileCopier.CopyResult.ERROR));
+		assertFalse(counter.copyCancelled);
+	}
+
+	@Test
+	public void testParallelRetriesOfLastFilesDispatched() {
+		List<File> files = addSourceFiles(20, 100000);
+		for (File file : files.subList(16, 20)) {
+			backend.injectFailure(SimulatedFileCopyBackend.Operation.WRITE, getDestinationFile(file));
+		}
+		FileCopier fileCopier = createCopier(files);
+		fileCopier.enableParallelMode(2);
+		fileCopier.setRetryPolicy(new CopyRetryPolicy(3, 1, 1, 1, 0));
+		fileCopier.copy();
+		assertEquals(20, fileCopier.getCopiedFileCount());
+		assertEquals(0, fileCopier.getErrorFileCount());
+	}
+
+	/**
+	 * Copy a single file with the given copier and check that each device transferred the file exactly once.
+	 */
+	private void assertCopiedOnce(FileCopier fileCopier, File file, byte[] data) {
+		sourceDevice.resetStatistics();
+		destinationDevice.resetStatistics();
+		fileCopier.copy();
+		assertEquals(1, fileCopier.getCopiedFileCount());
+		assertEquals(data.length, sourceDevice.getByteCount());
+		assertEquals(data.length, destinationDevice.getByteCount());
+		assertArrayEquals(data, backend.getData(getDestinationFile(file)));
+	}
+
+	@Test
+	public void testSequentialCopyBytes() {
+		byte[] data = createData(10 * MEGABYTE + 123, 1);
+		File file = addSourceFile("sequential", data);
+		FileCopier fileCopier = createCopier(Arrays.asList(file));
+		fileCopier.setChannelBufferSize(MEGABYTE);
+		assertCopiedOnce(fileCopier, file, data);
+	}
+
+	@Test
+	public void testRangeCopyBytes() {
+		byte[] data = createData(10 * MEGABYTE + 123, 2);
+		File file = addSourceFile("range", data);
+		FileCopier fileCopier = createCopier(Arrays.asList(file));
+		fileCopier.setChannelBufferSize(MEGABYTE);
+		fileCopier.enableRangeCopy(MEGABYTE, 4);
+		assertCopiedOnce(fileCopier, file, data);
+	}
+
+	@Test
+	public void testPipelinedCopyBytes() {
+		byte[] data = createData(10 * MEGABYTE + 123, 3);
+		File file = addSourceFile("pipelined", data);
+		FileCopier fileCopier = createCopier(Arrays.asList(file));
+		fileCopier.setChannelBufferSize(MEGABYTE);
+		fileCopier.setPipelineMode(FileCopier.PipelineMode.ALWAYS, 4);
+		assertCopiedOnce(fileCopier, file, data);
+	}
+
+	@Test
+	public void testSkipAndOverwrite() {
+		byte[] data = createData(1000, 1);
+		File unchangedFile = addSourceFile("unchanged", data);
+		File changedFile = addSourceFile("changed", createData(1000, 2));
+		backend.addFile(getDestinationFile(unchangedFile), data, LAST_MODIFIED);
+		backend.addFile(getDestinationFile(changedFile), createData(500, 3), LAST_MODIFIED);
+		FileCopier fileCopier = createCopier(Arrays.asList(unchangedFile, changedFile));
+		ResultCounter counter = new ResultCounter();
+		fileCopier.addFileCopyListener(counter);
+		fileCopier.copy();
+		assertEquals(Arrays.asList(unchangedFile), fileCopier.getSkippedFiles());
+		assertEquals(Arrays.asList(changedFile), fileCopier.getOverwriteFiles());
+		assertEquals(1, counter.getCount(FileCopier.CopyResult.ALREADY_EXISTS));
+		assertEquals(0, fileCopier.getCopiedFileCount());
+		assertEquals(500, backend.length(getDestinationFile(changedFile)));
+
+		assertTrue(fileCopier.resolveOverwrite(changedFile, true));
+		assertEquals(0, fileCopier.getOverwriteFileCount());
+		assertEquals(1, fileCopier.getCopiedFileCount());
+		assertArrayEquals(backend.getData(changedFile), backend.getData(getDestinationFile(changedFile)));
+	}
+
+	@Test
+	public void testOverwriteDeclined() {
+		File file = addSourceFile("changed", createData(1000, 1));
+		byte[] existingData = createData(500, 2);
+		backend.addFile(getDestinationFile(file), existingData, LAST_MODIFIED);
+		FileCopier fileCopier = createCopier(Arrays.asList(file));
+		fileCopier.copy();
+		assertTrue(fileCopier.resolveOverwrite(file, false));
+		assertEquals(0, fileCopier.getOverwriteFileCount());
+		assertEquals(0, fileCopier.getCopiedFileCount());
+		assertArrayEquals(existingData, backend.getData(getDestinationFile(file)));
+	}
+
+	@Test
+	public void testCancelRemovesPartialFile() {
+		final List<File> files = addSourceFiles(3, 4 * MEGABYTE);
+		final FileCopier fileCopier = createCopier(files);
+		fileCopier.setChannelBufferSize(MEGABYTE);
+		final AtomicBoolean cancelled = new AtomicBoolean();
+		final AtomicInteger progressEvents = new AtomicInteger();
+		fileCopier.addFileCopyProgressListener(new FileCopyProgressListener() {
+			public void fileCopying(File from, File to, long bytesCopied, boolean copyComplete) {
+				progressEvents.incrementAndGet();
+				if (from.equals(files.get(1)) && !copyComplete && cancelled.compareAndSet(false, true)) {
+					fileCopier.cancel();
+				}
+			}
+		});
+		ResultCounter counter = new ResultCounter();
+		fileCopier.addFileCopyListener(counter);
+		fileCopier.copy();
+		assertTrue(cancelled.get());
+		assertTrue(counter.copyCancelled);
+		assertEquals(1, fileCopier.getCopiedFileCount());
+		assertTrue(backend.exists(getDestinationFile(files.get(0))));
+		assertFalse("partial file", backend.exists(getDestinationFile(files.get(1))));
+		assertFalse(backend.exists(getDestinationFile(files.get(2))));
+		assertTrue(progressEvents.get() < 12);
+	}
+}